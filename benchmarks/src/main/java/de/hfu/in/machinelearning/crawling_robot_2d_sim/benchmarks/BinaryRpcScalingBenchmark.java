@@ -0,0 +1,132 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.benchmarks;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc.BinaryRpcServer;
+
+/**
+ * Measures the total throughput of the binary RPC server with 1, 2, 4 and 8
+ * concurrent clients. Every client has its own connection and thereby its own
+ * environment. On a machine with enough cores the throughput is expected to
+ * grow with the number of clients up to the number of cores and workers.
+ * This has not been measured yet: it has only been run on a single core,
+ * where it shows a flat line of about 9-10k actions/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryRpcScalingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Server {
+
+		@Param({ "18191" })
+		public int port;
+
+		private BinaryRpcServer server;
+
+		@Setup(Level.Trial)
+		public void start() throws IOException {
+			server = new BinaryRpcServer(port, EnvironmentPool.createHeadless(8),
+					Runtime.getRuntime().availableProcessors());
+			server.start();
+		}
+
+		@TearDown(Level.Trial)
+		public void stop() {
+			server.shutdown();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Client {
+
+		@Param({ "50" })
+		public int durationMillis;
+
+		private SocketChannel channel;
+		private final ByteBuffer request = ByteBuffer.allocateDirect(4 + BinaryRpcServer.REQUEST_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		private final ByteBuffer reply = ByteBuffer.allocateDirect(4 + BinaryRpcServer.REPLY_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+		@Setup(Level.Trial)
+		public void connect(Server server) throws IOException {
+			channel = SocketChannel.open(new InetSocketAddress("localhost", server.port));
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		}
+
+		@Setup(Level.Iteration)
+		public void reset() throws IOException {
+			call(BinaryRpcServer.OP_RESET);
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		double call(int opcode) throws IOException {
+			request.clear();
+			request.putInt(BinaryRpcServer.REQUEST_SIZE).putInt(opcode)
+					.putInt(BinaryRpcServer.CONNECTION_ENVIRONMENT).putInt(durationMillis).putInt(1).putInt(1);
+			request.flip();
+			while (request.hasRemaining())
+				channel.write(request);
+			reply.clear();
+			while (reply.hasRemaining())
+				if (channel.read(reply) < 0)
+					throw new EOFException();
+			return reply.getDouble(8);
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public double clients1(Server server, Client client) throws IOException {
+		return client.call(BinaryRpcServer.OP_ACTION);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public double clients2(Server server, Client client) throws IOException {
+		return client.call(BinaryRpcServer.OP_ACTION);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public double clients4(Server server, Client client) throws IOException {
+		return client.call(BinaryRpcServer.OP_ACTION);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public double clients8(Server server, Client client) throws IOException {
+		return client.call(BinaryRpcServer.OP_ACTION);
+	}
+}
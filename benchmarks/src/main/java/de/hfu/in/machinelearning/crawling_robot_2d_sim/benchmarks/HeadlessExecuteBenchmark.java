@@ -0,0 +1,57 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Constants;
+
+/**
+ * Measures a full {@link HeadlessSimulationHandler#execute(int, int, int)}
+ * call, i.e. applying the command, advancing the world and building the
+ * state-vector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeadlessExecuteBenchmark {
+
+	@Param({ "50", "200" })
+	public int durationMillis;
+
+	private HeadlessSimulationHandler handler;
+	private int direction;
+
+	@Setup(Level.Trial)
+	public void createHandler() {
+		handler = new HeadlessSimulationHandler(new RobotSimulation());
+	}
+
+	@Setup(Level.Iteration)
+	public void resetHandler() {
+		handler.reset();
+		direction = Constants.DIRECTION_CLOCKWISE;
+	}
+
+	@Benchmark
+	public double[] execute() {
+		direction = -direction;
+		return handler.execute(durationMillis, direction, direction);
+	}
+}
@@ -0,0 +1,62 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.PhysicsProfile;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+
+/**
+ * Measures one cycle of the default gait of the
+ * {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.ParameterSweep}
+ * (2.6 simulated seconds) with every {@link PhysicsProfile}. The deviation of
+ * the trajectories is reported by the
+ * {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.ProfileReport}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhysicsProfileBenchmark {
+
+	private static final int[] DURATIONS = { 500, 800, 500, 800 };
+	private static final int[] ARM1_DIRECTIONS = { 1, 0, -1, 0 };
+	private static final int[] ARM2_DIRECTIONS = { 0, 1, 0, -1 };
+
+	@Param({ "BALANCED", "ACCURATE" })
+	public PhysicsProfile profile;
+
+	private HeadlessSimulationHandler handler;
+
+	@Setup(Level.Trial)
+	public void createHandler() {
+		handler = new HeadlessSimulationHandler(
+				new RobotSimulation(SimulationConfiguration.fromSettings().withPhysics(profile)));
+	}
+
+	@Setup(Level.Iteration)
+	public void resetHandler() {
+		handler.reset();
+	}
+
+	@Benchmark
+	public double[] gaitCycle() {
+		return handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+	}
+}
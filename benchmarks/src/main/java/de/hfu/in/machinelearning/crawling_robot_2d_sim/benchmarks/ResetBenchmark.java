@@ -0,0 +1,48 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Constants;
+
+/**
+ * Measures {@link RobotSimulation#reset()} after a short episode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResetBenchmark {
+
+	private RobotSimulation simulation;
+
+	@Setup
+	public void createSimulation() {
+		simulation = new RobotSimulation();
+	}
+
+	@Benchmark
+	public void stepAndReset() {
+		simulation.applyCommand(Constants.DIRECTION_CLOCKWISE, Constants.DIRECTION_CLOCKWISE);
+		simulation.update(50000000L);
+		simulation.reset();
+	}
+
+	@Benchmark
+	public void reset() {
+		simulation.reset();
+	}
+}
@@ -0,0 +1,57 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Constants;
+
+/**
+ * Measures {@link RobotSimulation#update(long)} for several simulated
+ * durations while both arms are moving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationUpdateBenchmark {
+
+	@Param({ "50", "200", "1000" })
+	public int durationMillis;
+
+	private RobotSimulation simulation;
+	private int direction;
+
+	@Setup(Level.Trial)
+	public void createSimulation() {
+		simulation = new RobotSimulation();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetSimulation() {
+		simulation.reset();
+		direction = Constants.DIRECTION_CLOCKWISE;
+	}
+
+	@Benchmark
+	public void update() {
+		// swing the arms back and forth, so the robot keeps touching the floor
+		direction = -direction;
+		simulation.applyCommand(direction, direction);
+		simulation.update(durationMillis * 1000000L);
+	}
+}
@@ -0,0 +1,50 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Measures the retrieval of the state-vector. Run with the GC profiler to see
+ * the allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateVectorBenchmark {
+
+	private RobotSimulation simulation;
+	private final double[] buffer = new double[VehicleHandler.STATE_VECTOR_SIZE];
+
+	@Setup
+	public void createSimulation() {
+		simulation = new RobotSimulation();
+		simulation.update(500000000L);
+	}
+
+	@Benchmark
+	public double[] getStateVector() {
+		return simulation.getVehicleStateVector();
+	}
+
+	@Benchmark
+	public double[] getStateVectorIntoBuffer() {
+		simulation.getVehicleStateVector(buffer, 0);
+		return buffer;
+	}
+}
@@ -0,0 +1,74 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.benchmarks;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
+import org.apache.xmlrpc.webserver.WebServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.App;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
+
+/**
+ * Measures a complete {@code Robot.action} call through the XML-RPC server on
+ * localhost, including HTTP and XML encoding on both sides.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlRpcRoundTripBenchmark {
+
+	@Param({ "18190" })
+	public int port;
+
+	@Param({ "50" })
+	public int durationMillis;
+
+	private WebServer server;
+	private XmlRpcClient client;
+	private Object[] actionParams;
+	private final Object[] noParams = new Object[0];
+
+	@Setup(Level.Trial)
+	public void startServer() throws Exception {
+		server = App.startRpcServer(EnvironmentPool.createHeadless(1), port);
+		XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
+		config.setServerURL(new URL("http://localhost:" + port));
+		config.setEnabledForExtensions(true);
+		client = new XmlRpcClient();
+		client.setConfig(config);
+		actionParams = new Object[] { durationMillis, 1, 1 };
+	}
+
+	@Setup(Level.Iteration)
+	public void reset() throws Exception {
+		client.execute("Robot.reset", noParams);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() {
+		server.shutdown();
+	}
+
+	@Benchmark
+	public Object action() throws Exception {
+		return client.execute("Robot.action", actionParams);
+	}
+}
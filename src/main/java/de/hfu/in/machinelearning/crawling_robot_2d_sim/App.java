@@ -2,8 +2,10 @@ package de.hfu.in.machinelearning.crawling_robot_2d_sim;
 
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
 import java.util.Locale;
+import java.util.function.Function;
 
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
@@ -14,10 +16,21 @@ import org.apache.xmlrpc.server.XmlRpcServer;
 import org.apache.xmlrpc.server.XmlRpcServerConfigImpl;
 import org.apache.xmlrpc.webserver.WebServer;
 
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.RealtimeSimulationHandler;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.learning.QLearningParameters;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.learning.QLearningRunner;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.recording.ReplayRunner;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc.BinaryRpcServer;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc.MeteredWebServer;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc.PrimitiveTypeFactory;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc.RpcCallHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc.SharedMemoryTransport;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.BackendValidation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.ParameterSweep;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.ProfileReport;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
 
@@ -25,22 +38,75 @@ import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
  * The main entry-point of the Application.
  */
 public class App {
-	private static SimulationHandler handler;
+	private static EnvironmentPool pool;
 	private static WebServer rpcServer;
-	
+	private static BinaryRpcServer binaryRpcServer;
+	private static SharedMemoryTransport sharedMemoryTransport;
+
+	/**
+	 * Returns the handler of the first environment. In visualized mode this is the
+	 * environment shown in the window.
+	 * 
+	 * @return
+	 */
 	public static SimulationHandler getHandler() {
-		return handler;
+		return pool.getHandler(0);
+	}
+
+	public static EnvironmentPool getPool() {
+		return pool;
 	}
 
 	public static void main(String[] args) {
 		boolean headless = false;
 		int rpcPort = Settings.getInteger("rpc.port", 8080);
+		int binaryRpcPort = Settings.getInteger("rpc.binaryPort", 0);
+		String sharedMemoryFile = Settings.getString("rpc.sharedMemoryFile");
+		int environments = Settings.getInteger("environment.count", 1);
+		double timeScale = Settings.getDouble("canvas.timeScale", 1.0);
+		String recordingDirectory = Settings.getString("recording.directory");
+		String replayPath = null;
+		String learningDirectory = null;
+		String sweepFile = null;
+		String profileReportFile = null;
+		String validationFile = null;
+		double replayTolerance = Settings.getDouble("replay.tolerance", 0.0);
+		double metricsInterval = Settings.getDouble("metrics.logInterval", 0.0);
 		for (int i = 0; i < args.length; ++i) {
 			if ("--headless".equals(args[i]))
 				headless = true;
 			else if ("--port".equals(args[i]))
 				rpcPort = Integer.parseInt(args[i + 1]);
+			else if ("--binary-port".equals(args[i]))
+				binaryRpcPort = Integer.parseInt(args[i + 1]);
+			else if ("--shm".equals(args[i]))
+				sharedMemoryFile = args[i + 1];
+			else if ("--environments".equals(args[i]))
+				environments = Integer.parseInt(args[i + 1]);
+			else if ("--time-scale".equals(args[i]))
+				timeScale = Double.parseDouble(args[i + 1]);
+			else if ("--record".equals(args[i]))
+				recordingDirectory = args[i + 1];
+			else if ("--replay".equals(args[i]))
+				replayPath = args[i + 1];
+			else if ("--tolerance".equals(args[i]))
+				replayTolerance = Double.parseDouble(args[i + 1]);
+			else if ("--learn".equals(args[i]))
+				learningDirectory = args[i + 1];
+			else if ("--sweep".equals(args[i]))
+				sweepFile = args[i + 1];
+			else if ("--profile-report".equals(args[i]))
+				profileReportFile = args[i + 1];
+			else if ("--validate-backend".equals(args[i]))
+				validationFile = args[i + 1];
+			else if ("--metrics-interval".equals(args[i]))
+				metricsInterval = Double.parseDouble(args[i + 1]);
 		}
+		if (environments < 1)
+			environments = 1;
+		// rendering of pixel observations must work without a display
+		if (headless)
+			System.setProperty("java.awt.headless", "true");
 		
 		// use the system-native Look-And-Feel when possible
 		try {
@@ -58,42 +124,193 @@ public class App {
 		// set the default locale to english, this affects the output of numbers in string format
 		Locale.setDefault(Locale.ENGLISH);
 		
-		// setup the simulation
-		RobotSimulation simulation = new RobotSimulation();
+		if (replayPath != null) {
+			replay(new File(replayPath), replayTolerance, headless, timeScale);
+			return;
+		}
+		if (learningDirectory != null) {
+			learn(new File(learningDirectory));
+			return;
+		}
+		if (sweepFile != null) {
+			try {
+				ParameterSweep.fromSettings().run(new File(sweepFile));
+			} catch (IOException e) {
+				System.err.println(Texts.get("App.sweepFailure"));
+				e.printStackTrace();
+			} catch (InterruptedException e) {
+				System.err.println(Texts.get("App.sweepInterrupted"));
+				Thread.currentThread().interrupt();
+			}
+			return;
+		}
+		if (profileReportFile != null) {
+			try {
+				ProfileReport.fromSettings().run(new File(profileReportFile));
+			} catch (IOException e) {
+				System.err.println(Texts.get("App.profileFailure"));
+				e.printStackTrace();
+			}
+			return;
+		}
+		if (validationFile != null) {
+			try {
+				BackendValidation.fromSettings().run(new File(validationFile));
+			} catch (IOException e) {
+				System.err.println(Texts.get("App.validationFailure"));
+				e.printStackTrace();
+			}
+			return;
+		}
+
+		// setup the simulations, in visualized mode only the first one is shown
 		if (!headless) {
-			SimulationWindow window = new SimulationWindow(simulation);
-			handler = new RealtimeSimulationHandler(simulation, window.getCanvas());
+			RobotSimulation[] simulations = new RobotSimulation[environments];
+			SimulationHandler[] handlers = new SimulationHandler[environments];
+			for (int i = 0; i < environments; ++i) {
+				simulations[i] = new RobotSimulation(SimulationConfiguration.forEnvironment(i));
+				handlers[i] = new HeadlessSimulationHandler(simulations[i]);
+			}
+			SimulationWindow window = new SimulationWindow(simulations[0]);
+			window.setTimeScale(timeScale);
+			handlers[0] = new RealtimeSimulationHandler(simulations[0], window.getCanvas());
+			pool = new EnvironmentPool(simulations, handlers);
 			window.setVisible(true);
 			window.addWindowListener(new WindowAdapter() {
 				@Override
 				public void windowClosed(WindowEvent e) {
 					if (rpcServer != null)
 						rpcServer.shutdown();
+					if (binaryRpcServer != null)
+						binaryRpcServer.shutdown();
+					if (sharedMemoryTransport != null)
+						sharedMemoryTransport.shutdown();
 				}
 			});
 		} else {
-			handler = new HeadlessSimulationHandler(simulation);
+			pool = EnvironmentPool.createHeadless(environments);
 			System.out.println(Texts.get("App.runningHeadless"));
 		}
+		System.out.println(String.format(Texts.get("App.environments"), environments));
+		if (metricsInterval > 0)
+			pool.getMetrics().startLogging(metricsInterval);
+		if (recordingDirectory != null) {
+			try {
+				pool.enableRecording(new File(recordingDirectory));
+				// the recorders buffer their records, write them on any kind of exit
+				Runtime.getRuntime().addShutdownHook(new Thread(pool::closeRecordings));
+				System.out.println(String.format(Texts.get("App.recording"), recordingDirectory));
+			} catch (IOException e) {
+				System.err.println(Texts.get("App.recordingFailure"));
+				e.printStackTrace();
+			}
+		}
 		try {
 			// run the XML-RPC-Server
-			setupRpcServer(rpcPort);
+			rpcServer = startRpcServer(pool, rpcPort);
 		} catch (Exception e) {
 			System.err.println(Texts.get("App.rpcFailure"));
 			e.printStackTrace();
 			rpcServer = null;
 		}
+		if (binaryRpcPort > 0) {
+			try {
+				// run the binary RPC-Server next to the XML-RPC-Server
+				binaryRpcServer = new BinaryRpcServer(binaryRpcPort, pool,
+						Settings.getInteger("rpc.workerThreads", Runtime.getRuntime().availableProcessors()));
+				binaryRpcServer.start();
+				System.out.println(String.format(Texts.get("App.binaryRpc"), binaryRpcPort));
+			} catch (IOException e) {
+				System.err.println(Texts.get("App.rpcFailure"));
+				e.printStackTrace();
+				binaryRpcServer = null;
+			}
+		}
+		if (sharedMemoryFile != null) {
+			try {
+				// serve co-located agents through a memory-mapped file
+				sharedMemoryTransport = new SharedMemoryTransport(sharedMemoryFile,
+						Settings.getInteger("rpc.sharedMemorySlots", 64), pool);
+				sharedMemoryTransport.start();
+				System.out.println(String.format(Texts.get("App.sharedMemory"), sharedMemoryFile));
+			} catch (IOException e) {
+				System.err.println(Texts.get("App.rpcFailure"));
+				e.printStackTrace();
+				sharedMemoryTransport = null;
+			}
+		}
 	}
 	
-	private static void setupRpcServer(int port) throws XmlRpcException, IOException {
-		rpcServer = new WebServer(port);
-    	XmlRpcServer xmlRpcServer = rpcServer.getXmlRpcServer();
+	/**
+	 * Replays recorded episodes instead of serving clients. Every episode runs in
+	 * a simulation configured like the environment it has been recorded in.
+	 * Headless replays exit with status 1 if any state-vector does not match,
+	 * visualized ones open one window per environment and leave them open.
+	 */
+	private static void replay(File fileOrDirectory, double tolerance, boolean headless, double timeScale) {
+		Function<RobotSimulation, SimulationHandler> handlers;
+		if (headless) {
+			handlers = HeadlessSimulationHandler::new;
+		} else {
+			handlers = simulation -> {
+				SimulationWindow window = new SimulationWindow(simulation);
+				window.setTimeScale(timeScale);
+				SimulationHandler handler = new RealtimeSimulationHandler(simulation, window.getCanvas());
+				window.setVisible(true);
+				return handler;
+			};
+		}
+		System.out.println(String.format(Texts.get("App.replaying"), fileOrDirectory));
+		ReplayRunner runner = new ReplayRunner(handlers, tolerance);
+		runner.replay(fileOrDirectory);
+		runner.printSummary();
+		if (headless)
+			System.exit(runner.getMismatches() == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Trains tabular Q-learners in-process instead of serving clients, see
+	 * {@link QLearningRunner}. The number of learners is given by
+	 * {@code learning.learners}, by default one per core.
+	 */
+	private static void learn(File directory) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		QLearningRunner runner = new QLearningRunner(QLearningParameters.fromSettings(),
+				Settings.getInteger("learning.learners", cores), cores, Settings.getLong("learning.seed", 0));
+		try {
+			runner.run(directory);
+		} catch (IOException e) {
+			System.err.println(Texts.get("App.learningFailure"));
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			System.err.println(Texts.get("App.learningInterrupted"));
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Starts an XML-RPC server on the given port. The {@link RpcCallHandler}
+	 * serves the given environments, which replace the pool of the application.
+	 * 
+	 * @param environments
+	 * @param port
+	 * @return The running server
+	 * @throws XmlRpcException
+	 * @throws IOException
+	 */
+	public static WebServer startRpcServer(EnvironmentPool environments, int port)
+			throws XmlRpcException, IOException {
+		pool = environments;
+		WebServer server = new MeteredWebServer(port, environments.getMetrics().getXmlRpc());
+    	XmlRpcServer xmlRpcServer = server.getXmlRpcServer();
     	PropertyHandlerMapping phm = new PropertyHandlerMapping();
     	phm.addHandler("Robot", RpcCallHandler.class);
     	xmlRpcServer.setHandlerMapping(phm);
+    	xmlRpcServer.setTypeFactory(new PrimitiveTypeFactory(xmlRpcServer));
     	XmlRpcServerConfigImpl serverConfig = (XmlRpcServerConfigImpl) xmlRpcServer.getConfig();
     	serverConfig.setEnabledForExtensions(true);
     	serverConfig.setContentLengthOptional(false);
-    	rpcServer.start();
+    	server.start();
+    	return server;
 	}
 }
\ No newline at end of file
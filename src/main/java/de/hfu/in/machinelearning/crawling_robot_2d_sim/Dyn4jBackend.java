@@ -0,0 +1,111 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.List;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.contact.DefaultContactManager;
+import org.dyn4j.geometry.Vector2;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Floor;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.FloorHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.TerrainHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleSnapshot;
+
+/**
+ * Simulates the floor and the robot as rigid bodies connected by joints in a
+ * dyn4j {@link World}, configured by the {@link PhysicsProfile}.
+ */
+public final class Dyn4jBackend implements SimulationBackend {
+
+	private final World world;
+	private final Floor floor;
+	private final VehicleHandler vehicle;
+	private final PhysicsProfile physics;
+
+	public Dyn4jBackend(SimulationConfiguration configuration) {
+		physics = configuration.physics;
+		world = new World();
+		world.setGravity(new Vector2(0.0, configuration.gravity));
+		physics.apply(world);
+		world.getSettings().setStepFrequency(configuration.getStepNanos() / 1.0e9);
+		// step the empty world once, so the very first step of the robot uses the
+		// same ratio to the previous step length as all later steps
+		world.step(1);
+		if (configuration.terrain.isEnabled())
+			floor = new TerrainHandler(world, configuration.floorY, configuration.tileHeight, configuration.terrain);
+		else
+			floor = new FloorHandler(world, new Vector2(0.0, configuration.floorY), configuration.tileWidth,
+					configuration.tileHeight);
+		vehicle = new VehicleHandler(world, 1.0, configuration.vehicle);
+	}
+
+	@Override
+	public void step() {
+		world.step(1);
+		floor.updateFor(vehicle.getXPosition());
+	}
+
+	@Override
+	public void setArmDirection(int arm1, int arm2) {
+		vehicle.setArmDirection(arm1, arm2);
+	}
+
+	@Override
+	public double getXPosition() {
+		return vehicle.getXPosition();
+	}
+
+	@Override
+	public void getStateVector(double[] target, int offset) {
+		vehicle.getStateVector(target, offset);
+	}
+
+	@Override
+	public void setFactors(double[] factors) {
+		vehicle.setFactors(factors);
+	}
+
+	@Override
+	public double[] getFactors() {
+		return vehicle.getFactors();
+	}
+
+	/**
+	 * Captures the state of all robot bodies and joints and the floor.
+	 */
+	@Override
+	public Object capture() {
+		return new State(vehicle.capture(), floor.capture());
+	}
+
+	/**
+	 * Restores the robot and the floor. Contact manager and broadphase are
+	 * replaced by empty ones.
+	 */
+	@Override
+	public void restore(Object state) {
+		State s = (State) state;
+		floor.restore(s.floor);
+		vehicle.restore(s.vehicle);
+
+		world.setContactManager(new DefaultContactManager());
+		world.setBroadphaseDetector(physics.createBroadphase());
+	}
+
+	@Override
+	public List<Body> getBodies() {
+		return world.getBodies();
+	}
+
+	private static final class State {
+		final VehicleSnapshot vehicle;
+		final double[] floor;
+
+		State(VehicleSnapshot vehicle, double[] floor) {
+			this.vehicle = vehicle;
+			this.floor = floor;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+import org.dyn4j.dynamics.Body;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.BasicBody;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+
+/**
+ * Renders a {@link RobotSimulation} into an offscreen image for pixel-based
+ * agents. The view is centered on the vehicle like in the
+ * {@link SimulationCanvas}. One image is allocated per renderer and reused for
+ * every frame, no window or display is needed.
+ *
+ * <p>
+ * Frames are returned as packed bytes, row by row from the top. Grayscale
+ * frames have one byte per pixel, color frames three bytes in RGB order.
+ */
+public final class OffscreenRenderer {
+
+	private static final Color backgroundColor = Color.white;
+
+	private final int width;
+	private final int height;
+	private final double scale;
+	private final boolean grayscale;
+	private final BufferedImage image;
+	private final Graphics2D graphics;
+	private final byte[] pixels;
+	private final AffineTransform identity = new AffineTransform();
+
+	/**
+	 * @param width     Width of the frames in pixels
+	 * @param height    Height of the frames in pixels
+	 * @param scale     Pixels per world unit
+	 * @param grayscale Whether to render grayscale instead of RGB frames
+	 */
+	public OffscreenRenderer(int width, int height, double scale, boolean grayscale) {
+		this.width = width;
+		this.height = height;
+		this.scale = scale;
+		this.grayscale = grayscale;
+		image = new BufferedImage(width, height,
+				grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+		pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		graphics = image.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	}
+
+	/**
+	 * Creates a renderer configured by the settings {@code observation.width},
+	 * {@code observation.height}, {@code observation.scale} and
+	 * {@code observation.grayscale}.
+	 *
+	 * @return
+	 */
+	public static OffscreenRenderer fromSettings() {
+		return new OffscreenRenderer(Settings.getInteger("observation.width", 84),
+				Settings.getInteger("observation.height", 84), Settings.getDouble("observation.scale", 8.0),
+				Settings.getInteger("observation.grayscale", 1) != 0);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of bytes per pixel, 1 for grayscale and 3 for RGB.
+	 *
+	 * @return
+	 */
+	public int getChannels() {
+		return grayscale ? 1 : 3;
+	}
+
+	/**
+	 * Returns the number of bytes of one frame.
+	 *
+	 * @return
+	 */
+	public int getFrameSize() {
+		return width * height * getChannels();
+	}
+
+	/**
+	 * Renders the current state of the simulation and writes the frame into the
+	 * given buffer.
+	 *
+	 * @param simulation
+	 * @param target     Buffer with at least {@link #getFrameSize()} bytes after
+	 *                   {@code offset}
+	 * @param offset
+	 */
+	public synchronized void render(RobotSimulation simulation, byte[] target, int offset) {
+		Graphics2D g = graphics;
+		g.setTransform(identity);
+		g.setColor(backgroundColor);
+		g.fillRect(0, 0, width, height);
+
+		synchronized (simulation) {
+			double posX = simulation.getVehicleXPosition() * scale;
+			// flip the y-axis and move the origin to the center
+			g.scale(1, -1);
+			g.translate(((double) width / 2) - posX, -height / 2);
+			for (Body body : simulation.getWorldBodies())
+				((BasicBody) body).render(g, scale);
+		}
+
+		if (grayscale) {
+			System.arraycopy(pixels, 0, target, offset, pixels.length);
+		} else {
+			// the image stores BGR
+			for (int i = 0; i < pixels.length; i += 3) {
+				target[offset + i] = pixels[i + 2];
+				target[offset + i + 1] = pixels[i + 1];
+				target[offset + i + 2] = pixels[i];
+			}
+		}
+	}
+}
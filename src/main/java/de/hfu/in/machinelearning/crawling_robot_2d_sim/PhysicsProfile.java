@@ -0,0 +1,109 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.Locale;
+
+import org.dyn4j.collision.broadphase.BroadphaseDetector;
+import org.dyn4j.collision.broadphase.DynamicAABBTree;
+import org.dyn4j.collision.broadphase.Sap;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.ContinuousDetectionMode;
+import org.dyn4j.dynamics.Settings;
+import org.dyn4j.dynamics.World;
+
+/**
+ * Named sets of solver settings trading accuracy for speed. A profile is
+ * selected by the setting {@code physics.profile} and provides the default
+ * step frequency, which {@code simulation.stepFrequency} still overrides.
+ * {@link #ACCURATE} equals the defaults of dyn4j and is used unless another
+ * profile is selected, so trajectories recorded without a profile stay valid.
+ * The cost and the deviation of every profile are measured by the
+ * {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.ProfileReport}.
+ *
+ * <p>
+ * Every profile has to stay within a deviation budget of {@link #ACCURATE}:
+ * on the default gait of the profile report, the distance covered after every
+ * command may deviate by at most {@value #MAX_DISTANCE_DEVIATION} of the
+ * distance covered with {@link #ACCURATE}. There is no profile with a lower
+ * step frequency, because the gait then takes a different course after a few
+ * cycles, e.g. 2.14 m instead of 4.89 m at 40 Hz.
+ */
+public enum PhysicsProfile {
+
+	/**
+	 * Full step frequency, fewer position iterations and no continuous collision
+	 * detection. Fewer velocity iterations let the arm motors slip, so they are
+	 * kept. Covers 5.18 m instead of 4.89 m on the default gait, a deviation of
+	 * 6%, at about 1.4 times the speed.
+	 */
+	BALANCED(60.0, Settings.DEFAULT_SOLVER_ITERATIONS, 4, ContinuousDetectionMode.NONE, true, false),
+	/** The defaults of dyn4j. */
+	ACCURATE(60.0, Settings.DEFAULT_SOLVER_ITERATIONS, Settings.DEFAULT_SOLVER_ITERATIONS,
+			ContinuousDetectionMode.ALL, true, false);
+
+	/**
+	 * Maximum deviation of the distance from the one of {@link #ACCURATE},
+	 * relative to the distance of {@link #ACCURATE}.
+	 */
+	public static final double MAX_DISTANCE_DEVIATION = 0.1;
+
+	/** Number of simulation steps per simulated second. */
+	public final double stepFrequency;
+	public final int velocityIterations;
+	public final int positionIterations;
+	public final ContinuousDetectionMode continuousDetection;
+	public final boolean sleeping;
+	/** Whether sweep and prune is used as broadphase instead of an AABB tree. */
+	public final boolean sweepAndPrune;
+
+	private PhysicsProfile(double stepFrequency, int velocityIterations, int positionIterations,
+			ContinuousDetectionMode continuousDetection, boolean sleeping, boolean sweepAndPrune) {
+		this.stepFrequency = stepFrequency;
+		this.velocityIterations = velocityIterations;
+		this.positionIterations = positionIterations;
+		this.continuousDetection = continuousDetection;
+		this.sleeping = sleeping;
+		this.sweepAndPrune = sweepAndPrune;
+	}
+
+	/**
+	 * Returns the profile with the given name, ignoring the case.
+	 *
+	 * @param name
+	 * @return
+	 * @throws IllegalArgumentException if there is no such profile
+	 */
+	public static PhysicsProfile forName(String name) {
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown physics profile: " + name);
+		}
+	}
+
+	/**
+	 * Applies the solver settings and the broadphase to a world. The step
+	 * frequency is set by the {@link Dyn4jBackend}.
+	 *
+	 * @param world
+	 */
+	public void apply(World world) {
+		Settings settings = world.getSettings();
+		settings.setVelocityConstraintSolverIterations(velocityIterations);
+		settings.setPositionConstraintSolverIterations(positionIterations);
+		settings.setContinuousDetectionMode(continuousDetection);
+		settings.setAutoSleepingEnabled(sleeping);
+		world.setBroadphaseDetector(createBroadphase());
+	}
+
+	/**
+	 * Creates an empty broadphase of this profile.
+	 *
+	 * @return
+	 */
+	public BroadphaseDetector<Body, BodyFixture> createBroadphase() {
+		if (sweepAndPrune)
+			return new Sap<Body, BodyFixture>();
+		return new DynamicAABBTree<Body, BodyFixture>();
+	}
+}
@@ -0,0 +1,650 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.Settings;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Circle;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Mass;
+import org.dyn4j.geometry.Polygon;
+import org.dyn4j.geometry.Slice;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.BasicBody;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Constants;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.FloorHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Simulates the robot in reduced coordinates instead of as five free bodies
+ * held together by joints. The state consists of the position {@code X, Y}
+ * and the rotation {@code theta} of the body, the joint angles
+ * {@code phi1, phi2} of the arms and the rotation {@code psi} of the wheel
+ * relative to the body. The
+ * pack is rigidly attached to the body and the wheel rotates about a fixed
+ * axle, so the joints never drift apart and need no constraints at all.
+ *
+ * <p>
+ * Every step the 6x6 mass matrix is assembled from the bodies of the robot and
+ * the velocities are integrated semi-implicitly. Motors, joint limits and the
+ * contacts of the vertices and arcs of all fixtures with the floor are solved
+ * as rows of the generalized velocities by a projected Gauss-Seidel with warm
+ * starting, using {@link PhysicsProfile#velocityIterations} iterations.
+ * Penetration is removed by Baumgarte stabilization, contacts are speculative
+ * within {@link #SPECULATIVE_MARGIN} above the floor.
+ *
+ * <p>
+ * Shapes, masses and frictions are taken from a {@link VehicleHandler} built
+ * in a world of its own that is never stepped. Its bodies are moved to the
+ * computed poses after every step, so rendering, the state-vector and the
+ * factors work exactly as with the {@link Dyn4jBackend}. Only the flat floor
+ * is supported, the parts of the robot do not collide with each other and the
+ * floor friction is the default of dyn4j. Deviations from the
+ * {@link Dyn4jBackend} are measured by the
+ * {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.BackendValidation}.
+ *
+ * <p>
+ * Most gaits of the validation stay within tolerance, but the crawling gait
+ * {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.ScriptedGait#DEFAULT}
+ * covers about 40% more distance than with the {@link Dyn4jBackend}: the
+ * joints of dyn4j give way under load, so its arms lag behind and overshoot
+ * the motors, while the reduced coordinates follow them exactly. The backend
+ * is therefore not selectable, see {@link SimulationBackend.Type#REDUCED}.
+ */
+public final class ReducedCoordinateBackend implements SimulationBackend {
+
+	/** Distance above the floor within which contacts are considered. */
+	static final double SPECULATIVE_MARGIN = 0.1;
+
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int THETA = 2;
+	private static final int ARM1 = 3;
+	private static final int ARM2 = 4;
+	private static final int WHEEL = 5;
+	private static final int DOF = 6;
+
+	/** Frame of each body of the {@link VehicleHandler}: body, wheel, arms, pack. */
+	private static final int[] BODY_FRAMES = { 0, 1, 2, 3, 0 };
+	private static final int FRAMES = 4;
+
+	/** Ids of the rows warm started by position, contacts follow. */
+	private static final int ARM1_MOTOR = 0;
+	private static final int ARM2_MOTOR = 1;
+	private static final int WHEEL_MOTOR = 2;
+	private static final int ARM1_LOWER = 3;
+	private static final int ARM1_UPPER = 4;
+	private static final int ARM2_LOWER = 5;
+	private static final int ARM2_UPPER = 6;
+	private static final int JOINT_ROWS = 7;
+
+	private final SimulationConfiguration configuration;
+	private final double dt;
+	private final double floorTop;
+	private final int iterations;
+
+	private final World world;
+	private final FloorHandler floor;
+	private final VehicleHandler vehicle;
+	private final BasicBody[] bodies;
+
+	/** Joints in the coordinates of their parent frame. */
+	private final double wheelX, wheelY, arm1X, arm1Y, arm2X, arm2Y;
+
+	private final double[] mass = new double[BODY_FRAMES.length];
+	private final double[] inertia = new double[BODY_FRAMES.length];
+	private final double[] centerX = new double[BODY_FRAMES.length];
+	private final double[] centerY = new double[BODY_FRAMES.length];
+	private double arm1Torque;
+	private double arm2Torque;
+	private double armSpeed;
+
+	/**
+	 * Points of the fixtures touching the floor, in the coordinates of their
+	 * frame. Arcs have a radius and only touch with their lowest point if it lies
+	 * within {@code arcDirection +/- arcHalfAngle}, their end points are separate
+	 * features.
+	 */
+	private final int[] featureFrame;
+	private final double[] featureX;
+	private final double[] featureY;
+	private final double[] featureRadius;
+	private final double[] featureArcDirection;
+	private final double[] featureArcHalfAngle;
+	private final BodyFixture[] featureFixture;
+	private final double[] featureFriction;
+
+	private final double[] q = new double[DOF];
+	private final double[] v = new double[DOF];
+	private double arm1MotorSpeed;
+	private double arm2MotorSpeed;
+
+	// kinematics of the frames body, wheel, first arm, second arm
+	private final double[] originX = new double[FRAMES];
+	private final double[] originY = new double[FRAMES];
+	private final double[] angle = new double[FRAMES];
+	private final double[] omega = new double[FRAMES];
+	private final double[] accelerationX = new double[FRAMES];
+	private final double[] accelerationY = new double[FRAMES];
+	private final double[][] originJacobian = new double[FRAMES][2 * DOF];
+	private final double[][] angularJacobian = {
+			{ 0, 0, 1, 0, 0, 0 }, { 0, 0, 1, 0, 0, 1 }, { 0, 0, 1, -1, 0, 0 }, { 0, 0, 1, -1, -1, 0 } };
+
+	// solver buffers, nothing is allocated while stepping
+	private final double[] massMatrix = new double[DOF * DOF];
+	private final double[] force = new double[DOF];
+	private final double[] pointJacobian = new double[2 * DOF];
+	private final double[] rowJacobian;
+	private final double[] rowResponse;
+	private final double[] rowInverseMass;
+	private final double[] rowTarget;
+	private final double[] rowLower;
+	private final double[] rowUpper;
+	private final double[] rowImpulse;
+	private final double[] rowFriction;
+	private final int[] rowNormal;
+	private final int[] rowId;
+	private final double[] warmImpulses;
+	private int rowCount;
+
+	public ReducedCoordinateBackend(SimulationConfiguration configuration) {
+		if (configuration.terrain.isEnabled())
+			throw new IllegalArgumentException("The reduced coordinate backend only supports the flat floor");
+		this.configuration = configuration;
+		dt = configuration.getStepNanos() / 1.0e9;
+		floorTop = configuration.floorY + configuration.tileHeight / 2.0;
+		iterations = configuration.physics.velocityIterations;
+
+		world = new World();
+		floor = new FloorHandler(world, new Vector2(0.0, configuration.floorY), configuration.tileWidth,
+				configuration.tileHeight);
+		vehicle = new VehicleHandler(world, 1.0, configuration.vehicle);
+		List<BasicBody> parts = vehicle.getBodies();
+		bodies = parts.toArray(new BasicBody[parts.size()]);
+
+		// the robot is built with all rotations zero, so the differences of the
+		// translations are the joints in the coordinates of the parent
+		Transform body = bodies[0].getTransform();
+		Transform wheel = bodies[1].getTransform();
+		Transform arm1 = bodies[2].getTransform();
+		Transform arm2 = bodies[3].getTransform();
+		wheelX = wheel.getTranslationX() - body.getTranslationX();
+		wheelY = wheel.getTranslationY() - body.getTranslationY();
+		arm1X = arm1.getTranslationX() - body.getTranslationX();
+		arm1Y = arm1.getTranslationY() - body.getTranslationY();
+		arm2X = arm2.getTranslationX() - arm1.getTranslationX();
+		arm2Y = arm2.getTranslationY() - arm1.getTranslationY();
+		q[X] = body.getTranslationX();
+		q[Y] = body.getTranslationY();
+
+		List<double[]> features = new ArrayList<>();
+		List<BodyFixture> fixtures = new ArrayList<>();
+		for (int i = 0; i < bodies.length; ++i)
+			for (BodyFixture fixture : bodies[i].getFixtures())
+				addFeatures(BODY_FRAMES[i], fixture, features, fixtures);
+		int count = features.size();
+		featureFrame = new int[count];
+		featureX = new double[count];
+		featureY = new double[count];
+		featureRadius = new double[count];
+		featureArcDirection = new double[count];
+		featureArcHalfAngle = new double[count];
+		featureFixture = fixtures.toArray(new BodyFixture[count]);
+		featureFriction = new double[count];
+		for (int f = 0; f < count; ++f) {
+			double[] feature = features.get(f);
+			featureFrame[f] = (int) feature[0];
+			featureX[f] = feature[1];
+			featureY[f] = feature[2];
+			featureRadius[f] = feature[3];
+			featureArcDirection[f] = feature[4];
+			featureArcHalfAngle[f] = feature[5];
+		}
+
+		int maxRows = JOINT_ROWS + 2 * count;
+		rowJacobian = new double[maxRows * DOF];
+		rowResponse = new double[maxRows * DOF];
+		rowInverseMass = new double[maxRows];
+		rowTarget = new double[maxRows];
+		rowLower = new double[maxRows];
+		rowUpper = new double[maxRows];
+		rowImpulse = new double[maxRows];
+		rowFriction = new double[maxRows];
+		rowNormal = new int[maxRows];
+		rowId = new int[maxRows];
+		warmImpulses = new double[maxRows];
+
+		updateParameters();
+		updateBodies();
+	}
+
+	/**
+	 * Adds the points of a fixture that can touch the floor: all vertices of
+	 * polygons, the center of circles and the circle center, both end points and
+	 * the arc of slices.
+	 */
+	private static void addFeatures(int frame, BodyFixture fixture, List<double[]> features,
+			List<BodyFixture> fixtures) {
+		Convex shape = fixture.getShape();
+		if (shape instanceof Polygon) {
+			for (Vector2 vertex : ((Polygon) shape).getVertices()) {
+				features.add(new double[] { frame, vertex.x, vertex.y, 0.0, 0.0, 0.0 });
+				fixtures.add(fixture);
+			}
+		} else if (shape instanceof Circle) {
+			Vector2 center = shape.getCenter();
+			features.add(new double[] { frame, center.x, center.y, shape.getRadius(), 0.0, Math.PI });
+			fixtures.add(fixture);
+		} else if (shape instanceof Slice) {
+			Slice slice = (Slice) shape;
+			Vector2 center = slice.getCircleCenter();
+			double radius = slice.getSliceRadius();
+			double direction = slice.getRotation();
+			double halfAngle = slice.getTheta() / 2.0;
+			features.add(new double[] { frame, center.x, center.y, 0.0, 0.0, 0.0 });
+			features.add(new double[] { frame, center.x + radius * Math.cos(direction + halfAngle),
+					center.y + radius * Math.sin(direction + halfAngle), 0.0, 0.0, 0.0 });
+			features.add(new double[] { frame, center.x + radius * Math.cos(direction - halfAngle),
+					center.y + radius * Math.sin(direction - halfAngle), 0.0, 0.0, 0.0 });
+			features.add(new double[] { frame, center.x, center.y, radius, direction, halfAngle });
+			for (int i = 0; i < 4; ++i)
+				fixtures.add(fixture);
+		} else {
+			throw new IllegalArgumentException("Unsupported shape: " + shape.getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Takes masses, frictions and motor parameters from the robot after its
+	 * factors have changed.
+	 */
+	private void updateParameters() {
+		for (int i = 0; i < bodies.length; ++i) {
+			Mass m = bodies[i].getMass();
+			mass[i] = m.getMass();
+			inertia[i] = m.getInertia();
+			centerX[i] = m.getCenter().x;
+			centerY[i] = m.getCenter().y;
+		}
+		// dyn4j mixes the frictions of both fixtures by their geometric mean
+		for (int f = 0; f < featureFixture.length; ++f)
+			featureFriction[f] = Math.sqrt(featureFixture[f].getFriction() * BodyFixture.DEFAULT_FRICTION);
+		double[] factors = vehicle.getFactors();
+		arm1Torque = configuration.vehicle.arm1Torque * factors[DomainRandomization.ARM1_TORQUE];
+		arm2Torque = configuration.vehicle.arm2Torque * factors[DomainRandomization.ARM2_TORQUE];
+		armSpeed = configuration.vehicle.armSpeed * factors[DomainRandomization.ARM_SPEED];
+	}
+
+	/**
+	 * Computes positions, Jacobians and the velocity dependent accelerations of
+	 * the origins of all frames from {@link #q} and {@link #v}.
+	 */
+	private void updateFrames() {
+		for (int k = 0; k < FRAMES; ++k)
+			omega[k] = dot(angularJacobian[k], 0, v);
+		originX[0] = q[X];
+		originY[0] = q[Y];
+		angle[0] = q[THETA];
+		Arrays.fill(originJacobian[0], 0.0);
+		originJacobian[0][X] = 1.0;
+		originJacobian[0][DOF + Y] = 1.0;
+		attachFrame(1, 0, wheelX, wheelY, q[THETA] + q[WHEEL]);
+		attachFrame(2, 0, arm1X, arm1Y, q[THETA] - q[ARM1]);
+		attachFrame(3, 2, arm2X, arm2Y, q[THETA] - q[ARM1] - q[ARM2]);
+	}
+
+	private void attachFrame(int frame, int parent, double x, double y, double frameAngle) {
+		double cos = Math.cos(angle[parent]);
+		double sin = Math.sin(angle[parent]);
+		double dx = cos * x - sin * y;
+		double dy = sin * x + cos * y;
+		originX[frame] = originX[parent] + dx;
+		originY[frame] = originY[parent] + dy;
+		angle[frame] = frameAngle;
+		computePointJacobian(parent, dx, dy, originJacobian[frame]);
+		double omega2 = omega[parent] * omega[parent];
+		accelerationX[frame] = accelerationX[parent] - omega2 * dx;
+		accelerationY[frame] = accelerationY[parent] - omega2 * dy;
+	}
+
+	/**
+	 * Computes the Jacobian of the velocity of a point at the offset
+	 * {@code (dx, dy)} from the origin of a frame: first the x-, then the y-row.
+	 */
+	private void computePointJacobian(int frame, double dx, double dy, double[] target) {
+		double[] origin = originJacobian[frame];
+		double[] angular = angularJacobian[frame];
+		for (int j = 0; j < DOF; ++j) {
+			target[j] = origin[j] - dy * angular[j];
+			target[DOF + j] = origin[DOF + j] + dx * angular[j];
+		}
+	}
+
+	/**
+	 * Advances the robot by one step. The frames are always up to date with the
+	 * state when a step begins, see {@link #updateBodies()}.
+	 */
+	@Override
+	public void step() {
+		// mass matrix, gravity and velocity dependent forces
+		Arrays.fill(massMatrix, 0.0);
+		Arrays.fill(force, 0.0);
+		for (int i = 0; i < bodies.length; ++i) {
+			int k = BODY_FRAMES[i];
+			double cos = Math.cos(angle[k]);
+			double sin = Math.sin(angle[k]);
+			double dx = cos * centerX[i] - sin * centerY[i];
+			double dy = sin * centerX[i] + cos * centerY[i];
+			computePointJacobian(k, dx, dy, pointJacobian);
+			double omega2 = omega[k] * omega[k];
+			double fx = -mass[i] * (accelerationX[k] - omega2 * dx);
+			double fy = mass[i] * (configuration.gravity - accelerationY[k] + omega2 * dy);
+			double[] angular = angularJacobian[k];
+			for (int r = 0; r < DOF; ++r) {
+				double jx = pointJacobian[r];
+				double jy = pointJacobian[DOF + r];
+				force[r] += jx * fx + jy * fy;
+				for (int c = 0; c <= r; ++c)
+					massMatrix[r * DOF + c] += mass[i] * (jx * pointJacobian[c] + jy * pointJacobian[DOF + c])
+							+ inertia[i] * angular[r] * angular[c];
+			}
+		}
+		factorize(massMatrix);
+		solve(massMatrix, force);
+		for (int j = 0; j < DOF; ++j)
+			v[j] += dt * force[j];
+
+		buildRows();
+		solveRows();
+
+		for (int j = 0; j < DOF; ++j)
+			q[j] += dt * v[j];
+		updateBodies();
+		floor.updateFor(vehicle.getXPosition());
+	}
+
+	private void buildRows() {
+		rowCount = 0;
+		for (int f = 0; f < featureFrame.length; ++f) {
+			int k = featureFrame[f];
+			double cos = Math.cos(angle[k]);
+			double sin = Math.sin(angle[k]);
+			double dx = cos * featureX[f] - sin * featureY[f];
+			double dy = sin * featureX[f] + cos * featureY[f];
+			if (featureRadius[f] > 0.0) {
+				// the lowest point of the arc, if the arc reaches down that far
+				double down = Math.IEEEremainder(-Math.PI / 2.0 - angle[k] - featureArcDirection[f], 2.0 * Math.PI);
+				if (Math.abs(down) > featureArcHalfAngle[f])
+					continue;
+				dy -= featureRadius[f];
+			}
+			double gap = originY[k] + dy - floorTop;
+			if (gap >= SPECULATIVE_MARGIN)
+				continue;
+			computePointJacobian(k, dx, dy, pointJacobian);
+			int normal = rowCount;
+			addRow(JOINT_ROWS + 2 * f, pointJacobian, DOF, 1.0, separation(gap, Settings.DEFAULT_LINEAR_TOLERANCE),
+					0.0, Double.POSITIVE_INFINITY);
+			addRow(JOINT_ROWS + 2 * f + 1, pointJacobian, 0, 1.0, 0.0, 0.0, 0.0);
+			rowNormal[rowCount - 1] = normal;
+			rowFriction[rowCount - 1] = featureFriction[f];
+		}
+		// like dyn4j, the joints are solved after the contacts in every iteration
+		addMotorRow(ARM1_MOTOR, ARM1, arm1MotorSpeed, arm1Torque * dt);
+		addMotorRow(ARM2_MOTOR, ARM2, arm2MotorSpeed, arm2Torque * dt);
+		addMotorRow(WHEEL_MOTOR, WHEEL, 0.0, configuration.vehicle.wheelTorque * dt);
+		addLimitRows(ARM1_LOWER, ARM1, VehicleHandler.ARM1_LOWER_LIMIT, VehicleHandler.ARM1_UPPER_LIMIT);
+		addLimitRows(ARM2_LOWER, ARM2, VehicleHandler.ARM2_LOWER_LIMIT, VehicleHandler.ARM2_UPPER_LIMIT);
+	}
+
+	private void addMotorRow(int id, int coordinate, double speed, double maxImpulse) {
+		Arrays.fill(pointJacobian, 0.0);
+		pointJacobian[coordinate] = 1.0;
+		addRow(id, pointJacobian, 0, 1.0, speed, -maxImpulse, maxImpulse);
+	}
+
+	private void addLimitRows(int id, int coordinate, double lower, double upper) {
+		Arrays.fill(pointJacobian, 0.0);
+		pointJacobian[coordinate] = 1.0;
+		double value = q[coordinate];
+		double margin = Math.abs(v[coordinate]) * dt + Settings.DEFAULT_ANGULAR_TOLERANCE;
+		if (value - lower < margin)
+			addRow(id, pointJacobian, 0, 1.0, separation(value - lower, 0.0), 0.0, Double.POSITIVE_INFINITY);
+		if (upper - value < margin)
+			addRow(id + 1, pointJacobian, 0, -1.0, separation(upper - value, 0.0), 0.0, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Returns the minimum velocity of a row keeping a distance from becoming
+	 * negative: approaching is allowed up to the distance, a penetration deeper
+	 * than the slop is removed by Baumgarte stabilization.
+	 */
+	private double separation(double distance, double slop) {
+		if (distance > 0.0)
+			return -distance / dt;
+		return Settings.DEFAULT_BAUMGARTE * Math.max(-distance - slop, 0.0) / dt;
+	}
+
+	private void addRow(int id, double[] jacobian, int offset, double sign, double target, double lower,
+			double upper) {
+		int r = rowCount++;
+		int base = r * DOF;
+		for (int j = 0; j < DOF; ++j) {
+			rowJacobian[base + j] = sign * jacobian[offset + j];
+			rowResponse[base + j] = rowJacobian[base + j];
+		}
+		solve(massMatrix, rowResponse, base);
+		rowInverseMass[r] = 1.0 / dot(rowJacobian, base, rowResponse, base);
+		rowTarget[r] = target;
+		rowLower[r] = lower;
+		rowUpper[r] = upper;
+		rowNormal[r] = -1;
+		rowId[r] = id;
+	}
+
+	/**
+	 * Projected Gauss-Seidel over all rows, starting with the impulses of the
+	 * previous step.
+	 */
+	private void solveRows() {
+		for (int r = 0; r < rowCount; ++r) {
+			double impulse = clamp(r, warmImpulses[rowId[r]]);
+			rowImpulse[r] = impulse;
+			applyImpulse(r, impulse);
+		}
+		for (int i = 0; i < iterations; ++i) {
+			for (int r = 0; r < rowCount; ++r) {
+				double delta = (rowTarget[r] - dot(rowJacobian, r * DOF, v, 0)) * rowInverseMass[r];
+				double impulse = clamp(r, rowImpulse[r] + delta);
+				applyImpulse(r, impulse - rowImpulse[r]);
+				rowImpulse[r] = impulse;
+			}
+		}
+		Arrays.fill(warmImpulses, 0.0);
+		for (int r = 0; r < rowCount; ++r)
+			warmImpulses[rowId[r]] = rowImpulse[r];
+	}
+
+	private double clamp(int r, double impulse) {
+		if (rowNormal[r] >= 0) {
+			double limit = rowFriction[r] * rowImpulse[rowNormal[r]];
+			return Math.max(-limit, Math.min(limit, impulse));
+		}
+		return Math.max(rowLower[r], Math.min(rowUpper[r], impulse));
+	}
+
+	private void applyImpulse(int r, double impulse) {
+		int base = r * DOF;
+		for (int j = 0; j < DOF; ++j)
+			v[j] += rowResponse[base + j] * impulse;
+	}
+
+	/**
+	 * Moves the bodies of the robot to the current state.
+	 */
+	private void updateBodies() {
+		updateFrames();
+		for (int i = 0; i < bodies.length; ++i) {
+			int k = BODY_FRAMES[i];
+			Transform transform = bodies[i].getTransform();
+			transform.identity();
+			transform.rotate(angle[k]);
+			transform.translate(originX[k], originY[k]);
+			double cos = Math.cos(angle[k]);
+			double sin = Math.sin(angle[k]);
+			computePointJacobian(k, cos * centerX[i] - sin * centerY[i], sin * centerX[i] + cos * centerY[i],
+					pointJacobian);
+			bodies[i].setLinearVelocity(dot(pointJacobian, 0, v, 0), dot(pointJacobian, DOF, v, 0));
+			bodies[i].setAngularVelocity(omega[k]);
+		}
+	}
+
+	/**
+	 * Sets the motor speeds like {@link VehicleHandler#setArmDirection(int, int)}:
+	 * an arm is not driven further into a limit it has already reached.
+	 */
+	@Override
+	public void setArmDirection(int arm1, int arm2) {
+		arm1MotorSpeed = getMotorSpeed(arm1, q[ARM1], VehicleHandler.ARM1_LOWER_LIMIT, VehicleHandler.ARM1_UPPER_LIMIT);
+		arm2MotorSpeed = getMotorSpeed(arm2, q[ARM2], VehicleHandler.ARM2_LOWER_LIMIT, VehicleHandler.ARM2_UPPER_LIMIT);
+	}
+
+	private double getMotorSpeed(int direction, double jointAngle, double lower, double upper) {
+		if (Constants.DIRECTION_CLOCKWISE == direction && jointAngle < upper)
+			return armSpeed;
+		if (Constants.DIRECTION_COUNTERCLOCKWISE == direction && jointAngle > lower)
+			return -armSpeed;
+		return 0.0;
+	}
+
+	@Override
+	public double getXPosition() {
+		return vehicle.getXPosition();
+	}
+
+	@Override
+	public void getStateVector(double[] target, int offset) {
+		vehicle.getStateVector(target, offset);
+	}
+
+	@Override
+	public void setFactors(double[] factors) {
+		vehicle.setFactors(factors);
+		updateParameters();
+		// the centers of mass may have moved
+		updateBodies();
+	}
+
+	@Override
+	public double[] getFactors() {
+		return vehicle.getFactors();
+	}
+
+	@Override
+	public Object capture() {
+		return new State(q.clone(), v.clone(), arm1MotorSpeed, arm2MotorSpeed, vehicle.getFactors(), floor.capture());
+	}
+
+	/**
+	 * Restores the coordinates, the motors and the factors. The impulses of the
+	 * previous step are dropped.
+	 */
+	@Override
+	public void restore(Object state) {
+		State s = (State) state;
+		System.arraycopy(s.q, 0, q, 0, DOF);
+		System.arraycopy(s.v, 0, v, 0, DOF);
+		arm1MotorSpeed = s.arm1MotorSpeed;
+		arm2MotorSpeed = s.arm2MotorSpeed;
+		Arrays.fill(warmImpulses, 0.0);
+		vehicle.setFactors(s.factors);
+		updateParameters();
+		updateBodies();
+		floor.restore(s.floor);
+	}
+
+	@Override
+	public List<Body> getBodies() {
+		return world.getBodies();
+	}
+
+	/**
+	 * Cholesky decomposition of the lower triangle of a symmetric positive
+	 * definite matrix in place.
+	 */
+	private static void factorize(double[] m) {
+		for (int j = 0; j < DOF; ++j) {
+			double d = m[j * DOF + j];
+			for (int k = 0; k < j; ++k)
+				d -= m[j * DOF + k] * m[j * DOF + k];
+			d = Math.sqrt(d);
+			m[j * DOF + j] = d;
+			for (int i = j + 1; i < DOF; ++i) {
+				double s = m[i * DOF + j];
+				for (int k = 0; k < j; ++k)
+					s -= m[i * DOF + k] * m[j * DOF + k];
+				m[i * DOF + j] = s / d;
+			}
+		}
+	}
+
+	private static void solve(double[] factor, double[] b) {
+		solve(factor, b, 0);
+	}
+
+	/**
+	 * Solves {@code L L^T x = b} in place for the factor of
+	 * {@link #factorize(double[])}.
+	 */
+	private static void solve(double[] factor, double[] b, int offset) {
+		for (int i = 0; i < DOF; ++i) {
+			double s = b[offset + i];
+			for (int k = 0; k < i; ++k)
+				s -= factor[i * DOF + k] * b[offset + k];
+			b[offset + i] = s / factor[i * DOF + i];
+		}
+		for (int i = DOF - 1; i >= 0; --i) {
+			double s = b[offset + i];
+			for (int k = i + 1; k < DOF; ++k)
+				s -= factor[k * DOF + i] * b[offset + k];
+			b[offset + i] = s / factor[i * DOF + i];
+		}
+	}
+
+	private static double dot(double[] a, int offset, double[] b) {
+		return dot(a, offset, b, 0);
+	}
+
+	private static double dot(double[] a, int aOffset, double[] b, int bOffset) {
+		double sum = 0.0;
+		for (int j = 0; j < DOF; ++j)
+			sum += a[aOffset + j] * b[bOffset + j];
+		return sum;
+	}
+
+	private static final class State {
+		final double[] q;
+		final double[] v;
+		final double arm1MotorSpeed;
+		final double arm2MotorSpeed;
+		final double[] factors;
+		final double[] floor;
+
+		State(double[] q, double[] v, double arm1MotorSpeed, double arm2MotorSpeed, double[] factors,
+				double[] floor) {
+			this.q = q;
+			this.v = v;
+			this.arm1MotorSpeed = arm1MotorSpeed;
+			this.arm2MotorSpeed = arm2MotorSpeed;
+			this.factors = factors;
+			this.floor = floor;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.awt.Graphics2D;
+import java.util.List;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.geometry.Transform;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.BasicBody;
+
+/**
+ * Immutable copy of the poses of all bodies after a physics tick, published by
+ * the physics thread of the {@link SimulationCanvas} for the render thread.
+ * Bodies that change their shapes are copied as well, see
+ * {@link BasicBody#getRenderCopy()}. A
+ * frame holds the poses before and after the tick, so the renderer can
+ * interpolate between them without touching the simulation.
+ */
+public final class RenderFrame {
+
+	/**
+	 * Bodies that moved further than this (in world units) during one tick, like
+	 * recycled floor tiles, are drawn at their new position right away.
+	 */
+	private static final double MAX_INTERPOLATION_DISTANCE = 1.0;
+
+	private final BasicBody[] bodies;
+	private final double[] from;
+	private final double[] to;
+	private final double fromCameraX;
+	private final double toCameraX;
+	private final long publishedNanos;
+
+	private RenderFrame(BasicBody[] bodies, double[] from, double[] to, double fromCameraX, double toCameraX) {
+		this.bodies = bodies;
+		this.from = from;
+		this.to = to;
+		this.fromCameraX = fromCameraX;
+		this.toCameraX = toCameraX;
+		publishedNanos = System.nanoTime();
+	}
+
+	/**
+	 * Captures the current poses of the simulation. The caller has to hold the
+	 * lock of the simulation.
+	 *
+	 * @param simulation
+	 * @param last       The previously captured frame, or {@code null}. Its poses
+	 *                   are used as the starting point of the interpolation.
+	 * @return
+	 */
+	static RenderFrame capture(RobotSimulation simulation, RenderFrame last) {
+		List<Body> worldBodies = simulation.getWorldBodies();
+		BasicBody[] bodies = new BasicBody[worldBodies.size()];
+		double[] poses = new double[bodies.length * 3];
+		for (int i = 0; i < bodies.length; ++i) {
+			BasicBody body = (BasicBody) worldBodies.get(i);
+			bodies[i] = body.getRenderCopy();
+			Transform transform = body.getTransform();
+			poses[i * 3] = transform.getTranslationX();
+			poses[i * 3 + 1] = transform.getTranslationY();
+			poses[i * 3 + 2] = transform.getRotation();
+		}
+		double cameraX = simulation.getVehicleXPosition();
+		if (last == null || last.bodies.length != bodies.length)
+			return new RenderFrame(bodies, poses, poses, cameraX, cameraX);
+		return new RenderFrame(bodies, last.to, poses, last.toCameraX, cameraX);
+	}
+
+	/**
+	 * Returns the system time at which this frame has been captured.
+	 *
+	 * @return
+	 */
+	public long getPublishedNanos() {
+		return publishedNanos;
+	}
+
+	/**
+	 * Returns the x-position of the vehicle.
+	 *
+	 * @param alpha Interpolation factor between the pose before (0) and after (1)
+	 *              the tick
+	 * @return
+	 */
+	public double getCameraX(double alpha) {
+		return fromCameraX + (toCameraX - fromCameraX) * alpha;
+	}
+
+	/**
+	 * Renders all bodies at their interpolated poses.
+	 *
+	 * @param g
+	 * @param scale Scale-factor, see {@link BasicBody#render(Graphics2D, double)}
+	 * @param alpha Interpolation factor between the pose before (0) and after (1)
+	 *              the tick
+	 */
+	public void render(Graphics2D g, double scale, double alpha) {
+		for (int i = 0; i < bodies.length; ++i) {
+			int p = i * 3;
+			double dx = to[p] - from[p];
+			double dy = to[p + 1] - from[p + 1];
+			if (Math.abs(dx) > MAX_INTERPOLATION_DISTANCE || Math.abs(dy) > MAX_INTERPOLATION_DISTANCE) {
+				bodies[i].render(g, scale, to[p], to[p + 1], to[p + 2]);
+				continue;
+			}
+			// interpolate the rotation along the shorter direction
+			double dr = Math.IEEEremainder(to[p + 2] - from[p + 2], 2 * Math.PI);
+			bodies[i].render(g, scale, from[p] + dx * alpha, from[p + 1] + dy * alpha, from[p + 2] + dr * alpha);
+		}
+	}
+}
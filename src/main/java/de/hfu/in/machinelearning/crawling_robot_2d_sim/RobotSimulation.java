@@ -1,38 +1,80 @@
 package de.hfu.in.machinelearning.crawling_robot_2d_sim;
 
 import java.util.List;
+import java.util.Random;
 
-import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.Body;
 
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationCommand;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.EnvironmentMetrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.MeteredSimulationHandler;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Constants;
-import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.FloorHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
 
 /**
  * Manages the robot simulation. This class does not depend on any kind of
  * rendering-code and can be used for both headless and visualized simulation
  * alike.
+ * 
+ * <p>
+ * The world is advanced in fixed steps of
+ * {@code 1 / }{@link SimulationConfiguration#stepFrequency} seconds. Time that
+ * does not fill a whole step is carried over to the next update, so identical
+ * sequences of commands and durations always produce identical states, no
+ * matter how the time was split between the updates.
+ *
+ * <p>
+ * The physics are computed by the {@link SimulationBackend} selected by
+ * {@link SimulationConfiguration#backend}.
  */
 public class RobotSimulation {
 
-	private final World world;
-	private final FloorHandler floor;
-	private final VehicleHandler vehicle;
+	private final SimulationBackend backend;
+	private final long stepNanos;
+	private final SimulationSnapshot initialState;
+	private final SimulationConfiguration configuration;
+
+	private final EnvironmentMetrics metrics = new EnvironmentMetrics();
+
+	/** Generator of the randomization factors, {@code null} if disabled. */
+	private final Random randomizer;
+	private final double[] factors = new double[DomainRandomization.FACTOR_COUNT];
+
+	private long accumulatedNanos;
 
 	public RobotSimulation() {
-		world = new World();
-		floor = new FloorHandler(world, -5.0);
-		vehicle = new VehicleHandler(world);
+		this(SimulationConfiguration.fromSettings());
+	}
+
+	/**
+	 * Creates a simulation with the given parameters.
+	 * 
+	 * @param configuration
+	 */
+	public RobotSimulation(SimulationConfiguration configuration) {
+		this.configuration = configuration;
+		randomizer = configuration.randomization.isEnabled() ? configuration.randomization.createRandom() : null;
+		stepNanos = configuration.getStepNanos();
+		backend = configuration.backend.create(configuration);
+		initialState = capture();
+		// start from a reset state, so the first episode equals all later ones
+		reset();
+	}
+
+	public SimulationConfiguration getConfiguration() {
+		return configuration;
 	}
 
 	/**
 	 * Returns a list of bodies in the world. May be used for rendering purposes.
 	 * 
-	 * @return The bodies currently in the {@code World}-Object}
+	 * @return The bodies of the floor and the robot, see
+	 *         {@link SimulationBackend#getBodies()}
 	 */
-	public List<org.dyn4j.dynamics.Body> getWorldBodies() {
-		return world.getBodies();
+	public List<Body> getWorldBodies() {
+		return backend.getBodies();
 	}
 
 	/**
@@ -42,7 +84,7 @@ public class RobotSimulation {
 	 * @return
 	 */
 	public double getVehicleXPosition() {
-		return vehicle.getXPosition();
+		return backend.getXPosition();
 	}
 
 	/**
@@ -52,26 +94,117 @@ public class RobotSimulation {
 	 * @return
 	 */
 	public double[] getVehicleStateVector() {
-		return vehicle.getStateVector();
+		double[] state = new double[VehicleHandler.STATE_VECTOR_SIZE];
+		backend.getStateVector(state, 0);
+		return state;
+	}
+
+	/**
+	 * Returns the factors the robot's parameters are currently multiplied by. For
+	 * further details see {@link DomainRandomization#sample(Random, double[])}.
+	 * 
+	 * @return
+	 */
+	public synchronized double[] getVehicleFactors() {
+		return backend.getFactors();
 	}
 
 	/**
-	 * Advances the Simulation by the given amount of nanoseconds.
+	 * Replaces the factors the robot's parameters are multiplied by, e.g. with
+	 * the ones of a recorded episode right after a reset. The next reset draws
+	 * new factors as usual.
+	 * 
+	 * @param factors Factors as described in
+	 *                {@link DomainRandomization#sample(Random, double[])}
+	 */
+	public synchronized void setVehicleFactors(double[] factors) {
+		backend.setFactors(factors);
+	}
+
+	/**
+	 * Writes the current state-vector of the vehicle into the given buffer. For
+	 * further details see {@link VehicleHandler#getStateVector(double[], int)}.
+	 * 
+	 * @param target
+	 * @param offset
+	 */
+	public void getVehicleStateVector(double[] target, int offset) {
+		backend.getStateVector(target, offset);
+	}
+
+	/**
+	 * Advances the Simulation by the given amount of nanoseconds. The world is
+	 * advanced by as many whole steps as fit into the given time plus the time
+	 * left over by previous updates.
 	 * 
 	 * @param elapsedNanoSeconds
+	 * @throws IllegalArgumentException if the time is negative
 	 */
-	public void update(long elapsedNanoSeconds) {
-		update((double) elapsedNanoSeconds / 1.0e9);
+	public synchronized void update(long elapsedNanoSeconds) {
+		if (elapsedNanoSeconds < 0)
+			throw new IllegalArgumentException("Negative duration: " + elapsedNanoSeconds + " ns");
+		accumulatedNanos += elapsedNanoSeconds;
+		long steps = accumulatedNanos / stepNanos;
+		accumulatedNanos -= steps * stepNanos;
+
+		long start = System.nanoTime();
+		for (long i = 0; i < steps; ++i) {
+			backend.step();
+			long end = System.nanoTime();
+			metrics.getStep().record(end - start);
+			start = end;
+		}
 	}
 
 	/**
 	 * Advances the Simulation by the given amount of seconds.
 	 * 
 	 * @param seconds
+	 * @throws IllegalArgumentException if the time is negative
 	 */
-	public synchronized void update(double seconds) {
-		world.update(seconds, Integer.MAX_VALUE);
-		floor.updateFor(vehicle.getXPosition());
+	public void update(double seconds) {
+		update(Math.round(seconds * 1.0e9));
+	}
+
+	/**
+	 * Returns the length of a single simulation step in nanoseconds.
+	 * 
+	 * @return
+	 */
+	public long getStepNanos() {
+		return stepNanos;
+	}
+
+	/**
+	 * Returns the number of steps the world has been advanced by since this
+	 * simulation was created.
+	 * 
+	 * @return
+	 */
+	public long getStepCount() {
+		return metrics.getSteps();
+	}
+
+	/**
+	 * Returns how many steps per second of wall-clock time the world has been
+	 * advanced by on average. Only the time spent in the backend is counted.
+	 * 
+	 * @return
+	 */
+	public double getStepsPerSecond() {
+		long stepNanos = metrics.getStep().getTotalNanos();
+		return stepNanos > 0 ? getStepCount() * 1.0e9 / stepNanos : 0.0;
+	}
+
+	/**
+	 * Returns the latencies measured in this simulation. The simulation records
+	 * its steps, the {@link SimulationHandler}s are metered by the
+	 * {@link MeteredSimulationHandler}.
+	 * 
+	 * @return
+	 */
+	public EnvironmentMetrics getMetrics() {
+		return metrics;
 	}
 
 	/**
@@ -95,21 +228,47 @@ public class RobotSimulation {
 	 * @param arm2
 	 */
 	public synchronized void applyCommand(int arm1, int arm2) {
-		vehicle.setArmDirection(arm1, arm2);
+		backend.setArmDirection(arm1, arm2);
 	}
 
 	/**
-	 * Resets the simulation. All bodies will be removed from the world, floor and
-	 * robot will be re-initialized with new bodies and added to the world again.
-	 * This guarantees that the robot is in the exact same state after each call of
-	 * this method.
+	 * Captures the current state of the simulation, i.e. the state of the
+	 * backend (see {@link SimulationBackend#capture()}) and the time carried over
+	 * to the next update.
+	 * 
+	 * @return
+	 */
+	public synchronized SimulationSnapshot capture() {
+		return new SimulationSnapshot(backend.capture(), accumulatedNanos);
+	}
+
+	/**
+	 * Restores a state previously returned by {@link #capture()}. The backend
+	 * drops everything its solver accumulated, so the simulation continues
+	 * exactly as it would after any other restore of the same snapshot.
+	 * 
+	 * @param snapshot
+	 */
+	public synchronized void restore(SimulationSnapshot snapshot) {
+		backend.restore(snapshot.backendState);
+		accumulatedNanos = snapshot.accumulatedNanos;
+	}
+
+	/**
+	 * Resets the simulation by restoring the state captured right after its
+	 * construction. No bodies are created or removed, this guarantees that the
+	 * robot is in the exact same state after each call of this method.
+	 * 
+	 * <p>
+	 * If {@link SimulationConfiguration#randomization} is enabled, new factors
+	 * are drawn and applied to the robot afterwards. They only depend on the seed
+	 * and the number of resets so far.
 	 */
 	public synchronized void reset() {
-		world.removeAllBodies();
-		world.removeAllJoints();
-		floor.reset();
-		floor.initialize();
-		vehicle.initialize();
-		System.gc();
+		restore(initialState);
+		if (randomizer != null) {
+			configuration.randomization.sample(randomizer, factors);
+			backend.setFactors(factors);
+		}
 	}
 }
@@ -0,0 +1,155 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.dyn4j.dynamics.Body;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Physics of a {@link RobotSimulation}: the floor and the robot, advanced in
+ * fixed steps of {@link SimulationConfiguration#getStepNanos()}. The
+ * simulation takes care of the time, the metrics and the randomization, a
+ * backend only moves the robot.
+ */
+public interface SimulationBackend {
+
+	/**
+	 * Available backends, selected by the setting {@code simulation.backend}.
+	 */
+	public enum Type {
+		/** A dyn4j {@link org.dyn4j.dynamics.World}, see {@link Dyn4jBackend}. */
+		DYN4J(true),
+		/**
+		 * The robot in reduced coordinates, see {@link ReducedCoordinateBackend}.
+		 * Not selectable by {@code simulation.backend}, because the crawling gait
+		 * leaves the tolerances of the
+		 * {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.BackendValidation}.
+		 * It is only created directly by the validation and the benchmarks.
+		 */
+		REDUCED(false);
+
+		private final boolean selectable;
+
+		private Type(boolean selectable) {
+			this.selectable = selectable;
+		}
+
+		/**
+		 * Returns whether the backend can be selected by {@link #forName(String)}.
+		 * Only backends that reproduce the gaits of the
+		 * {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.BackendValidation}
+		 * within its tolerances are selectable.
+		 *
+		 * @return
+		 */
+		public boolean isSelectable() {
+			return selectable;
+		}
+
+		/**
+		 * Returns the selectable type with the given name, ignoring the case.
+		 *
+		 * @param name
+		 * @return
+		 * @throws IllegalArgumentException if there is no such type or it is not
+		 *                                  selectable
+		 */
+		public static Type forName(String name) {
+			Type type;
+			try {
+				type = valueOf(name.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown simulation backend: " + name);
+			}
+			if (!type.selectable)
+				throw new IllegalArgumentException(
+						"Simulation backend " + name + " is not selectable, it fails the backend validation");
+			return type;
+		}
+
+		/**
+		 * Creates a backend of this type.
+		 *
+		 * @param configuration
+		 * @return
+		 */
+		public SimulationBackend create(SimulationConfiguration configuration) {
+			if (this == REDUCED)
+				return new ReducedCoordinateBackend(configuration);
+			return new Dyn4jBackend(configuration);
+		}
+	}
+
+	/**
+	 * Advances the robot by one step.
+	 */
+	void step();
+
+	/**
+	 * Sets the arm directions, see
+	 * {@link RobotSimulation#applyCommand(int, int)}.
+	 *
+	 * @param arm1
+	 * @param arm2
+	 */
+	void setArmDirection(int arm1, int arm2);
+
+	/**
+	 * Returns the x-position of the center of the robot's body.
+	 *
+	 * @return
+	 */
+	double getXPosition();
+
+	/**
+	 * Writes the state-vector described in {@link VehicleHandler#getStateVector()}
+	 * into the given buffer.
+	 *
+	 * @param target
+	 * @param offset
+	 */
+	void getStateVector(double[] target, int offset);
+
+	/**
+	 * Varies the physical parameters of the robot, see
+	 * {@link VehicleHandler#setFactors(double[])}.
+	 *
+	 * @param factors
+	 */
+	void setFactors(double[] factors);
+
+	/**
+	 * Returns a copy of the factors set by {@link #setFactors(double[])}, see
+	 * {@link DomainRandomization}.
+	 *
+	 * @return
+	 */
+	double[] getFactors();
+
+	/**
+	 * Captures the current state. The returned object can only be passed to
+	 * {@link #restore(Object)} of the same backend.
+	 *
+	 * @return
+	 */
+	Object capture();
+
+	/**
+	 * Restores a state previously returned by {@link #capture()}. Nothing the
+	 * solver accumulated over previous steps survives the restore, so the
+	 * backend continues exactly as after any other restore of the same state.
+	 *
+	 * @param state
+	 */
+	void restore(Object state);
+
+	/**
+	 * Returns the bodies of the floor and the robot for rendering.
+	 *
+	 * @return
+	 */
+	List<Body> getBodies();
+}
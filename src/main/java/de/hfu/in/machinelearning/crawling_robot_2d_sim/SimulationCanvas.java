@@ -8,26 +8,62 @@ import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferStrategy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationCommand;
-import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.BasicBody;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Constants;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
 
 /**
- * Canvas that handles the visualization of the robot simulation in 2D.
+ * Canvas that handles the visualization of the robot simulation in 2D. The
+ * simulation is advanced by a physics thread in fixed ticks of one simulation
+ * step. After every tick the poses of all bodies are published as a
+ * {@link RenderFrame}. A separate render thread draws the latest frame and
+ * interpolates between the poses before and after the tick, so slow frames
+ * never delay the physics.
  */
 public class SimulationCanvas extends Canvas {
 	private static final long serialVersionUID = 7102467556911209990L;
-	private final Thread simulationLoop;
+	/**
+	 * Maximum number of ticks the physics thread runs in a row to catch up after
+	 * it fell behind. Any time beyond that is dropped.
+	 */
+	private static final int MAX_CATCH_UP_TICKS = 10;
+
+	/**
+	 * Number of steps the physics thread simulates under one lock while running
+	 * as fast as possible.
+	 */
+	private static final int ASAP_CHUNK_TICKS = 32;
+
+	/**
+	 * Time scale at which the physics runs as fast as possible while there are
+	 * commands to execute.
+	 */
+	public static final double AS_FAST_AS_POSSIBLE = 0.0;
+
+	/**
+	 * Minimum wall-clock time between two published frames. Ticks in between are
+	 * simulated but not drawn.
+	 */
+	private static final long FRAME_NANOS = 1000000000L / 60;
+
+	private final Thread physicsLoop;
+	private final Thread renderLoop;
 	private final double scaleFactor = 32.0;
 	private final RobotSimulation simulation;
 	private final boolean checkeredBackground;
 
-	private long nanoClock;
-	private int dir1 = Constants.DIRECTION_NONE;
-	private int dir2 = Constants.DIRECTION_NONE;
+	private volatile RenderFrame frame;
+	private volatile long frameIntervalNanos;
+	private volatile double timeScale;
+	private volatile int dir1 = Constants.DIRECTION_NONE;
+	private volatile int dir2 = Constants.DIRECTION_NONE;
 
+	private final BlockingQueue<SimulationCommand> commandQueue;
 	private SimulationCommand currentCommand;
 
 	private static final Color backgroundColor = Color.white;
@@ -38,39 +74,155 @@ public class SimulationCanvas extends Canvas {
 	public SimulationCanvas(RobotSimulation simulation) {
 		super();
 		this.simulation = simulation;
-		simulationLoop = new SimulationThread();
+		physicsLoop = new PhysicsThread();
+		renderLoop = new RenderThread();
 		checkeredBackground = Settings.getInteger("canvas.checkeredBackground", 1) != 0;
+		commandQueue = new ArrayBlockingQueue<>(Settings.getInteger("canvas.commandQueueSize", 16));
+		timeScale = Settings.getDouble("canvas.timeScale", 1.0);
+		frameIntervalNanos = simulation.getStepNanos();
+		synchronized (simulation) {
+			frame = RenderFrame.capture(simulation, null);
+		}
 		setFocusable(false);
 	}
 
 	public void dispose() {
-		simulationLoop.interrupt();
+		physicsLoop.interrupt();
+		renderLoop.interrupt();
 		try {
-			simulationLoop.join(10000);
+			physicsLoop.join(10000);
+			renderLoop.join(10000);
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Starts the simulation loop thread that periodically draws the current state
-	 * of the simulation.
+	 * Starts the physics thread that advances the simulation and the render
+	 * thread that periodically draws its current state.
 	 */
 	public void start() {
-		nanoClock = System.nanoTime();
-		simulationLoop.start();
+		physicsLoop.start();
+		renderLoop.start();
+	}
+
+	/**
+	 * Sets the speed of the simulation relative to wall-clock time, e.g. 2.0 runs
+	 * twice as fast as real time. With {@link #AS_FAST_AS_POSSIBLE} (or any other
+	 * value not greater than zero) the simulation only advances while there are
+	 * queued commands, which are executed without any delay, exactly like in
+	 * headless mode. Only about 60 frames per second are drawn then. Every
+	 * command is still handed from the calling thread to the physics thread and
+	 * back, which costs some throughput compared to headless mode, especially
+	 * for short commands and on few cores.
+	 * 
+	 * @param timeScale
+	 */
+	public void setTimeScale(double timeScale) {
+		this.timeScale = timeScale;
+	}
+
+	public double getTimeScale() {
+		return timeScale;
 	}
 
-	private void loop() {
+	/**
+	 * Runs the physics at a fixed rate of one tick per simulation step, scaled by
+	 * the time scale.
+	 */
+	private void physicsLoop() {
+		long stepNanos = simulation.getStepNanos();
+		long tickNanos = stepNanos;
+		long nextTick = System.nanoTime();
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				double scale = timeScale;
+				if (scale <= 0.0) {
+					frameIntervalNanos = FRAME_NANOS;
+					runCommands(stepNanos);
+					tickNanos = 0;
+					continue;
+				}
+				long newTickNanos = Math.max(1L, Math.round(stepNanos / scale));
+				if (newTickNanos != tickNanos) {
+					// start over with the new rate, never catch up on the old one
+					tickNanos = newTickNanos;
+					nextTick = System.nanoTime();
+					frameIntervalNanos = Math.max(tickNanos, FRAME_NANOS);
+				}
+				int ticks = 0;
+				while (System.nanoTime() - nextTick >= 0 && ticks < MAX_CATCH_UP_TICKS) {
+					synchronized (simulation) {
+						updateWorld(stepNanos, true);
+						publishFrame(tickNanos);
+					}
+					nextTick += tickNanos;
+					++ticks;
+				}
+				if (ticks == MAX_CATCH_UP_TICKS)
+					nextTick = System.nanoTime();
+				else
+					LockSupport.parkNanos(nextTick - System.nanoTime());
+			}
+		} catch (InterruptedException e) {
+		}
+	}
+
+	/**
+	 * Executes queued commands as fast as possible. Waits up to one frame for a
+	 * command if there is none. The commands are advanced in chunks of
+	 * {@link #ASAP_CHUNK_TICKS} steps, each under a single lock with at most one
+	 * published frame, and further queued commands are taken within the chunk,
+	 * so neither the lock, the queue nor the frame copy is touched per step.
+	 * 
+	 * @param stepNanos
+	 * @throws InterruptedException
+	 */
+	private void runCommands(long stepNanos) throws InterruptedException {
+		if (currentCommand == null) {
+			SimulationCommand command = commandQueue.poll(FRAME_NANOS, TimeUnit.NANOSECONDS);
+			if (command == null)
+				return;
+			synchronized (simulation) {
+				startCommand(command);
+			}
+		}
+		// release the lock after every chunk for RPC callers and new frames
+		synchronized (simulation) {
+			updateWorld(ASAP_CHUNK_TICKS * stepNanos, false);
+			publishFrame(0);
+		}
+	}
+
+	/**
+	 * Publishes the current poses for the renderer, unless the last frame is too
+	 * recent to be shown anyway.
+	 * 
+	 * @param tickNanos Wall-clock time of one tick
+	 */
+	private void publishFrame(long tickNanos) {
+		long now = System.nanoTime();
+		if (now - frame.getPublishedNanos() >= FRAME_NANOS - tickNanos / 2)
+			frame = RenderFrame.capture(simulation, frame);
+	}
+
+	private void renderLoop() {
 		// obtain buffer strategy and graphics
 		BufferStrategy buf = getBufferStrategy();
+		if (buf == null) // not initialized (yet)
+			return;
 		Graphics2D g = (Graphics2D) buf.getDrawGraphics();
 
 		int w = getWidth();
 		int h = getHeight();
 
+		// interpolate between the last two physics ticks
+		RenderFrame currentFrame = frame;
+		double alpha = (System.nanoTime() - currentFrame.getPublishedNanos()) / (double) frameIntervalNanos;
+		alpha = Math.max(0.0, Math.min(1.0, alpha));
+
 		// determine the vehicle position
-		double posX = (simulation.getVehicleXPosition() * scaleFactor);
+		double posX = (currentFrame.getCameraX(alpha) * scaleFactor);
 
 		// clear the screen
 		g.setColor(backgroundColor);
@@ -83,12 +235,8 @@ public class SimulationCanvas extends Canvas {
 		// move origin to center
 		g.transform(AffineTransform.getTranslateInstance(((double) w / 2) - posX, -h / 2));
 
-		synchronized (simulation) {
-			// advance the simulation
-			updateWorld();
-			// render all bodies
-			renderWorld(g);
-		}
+		// render all bodies
+		renderWorld(g, currentFrame, alpha);
 
 		// dispose graphics
 		g.dispose();
@@ -96,9 +244,6 @@ public class SimulationCanvas extends Canvas {
 		// flip buffers
 		if (!buf.contentsLost())
 			buf.show();
-
-		if (currentCommand == null)
-			simulation.applyCommand(dir1, dir2);
 	}
 
 	private void drawBackground(Graphics2D g, int w, int h, int posX) {
@@ -115,34 +260,24 @@ public class SimulationCanvas extends Canvas {
 		g2d.dispose();
 	}
 
-	private void renderWorld(Graphics2D g) {
+	private void renderWorld(Graphics2D g, RenderFrame currentFrame, double alpha) {
 		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-		for (org.dyn4j.dynamics.Body body : simulation.getWorldBodies())
-			render(g, (BasicBody) body);
+		currentFrame.render(g, scaleFactor, alpha);
 	}
 
-	private void render(Graphics2D g, BasicBody body) {
-		body.render(g, scaleFactor);
-	}
-
-	private long updateNanoClock() {
-		long now = System.nanoTime();
-		long elapsed = now - nanoClock;
-		nanoClock = now;
-		// System.out.println("FPS = " + (1000 / (elapsed / 1e6)));
-		return elapsed;
-	}
-
-	private void updateWorld() {
-		long timeElapsed = updateNanoClock();
-
-		// if a command task is active it needs to be updated (and maybe finalized)
-		// first
-		if (currentCommand != null) {
-			// if a command is active the thread must be synchronized to ensure the command
-			// is not being started before it has been fully applied to the simulation
+	/**
+	 * Advances the simulation, executing queued commands first.
+	 * 
+	 * @param timeElapsed Simulation time to advance
+	 * @param idle        Whether to advance the remaining time without a command
+	 *                    under manual control
+	 */
+	private void updateWorld(long timeElapsed, boolean idle) {
+		// work through the queued commands that fit into the elapsed time, every
+		// command starts exactly at the simulation time its predecessor finished
+		while (timeElapsed > 0 && nextCommand()) {
 			long taskTimeLeft = currentCommand.getTimeLeft();
 			if (taskTimeLeft <= timeElapsed) { // the simulation task is finished with this iteration
 				// update the world for the exact task time
@@ -153,42 +288,92 @@ public class SimulationCanvas extends Canvas {
 				currentCommand.finish(simulation.getVehicleStateVector());
 				// the command is completed at this point, delete the reference
 				currentCommand = null;
-				// the remaining time will still be progressed outside of the if-block
 				timeElapsed = timeElapsed - taskTimeLeft;
-			} else
+			} else {
 				currentCommand.update(timeElapsed);
+				simulation.update(timeElapsed);
+				timeElapsed = 0;
+			}
+		}
+		if (currentCommand == null) {
+			// nothing queued, the arms stop until the next command arrives
+			simulation.applyCommand(dir1, dir2);
+			if (idle)
+				simulation.update(timeElapsed);
 		}
-		// advance the world
-		simulation.update(timeElapsed);
 	}
 
 	/**
-	 * Allows the execution of commands in real time. If there is already a command
-	 * in progress this method will throw an {@link IllegalStateException}.
+	 * Makes sure there is a current command, taking the next one from the queue
+	 * if necessary.
 	 * 
-	 * @param command The command to be executed
-	 * @throws IllegalStateException
+	 * @return {@code false} if there is no command to execute
 	 */
-	public void setCommand(SimulationCommand command) {
+	private boolean nextCommand() {
 		if (currentCommand != null)
-			throw new IllegalStateException("There is already a command being executed!");
-		synchronized (simulation) {
-			currentCommand = command;
-			simulation.applyCommand(command);
+			return true;
+		SimulationCommand command = commandQueue.poll();
+		if (command == null)
+			return false;
+		startCommand(command);
+		return true;
+	}
+
+	private void startCommand(SimulationCommand command) {
+		if (command.isResetFirst()) {
+			simulation.reset();
+			if (command.getFactors() != null)
+				simulation.setVehicleFactors(command.getFactors());
+		}
+		currentCommand = command;
+		simulation.applyCommand(command);
+	}
+
+	/**
+	 * Queues a command for execution in real time. Commands are executed in the
+	 * order they have been queued, without any pause between them. If the queue
+	 * (of size {@code canvas.commandQueueSize}) is full, this method blocks until
+	 * there is space.
+	 * 
+	 * @param command The command to be executed
+	 * @throws InterruptedException if interrupted while waiting for space
+	 */
+	public void queueCommand(SimulationCommand command) throws InterruptedException {
+		commandQueue.put(command);
+	}
+
+	private final class PhysicsThread extends Thread {
+		PhysicsThread() {
+			super("Physics");
+		}
+
+		@Override
+		public void run() {
+			SimulationCanvas.this.physicsLoop();
+			System.err.println("Physics loop exited.");
 		}
 	}
 
-	private final class SimulationThread extends Thread {
+	private final class RenderThread extends Thread {
+		RenderThread() {
+			super("Render");
+		}
+
 		@Override
 		public void run() {
 			try {
 				while (!isInterrupted()) {
-					SimulationCanvas.this.loop();
-					Thread.sleep(5);
+					SimulationCanvas.this.renderLoop();
+					// as fast as possible, frames are only published at the frame rate, so
+					// drawing more often would just take CPU time from the physics
+					if (timeScale <= 0.0)
+						TimeUnit.NANOSECONDS.sleep(FRAME_NANOS);
+					else
+						Thread.sleep(5);
 				}
 			} catch (InterruptedException e) {
 			}
-			System.err.println("Simulation loop exited.");
+			System.err.println("Render loop exited.");
 		}
 	}
 
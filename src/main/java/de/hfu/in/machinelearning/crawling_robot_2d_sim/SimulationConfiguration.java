@@ -0,0 +1,184 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.TerrainConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+
+/**
+ * Immutable parameters of a {@link RobotSimulation}: the backend computing the
+ * physics (see {@link SimulationBackend.Type}), the world and its solver
+ * settings (see {@link PhysicsProfile}), the floor and its terrain (see
+ * {@link TerrainConfiguration}), the robot (see {@link VehicleConfiguration})
+ * and its variation at every reset (see {@link DomainRandomization}). All
+ * values are parsed once when the configuration is created, nothing is looked
+ * up in the {@link Settings} while the simulation runs or is reset.
+ *
+ * <p>
+ * Every environment of a pool can be configured separately: settings with the
+ * prefix {@code env.<id>.}, e.g. {@code env.2.robot.armSpeed}, take precedence
+ * over the plain ones for the environment with that id, see
+ * {@link #forEnvironment(int)}. Unless an environment has a seed of its own,
+ * it uses {@code randomization.seed + id}, so all environments of a pool vary
+ * differently.
+ */
+public final class SimulationConfiguration {
+
+	/** Solver settings, see {@link PhysicsProfile#apply(org.dyn4j.dynamics.World)}. */
+	public final PhysicsProfile physics;
+	/** Backend computing the physics, selected by {@code simulation.backend}. */
+	public final SimulationBackend.Type backend;
+	/** Number of simulation steps per simulated second. */
+	public final double stepFrequency;
+	/** Vertical acceleration of all bodies, negative values point downwards. */
+	public final double gravity;
+	/** Vertical position of the center of the floor tiles. */
+	public final double floorY;
+	public final double tileWidth;
+	/** Height of the floor tiles, and thickness of the terrain. */
+	public final double tileHeight;
+	public final TerrainConfiguration terrain;
+	public final VehicleConfiguration vehicle;
+	public final DomainRandomization randomization;
+
+	public SimulationConfiguration(PhysicsProfile physics, SimulationBackend.Type backend, double stepFrequency,
+			double gravity, double floorY, double tileWidth, double tileHeight, TerrainConfiguration terrain,
+			VehicleConfiguration vehicle, DomainRandomization randomization) {
+		this.physics = physics;
+		this.backend = backend;
+		this.stepFrequency = stepFrequency;
+		this.gravity = gravity;
+		this.floorY = floorY;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.terrain = terrain;
+		this.vehicle = vehicle;
+		this.randomization = randomization;
+	}
+
+	/**
+	 * Reads all parameters from a source, using the defaults of the simulation
+	 * for missing values, {@link PhysicsProfile#ACCURATE} and the dyn4j backend.
+	 *
+	 * @param source
+	 * @return
+	 */
+	public static SimulationConfiguration read(VehicleConfiguration.Source source) {
+		return read(source, PhysicsProfile.ACCURATE, SimulationBackend.Type.DYN4J);
+	}
+
+	/**
+	 * Reads all parameters from a source, using the defaults of the simulation
+	 * and the step frequency of the profile for missing values.
+	 *
+	 * @param source
+	 * @param physics
+	 * @param backend
+	 * @return
+	 */
+	public static SimulationConfiguration read(VehicleConfiguration.Source source, PhysicsProfile physics,
+			SimulationBackend.Type backend) {
+		return new SimulationConfiguration(physics, backend, source.get("simulation.stepFrequency", physics.stepFrequency),
+				source.get("world.gravity", -9.8), source.get("floor.y", -5.0), source.get("floor.tileWidth", 20.0),
+				source.get("floor.tileHeight", 0.4), TerrainConfiguration.read(source),
+				VehicleConfiguration.read(source), DomainRandomization.read(source));
+	}
+
+	/**
+	 * Reads all parameters from the {@link Settings}, the physics profile from
+	 * {@code physics.profile} and the backend from {@code simulation.backend}.
+	 *
+	 * @return
+	 */
+	public static SimulationConfiguration fromSettings() {
+		return read(new SettingsSource(""), PhysicsProfile.forName(Settings.getString("physics.profile", "accurate")),
+				SimulationBackend.Type.forName(Settings.getString("simulation.backend", "dyn4j")));
+	}
+
+	/**
+	 * Reads the parameters of one environment from the {@link Settings}. Settings
+	 * prefixed with {@code env.<envId>.} override the plain ones.
+	 *
+	 * @param envId
+	 * @return
+	 */
+	public static SimulationConfiguration forEnvironment(int envId) {
+		String prefix = "env." + envId + ".";
+		PhysicsProfile physics = PhysicsProfile.forName(
+				Settings.getString(prefix + "physics.profile", Settings.getString("physics.profile", "accurate")));
+		SimulationBackend.Type backend = SimulationBackend.Type.forName(
+				Settings.getString(prefix + "simulation.backend", Settings.getString("simulation.backend", "dyn4j")));
+		SimulationConfiguration configuration = read(new SettingsSource(prefix), physics, backend);
+		if (Settings.getString(prefix + "randomization.seed") != null)
+			return configuration;
+		return new SimulationConfiguration(physics, backend, configuration.stepFrequency, configuration.gravity,
+				configuration.floorY, configuration.tileWidth, configuration.tileHeight, configuration.terrain,
+				configuration.vehicle, configuration.randomization.withSeed(configuration.randomization.seed + envId));
+	}
+
+	/**
+	 * Returns a copy of this configuration with another robot.
+	 *
+	 * @param vehicle
+	 * @return
+	 */
+	public SimulationConfiguration withVehicle(VehicleConfiguration vehicle) {
+		return new SimulationConfiguration(physics, backend, stepFrequency, gravity, floorY, tileWidth, tileHeight,
+				terrain, vehicle, randomization);
+	}
+
+	/**
+	 * Returns a copy of this configuration with another physics profile and its
+	 * step frequency.
+	 *
+	 * @param physics
+	 * @return
+	 */
+	public SimulationConfiguration withPhysics(PhysicsProfile physics) {
+		return new SimulationConfiguration(physics, backend, physics.stepFrequency, gravity, floorY, tileWidth,
+				tileHeight, terrain, vehicle, randomization);
+	}
+
+	/**
+	 * Returns a copy of this configuration with another backend.
+	 *
+	 * @param backend
+	 * @return
+	 */
+	public SimulationConfiguration withBackend(SimulationBackend.Type backend) {
+		return new SimulationConfiguration(physics, backend, stepFrequency, gravity, floorY, tileWidth, tileHeight,
+				terrain, vehicle, randomization);
+	}
+
+	/**
+	 * Returns the length of a single simulation step in whole nanoseconds, so
+	 * the time of the simulation is counted without rounding errors.
+	 *
+	 * @return
+	 */
+	public long getStepNanos() {
+		return Math.round(1.0e9 / stepFrequency);
+	}
+
+	/**
+	 * Reads the {@link Settings}, a setting with the prefix takes precedence over
+	 * the plain one.
+	 */
+	private static final class SettingsSource implements VehicleConfiguration.Source {
+		private final String prefix;
+
+		SettingsSource(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public double get(String key, double defaultValue) {
+			return Settings.getDouble(prefix + key, Settings.getDouble(key, defaultValue));
+		}
+
+		@Override
+		public long getLong(String key, long defaultValue) {
+			return Settings.getLong(prefix + key, Settings.getLong(key, defaultValue));
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+/**
+ * Immutable copy of the state of a {@link RobotSimulation} as returned by
+ * {@link RobotSimulation#capture()}. A snapshot can only be restored in the
+ * simulation it has been captured from.
+ */
+public final class SimulationSnapshot {
+
+	/** State of the {@link SimulationBackend}, see {@link SimulationBackend#capture()}. */
+	final Object backendState;
+	final long accumulatedNanos;
+
+	SimulationSnapshot(Object backendState, long accumulatedNanos) {
+		this.backendState = backendState;
+		this.accumulatedNanos = accumulatedNanos;
+	}
+}
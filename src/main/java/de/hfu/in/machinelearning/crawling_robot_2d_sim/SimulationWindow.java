@@ -34,6 +34,7 @@ public class SimulationWindow extends JFrame implements ActionListener {
 
 		addWindowListener(new ShutdownListener());
 		addKeyListener(new DebugKeyListener());
+		addKeyListener(new TimeScaleKeyListener());
 
 		JMenuBar menubar = new JMenuBar();
 		JMenu fileMenu = new JMenu(Texts.get("SimulationWindow.fileMenu"));
@@ -59,6 +60,7 @@ public class SimulationWindow extends JFrame implements ActionListener {
 		setLayout(new BorderLayout());
 		canvas = new SimulationCanvas(simulation);
 		add(canvas, BorderLayout.CENTER);
+		updateTitle();
 
 		setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
 		setSize(Settings.getInteger("window.width", 500), Settings.getInteger("window.height", 500));
@@ -77,6 +79,58 @@ public class SimulationWindow extends JFrame implements ActionListener {
 		}
 	}
 
+	/**
+	 * Changes the time scale of the simulation and shows it in the title.
+	 * 
+	 * @param timeScale See {@link SimulationCanvas#setTimeScale(double)}
+	 */
+	public void setTimeScale(double timeScale) {
+		canvas.setTimeScale(timeScale);
+		updateTitle();
+	}
+
+	private void updateTitle() {
+		double timeScale = canvas.getTimeScale();
+		if (timeScale == 1.0)
+			setTitle(Texts.get("SimulationWindow.title"));
+		else if (timeScale > 0.0)
+			setTitle(String.format(Texts.get("SimulationWindow.titleTimeScale"), timeScale));
+		else
+			setTitle(Texts.get("SimulationWindow.titleFast"));
+	}
+
+	/**
+	 * Controls the time scale: + and - double and halve it, F toggles the
+	 * as-fast-as-possible mode and 1 returns to real time.
+	 */
+	private final class TimeScaleKeyListener extends KeyAdapter {
+
+		@Override
+		public void keyPressed(KeyEvent e) {
+			double timeScale = canvas.getTimeScale();
+			switch (e.getKeyCode()) {
+			case KeyEvent.VK_PLUS:
+			case KeyEvent.VK_ADD:
+			case KeyEvent.VK_EQUALS:
+				if (timeScale > 0.0)
+					setTimeScale(Math.min(timeScale * 2.0, 64.0));
+				break;
+			case KeyEvent.VK_MINUS:
+			case KeyEvent.VK_SUBTRACT:
+				if (timeScale > 0.0)
+					setTimeScale(Math.max(timeScale / 2.0, 1.0 / 64.0));
+				break;
+			case KeyEvent.VK_F:
+				setTimeScale(timeScale > 0.0 ? SimulationCanvas.AS_FAST_AS_POSSIBLE : 1.0);
+				break;
+			case KeyEvent.VK_1:
+			case KeyEvent.VK_NUMPAD1:
+				setTimeScale(1.0);
+				break;
+			}
+		}
+	}
+
 	private final class ShutdownListener extends WindowAdapter {
 
 		@Override
@@ -0,0 +1,66 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded store for {@link SimulationSnapshot}s that are referenced by integer
+ * handles. If the store is full, the least recently used snapshot is evicted
+ * when a new one is added. Handles are never reused.
+ */
+public final class SnapshotStore {
+
+	private final Map<Integer, SimulationSnapshot> snapshots;
+	private int nextHandle;
+
+	public SnapshotStore(final int capacity) {
+		snapshots = new LinkedHashMap<Integer, SimulationSnapshot>(16, 0.75f, true) {
+			private static final long serialVersionUID = 3870962513298715417L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, SimulationSnapshot> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Adds a snapshot to the store.
+	 *
+	 * @param snapshot
+	 * @return The handle of the snapshot
+	 */
+	public synchronized int put(SimulationSnapshot snapshot) {
+		int handle = nextHandle++;
+		snapshots.put(handle, snapshot);
+		return handle;
+	}
+
+	/**
+	 * Returns the snapshot with the given handle.
+	 *
+	 * @param handle
+	 * @return
+	 * @throws IllegalArgumentException if the handle is unknown or has been
+	 *                                  evicted
+	 */
+	public synchronized SimulationSnapshot get(int handle) {
+		SimulationSnapshot snapshot = snapshots.get(handle);
+		if (snapshot == null)
+			throw new IllegalArgumentException("Unknown or evicted state handle: " + handle);
+		return snapshot;
+	}
+
+	/**
+	 * Removes the snapshot with the given handle, if present.
+	 *
+	 * @param handle
+	 */
+	public synchronized void remove(int handle) {
+		snapshots.remove(handle);
+	}
+
+	public synchronized int size() {
+		return snapshots.size();
+	}
+}
@@ -0,0 +1,307 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.OffscreenRenderer;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationSnapshot;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SnapshotStore;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.EnvironmentMetrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.MeteredSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.Metrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.recording.RecordingSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.recording.TrajectoryRecorder;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+
+/**
+ * Holds a fixed number of independent simulation environments. Every
+ * environment consists of its own {@link RobotSimulation} and the
+ * {@link SimulationHandler} that executes commands on it. Environments are
+ * addressed by their id, which is the index in the pool starting at zero.
+ * Every environment has its own {@link SnapshotStore} holding at most
+ * {@code environment.savedStates} saved states. All handlers are metered, see
+ * {@link #getMetrics()}.
+ */
+public final class EnvironmentPool {
+
+	private final RobotSimulation[] simulations;
+	private final SimulationHandler[] handlers;
+	private final SnapshotStore[] savedStates;
+	private final ForkJoinPool executor;
+	private final int[] attachedClients;
+	private final OffscreenRenderer[] renderers;
+	private final Metrics metrics;
+
+	public EnvironmentPool(RobotSimulation[] simulations, SimulationHandler[] handlers) {
+		if (simulations.length != handlers.length)
+			throw new IllegalArgumentException("Every simulation needs exactly one handler!");
+		this.simulations = simulations;
+		this.handlers = handlers;
+		EnvironmentMetrics[] environmentMetrics = new EnvironmentMetrics[handlers.length];
+		for (int i = 0; i < handlers.length; ++i) {
+			environmentMetrics[i] = simulations[i].getMetrics();
+			handlers[i] = new MeteredSimulationHandler(handlers[i], environmentMetrics[i]);
+		}
+		metrics = new Metrics(environmentMetrics);
+		savedStates = new SnapshotStore[handlers.length];
+		int capacity = Settings.getInteger("environment.savedStates", 1024);
+		for (int i = 0; i < savedStates.length; ++i)
+			savedStates[i] = new SnapshotStore(capacity);
+		executor = new ForkJoinPool(Math.min(handlers.length, Runtime.getRuntime().availableProcessors()));
+		attachedClients = new int[handlers.length];
+		renderers = new OffscreenRenderer[handlers.length];
+	}
+
+	/**
+	 * Creates a pool of {@code size} headless environments, each configured by
+	 * {@link SimulationConfiguration#forEnvironment(int)}.
+	 *
+	 * @param size Number of environments
+	 * @return
+	 */
+	public static EnvironmentPool createHeadless(int size) {
+		RobotSimulation[] simulations = new RobotSimulation[size];
+		SimulationHandler[] handlers = new SimulationHandler[size];
+		for (int i = 0; i < size; ++i) {
+			simulations[i] = new RobotSimulation(SimulationConfiguration.forEnvironment(i));
+			handlers[i] = new HeadlessSimulationHandler(simulations[i]);
+		}
+		return new EnvironmentPool(simulations, handlers);
+	}
+
+	/**
+	 * Returns the number of environments in this pool.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return handlers.length;
+	}
+
+	/**
+	 * Returns the handler of the environment with the given id.
+	 *
+	 * @param envId
+	 * @return
+	 * @throws IllegalArgumentException if there is no environment with this id
+	 */
+	public SimulationHandler getHandler(int envId) {
+		checkId(envId);
+		return handlers[envId];
+	}
+
+	/**
+	 * Returns the simulation of the environment with the given id.
+	 *
+	 * @param envId
+	 * @return
+	 * @throws IllegalArgumentException if there is no environment with this id
+	 */
+	public RobotSimulation getSimulation(int envId) {
+		checkId(envId);
+		return simulations[envId];
+	}
+
+	/**
+	 * Returns the metrics of all environments of this pool and of the transports
+	 * serving them.
+	 *
+	 * @return
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Records all commands executed in the environments of this pool, see
+	 * {@link TrajectoryRecorder}. Has to be called before any command is
+	 * executed.
+	 *
+	 * @param directory Directory for the recorded episodes
+	 * @throws IOException if the directory could not be created
+	 */
+	public void enableRecording(File directory) throws IOException {
+		for (int i = 0; i < handlers.length; ++i)
+			if (!(handlers[i] instanceof RecordingSimulationHandler))
+				handlers[i] = new RecordingSimulationHandler(handlers[i],
+						new TrajectoryRecorder(directory, i, simulations[i].getStepNanos()));
+	}
+
+	/**
+	 * Writes all pending records of the current episodes, if recording is
+	 * enabled.
+	 */
+	public void closeRecordings() {
+		for (SimulationHandler handler : handlers) {
+			if (handler instanceof RecordingSimulationHandler) {
+				try {
+					((RecordingSimulationHandler) handler).getRecorder().close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the renderer for pixel observations of the environment with the
+	 * given id. Renderers are created on first use, see
+	 * {@link OffscreenRenderer#fromSettings()}.
+	 *
+	 * @param envId
+	 * @return
+	 */
+	public synchronized OffscreenRenderer getRenderer(int envId) {
+		checkId(envId);
+		if (renderers[envId] == null)
+			renderers[envId] = OffscreenRenderer.fromSettings();
+		return renderers[envId];
+	}
+
+	/**
+	 * Renders the current state of an environment.
+	 *
+	 * @param envId
+	 * @return The frame as described in {@link OffscreenRenderer}
+	 */
+	public byte[] observe(int envId) {
+		OffscreenRenderer renderer = getRenderer(envId);
+		byte[] pixels = new byte[renderer.getFrameSize()];
+		renderer.render(simulations[envId], pixels, 0);
+		return pixels;
+	}
+
+	/**
+	 * Assigns an environment to a new client. The environment with the fewest
+	 * attached clients is chosen, so as long as there are at least as many
+	 * environments as clients every client gets an environment of its own.
+	 *
+	 * @return The id of the assigned environment
+	 */
+	public synchronized int attach() {
+		int envId = 0;
+		for (int i = 1; i < attachedClients.length; ++i)
+			if (attachedClients[i] < attachedClients[envId])
+				envId = i;
+		++attachedClients[envId];
+		return envId;
+	}
+
+	/**
+	 * Releases an environment assigned by {@link #attach()}.
+	 *
+	 * @param envId
+	 */
+	public synchronized void detach(int envId) {
+		checkId(envId);
+		if (attachedClients[envId] > 0)
+			--attachedClients[envId];
+	}
+
+	/**
+	 * Saves the current state of an environment. The environment itself is not
+	 * changed and continues as if the state had not been saved.
+	 *
+	 * @param envId
+	 * @return The handle to pass to {@link #restoreState(int, int)}
+	 */
+	public int saveState(int envId) {
+		SimulationSnapshot snapshot = getSimulation(envId).capture();
+		return savedStates[envId].put(snapshot);
+	}
+
+	/**
+	 * Rewinds an environment to a state saved by {@link #saveState(int)}. The
+	 * saved state stays available and can be restored any number of times.
+	 *
+	 * @param envId
+	 * @param handle
+	 * @throws IllegalArgumentException if the handle is unknown or the state has
+	 *                                  been evicted
+	 */
+	public void restoreState(int envId, int handle) {
+		getSimulation(envId).restore(savedStates[envId].get(handle));
+	}
+
+	/**
+	 * Discards a saved state, its handle becomes invalid.
+	 *
+	 * @param envId
+	 * @param handle
+	 */
+	public void releaseState(int envId, int handle) {
+		checkId(envId);
+		savedStates[envId].remove(handle);
+	}
+
+	/**
+	 * Executes one command in each of the first {@code durations.length}
+	 * environments in parallel, i.e. environment {@code i} executes the command
+	 * given by {@code durations[i]}, {@code arm1Directions[i]} and
+	 * {@code arm2Directions[i]}. Returns once all environments have finished.
+	 *
+	 * @param durations       Durations of the commands in milliseconds
+	 * @param arm1Directions  Directions of the first arms
+	 * @param arm2Directions  Directions of the second arms
+	 * @return The state-vectors of all environments, concatenated in the order of
+	 *         the environment ids.
+	 * @throws IllegalArgumentException if the arrays differ in length or there are
+	 *                                  more commands than environments
+	 */
+	public double[] executeBatch(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		int count = durations.length;
+		if (arm1Directions.length != count || arm2Directions.length != count)
+			throw new IllegalArgumentException("All command arrays need to have the same length!");
+		if (count > handlers.length)
+			throw new IllegalArgumentException(
+					"Batch of " + count + " commands exceeds the pool size " + handlers.length);
+		double[] states = new double[count * VehicleHandler.STATE_VECTOR_SIZE];
+		if (count > 0)
+			executor.invoke(new BatchStep(durations, arm1Directions, arm2Directions, states, 0, count));
+		return states;
+	}
+
+	private void checkId(int envId) {
+		if (envId < 0 || envId >= handlers.length)
+			throw new IllegalArgumentException("Unknown environment id: " + envId);
+	}
+
+	/**
+	 * Splits a batch in halves until every task executes a single environment.
+	 */
+	private final class BatchStep extends RecursiveAction {
+		private static final long serialVersionUID = -2730539911874185313L;
+		private final int[] durations;
+		private final int[] arm1Directions;
+		private final int[] arm2Directions;
+		private final double[] states;
+		private final int from;
+		private final int to;
+
+		BatchStep(int[] durations, int[] arm1Directions, int[] arm2Directions, double[] states, int from, int to) {
+			this.durations = durations;
+			this.arm1Directions = arm1Directions;
+			this.arm2Directions = arm2Directions;
+			this.states = states;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				handlers[from].execute(durations[from], arm1Directions[from], arm2Directions[from], states,
+						from * VehicleHandler.STATE_VECTOR_SIZE);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BatchStep(durations, arm1Directions, arm2Directions, states, from, mid),
+						new BatchStep(durations, arm1Directions, arm2Directions, states, mid, to));
+			}
+		}
+	}
+}
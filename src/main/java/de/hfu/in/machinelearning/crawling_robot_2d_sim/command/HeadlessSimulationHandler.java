@@ -2,11 +2,18 @@ package de.hfu.in.machinelearning.crawling_robot_2d_sim.command;
 
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.Constants;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
 
 /**
  * Implementation for headless simulation. Any calls to
  * {@link HeadlessSimulationHandler#execute(int, int, int)} update the world
  * immediately and return without delay.
+ *
+ * <p>
+ * Every command, sequence and episode holds the lock of the simulation from
+ * start to end, so clients sharing a pooled environment never interleave: a
+ * command never runs during the duration of another one and always returns
+ * its own state-vector.
  */
 public class HeadlessSimulationHandler implements SimulationHandler {
 
@@ -18,10 +25,51 @@ public class HeadlessSimulationHandler implements SimulationHandler {
 
 	@Override
 	public double[] execute(int duration, int arm1Direction, int arm2Direction) {
-		simulation.applyCommand(arm1Direction, arm2Direction);
-		simulation.update((double) duration / 1.0e3);
-		simulation.applyCommand(Constants.DIRECTION_NONE, Constants.DIRECTION_NONE);
-		return simulation.getVehicleStateVector();
+		double[] state = new double[VehicleHandler.STATE_VECTOR_SIZE];
+		execute(duration, arm1Direction, arm2Direction, state, 0);
+		return state;
+	}
+
+	@Override
+	public void execute(int duration, int arm1Direction, int arm2Direction, double[] target, int offset) {
+		synchronized (simulation) {
+			simulation.applyCommand(arm1Direction, arm2Direction);
+			try {
+				simulation.update(duration * 1000000L);
+			} finally {
+				simulation.applyCommand(Constants.DIRECTION_NONE, Constants.DIRECTION_NONE);
+			}
+			simulation.getVehicleStateVector(target, offset);
+		}
+	}
+
+	@Override
+	public double[] executeSequence(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		synchronized (simulation) {
+			return SimulationHandler.super.executeSequence(durations, arm1Directions, arm2Directions);
+		}
+	}
+
+	@Override
+	public double[] executeEpisode(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		synchronized (simulation) {
+			simulation.reset();
+			return executeSequence(durations, arm1Directions, arm2Directions);
+		}
+	}
+
+	@Override
+	public double[] executeEpisode(double[] factors, int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		synchronized (simulation) {
+			simulation.reset();
+			simulation.setVehicleFactors(factors);
+			return executeSequence(durations, arm1Directions, arm2Directions);
+		}
+	}
+
+	@Override
+	public double[] getVehicleFactors() {
+		return simulation.getVehicleFactors();
 	}
 
 	@Override
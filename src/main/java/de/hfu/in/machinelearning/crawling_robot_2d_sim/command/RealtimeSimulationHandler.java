@@ -1,39 +1,128 @@
 package de.hfu.in.machinelearning.crawling_robot_2d_sim.command;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationCanvas;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
 
 /**
- * Implementation for the real-time (visualized) simulation. Calls of the
- * {@link #execute(int, int, int)}-Method are redirected to the simulation
- * canvas and will wait until the command has finished. If the thread gets
- * interrupted while waiting {@code null} is returned.
+ * Implementation for the real-time (visualized) simulation. Commands are
+ * queued at the simulation canvas, which executes them back to back. Calls of
+ * the {@link #execute(int, int, int)}-Method wait until their command has
+ * finished, so several callers (or {@link #executeSequence(int[], int[], int[])})
+ * can keep the queue filled. If the thread gets interrupted while waiting
+ * {@code null} is returned.
  */
 public class RealtimeSimulationHandler implements SimulationHandler {
 
 	private final SimulationCanvas canvas;
 	private final RobotSimulation simulation;
-	private double[] result;
 
 	public RealtimeSimulationHandler(RobotSimulation simulation, SimulationCanvas canvas) {
 		this.canvas = canvas;
 		this.simulation = simulation;
 	}
 
-	public synchronized double[] execute(int duration, int arm1Direction, int arm2Direction) {
-		canvas.setCommand(new SimulationCommand(duration, arm1Direction, arm2Direction, state -> {
-			result = state;
-			synchronized (RealtimeSimulationHandler.this) {
-				RealtimeSimulationHandler.this.notify();
-			}
-		}));
+	/**
+	 * Queues a command without waiting for it.
+	 *
+	 * @param duration      Duration for how long the command has to be applied
+	 * @param arm1Direction Direction of the first arm
+	 * @param arm2Direction Direction of the second arm
+	 * @return Future that is completed with the state-vector once the command
+	 *         has finished
+	 * @throws InterruptedException if interrupted while waiting for space in the
+	 *                              queue
+	 */
+	public CompletableFuture<double[]> submit(int duration, int arm1Direction, int arm2Direction)
+			throws InterruptedException {
+		return submit(duration, arm1Direction, arm2Direction, false, null);
+	}
+
+	private CompletableFuture<double[]> submit(int duration, int arm1Direction, int arm2Direction,
+			boolean resetFirst, double[] factors) throws InterruptedException {
+		CompletableFuture<double[]> future = new CompletableFuture<>();
+		canvas.queueCommand(new SimulationCommand(duration, arm1Direction, arm2Direction, future::complete,
+				resetFirst, factors));
+		return future;
+	}
+
+	@Override
+	public double[] execute(int duration, int arm1Direction, int arm2Direction) {
+		try {
+			return submit(duration, arm1Direction, arm2Direction).get();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			return null;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Queues all commands of the sequence before waiting for the first result, so
+	 * the commands are executed without any idle frame between them.
+	 */
+	@Override
+	public double[] executeSequence(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		return executeSequence(durations, arm1Directions, arm2Directions, false, null);
+	}
+
+	/**
+	 * The reset is executed by the canvas right before the first command, so no
+	 * idle time is simulated in between.
+	 */
+	@Override
+	public double[] executeEpisode(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		if (durations.length == 0) {
+			reset();
+			return new double[0];
+		}
+		return executeSequence(durations, arm1Directions, arm2Directions, true, null);
+	}
+
+	/**
+	 * The reset and the factors are applied by the canvas right before the first
+	 * command.
+	 */
+	@Override
+	public double[] executeEpisode(double[] factors, int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		if (durations.length == 0) {
+			reset();
+			simulation.setVehicleFactors(factors);
+			return new double[0];
+		}
+		return executeSequence(durations, arm1Directions, arm2Directions, true, factors);
+	}
+
+	@Override
+	public double[] getVehicleFactors() {
+		return simulation.getVehicleFactors();
+	}
+
+	private double[] executeSequence(int[] durations, int[] arm1Directions, int[] arm2Directions,
+			boolean resetFirst, double[] factors) {
+		int count = durations.length;
+		List<CompletableFuture<double[]>> futures = new ArrayList<>(count);
+		double[] trajectory = new double[count * VehicleHandler.STATE_VECTOR_SIZE];
 		try {
-			wait();
+			for (int i = 0; i < count; ++i)
+				futures.add(submit(durations[i], arm1Directions[i], arm2Directions[i], resetFirst && i == 0,
+						factors));
+			for (int i = 0; i < count; ++i)
+				System.arraycopy(futures.get(i).get(), 0, trajectory, i * VehicleHandler.STATE_VECTOR_SIZE,
+						VehicleHandler.STATE_VECTOR_SIZE);
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 			return null;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
 		}
-		return result;
+		return trajectory;
 	}
 
 	@Override
@@ -12,14 +12,38 @@ public final class SimulationCommand {
 	private final int arm1Direction;
 	private final int arm2Direction;
 	private final Consumer<double[]> callbackFunction;
+	private final boolean resetFirst;
+	private final double[] factors;
 
 	private long timePassed;
 
 	public SimulationCommand(int durationMillis, int arm1, int arm2, Consumer<double[]> callback) {
-		durationNanos = durationMillis * 1000 * 1000;
+		this(durationMillis, arm1, arm2, callback, false);
+	}
+
+	/**
+	 * @param resetFirst Whether the simulation has to be reset right before this
+	 *                   command starts, without any simulated time in between
+	 */
+	public SimulationCommand(int durationMillis, int arm1, int arm2, Consumer<double[]> callback,
+			boolean resetFirst) {
+		this(durationMillis, arm1, arm2, callback, resetFirst, null);
+	}
+
+	/**
+	 * @param resetFirst Whether the simulation has to be reset right before this
+	 *                   command starts, without any simulated time in between
+	 * @param factors    Factors of the robot's parameters applied after the
+	 *                   reset, {@code null} to keep the ones drawn by the reset
+	 */
+	public SimulationCommand(int durationMillis, int arm1, int arm2, Consumer<double[]> callback,
+			boolean resetFirst, double[] factors) {
+		durationNanos = durationMillis * 1000000L;
 		arm1Direction = arm1;
 		arm2Direction = arm2;
 		callbackFunction = callback;
+		this.resetFirst = resetFirst;
+		this.factors = factors;
 		timePassed = 0;
 	}
 
@@ -46,6 +70,20 @@ public final class SimulationCommand {
 		callbackFunction.accept(stateVector);
 	}
 
+	public boolean isResetFirst() {
+		return resetFirst;
+	}
+
+	/**
+	 * Returns the factors to apply after the reset, {@code null} if there are
+	 * none.
+	 * 
+	 * @return
+	 */
+	public double[] getFactors() {
+		return factors;
+	}
+
 	public int getArm1Direction() {
 		return arm1Direction;
 	}
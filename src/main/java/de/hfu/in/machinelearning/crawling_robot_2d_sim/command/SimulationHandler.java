@@ -1,5 +1,8 @@
 package de.hfu.in.machinelearning.crawling_robot_2d_sim.command;
 
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
 public interface SimulationHandler {
 	/**
 	 * Has to apply the given arm-directions for {@code duration} milliseconds and
@@ -14,6 +17,81 @@ public interface SimulationHandler {
 	 */
 	public double[] execute(int duration, int arm1Direction, int arm2Direction);
 
+	/**
+	 * Same as {@link #execute(int, int, int)}, but writes the state-vector into
+	 * the given buffer. Implementations should not allocate any memory in this
+	 * method.
+	 * 
+	 * @param duration      Duration for how long the command has to be applied
+	 * @param arm1Direction Direction of the first arm
+	 * @param arm2Direction Direction of the second arm
+	 * @param target        Buffer for the state-vector
+	 * @param offset        Index of the first component in the buffer
+	 */
+	public default void execute(int duration, int arm1Direction, int arm2Direction, double[] target, int offset) {
+		double[] state = execute(duration, arm1Direction, arm2Direction);
+		System.arraycopy(state, 0, target, offset, state.length);
+	}
+
+	/**
+	 * Executes the given commands back to back, as if
+	 * {@link #execute(int, int, int)} had been called for every element of the
+	 * arrays in order.
+	 * 
+	 * @param durations      Durations of the commands in milliseconds
+	 * @param arm1Directions Directions of the first arm
+	 * @param arm2Directions Directions of the second arm
+	 * @return The state-vectors after each of the commands, concatenated in the
+	 *         order of execution.
+	 * @throws IllegalArgumentException if the arrays differ in length
+	 */
+	public default double[] executeSequence(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		int count = durations.length;
+		if (arm1Directions.length != count || arm2Directions.length != count)
+			throw new IllegalArgumentException("All command arrays need to have the same length!");
+		double[] trajectory = new double[count * VehicleHandler.STATE_VECTOR_SIZE];
+		for (int i = 0; i < count; ++i)
+			execute(durations[i], arm1Directions[i], arm2Directions[i], trajectory, i * VehicleHandler.STATE_VECTOR_SIZE);
+		return trajectory;
+	}
+
+	/**
+	 * Resets the simulation and executes the given commands right after it, see
+	 * {@link #executeSequence(int[], int[], int[])}. Implementations that keep
+	 * simulating while idle have to make sure no time passes between the reset
+	 * and the first command, so the episode is reproducible.
+	 * 
+	 * @param durations      Durations of the commands in milliseconds
+	 * @param arm1Directions Directions of the first arm
+	 * @param arm2Directions Directions of the second arm
+	 * @return The state-vectors after each of the commands
+	 */
+	public default double[] executeEpisode(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		reset();
+		return executeSequence(durations, arm1Directions, arm2Directions);
+	}
+
+	/**
+	 * Same as {@link #executeEpisode(int[], int[], int[])}, but the robot's
+	 * parameters are multiplied by the given factors instead of the ones drawn by
+	 * the reset, so a recorded episode can be reproduced.
+	 * 
+	 * @param factors        See {@link RobotSimulation#setVehicleFactors(double[])}
+	 * @param durations      Durations of the commands in milliseconds
+	 * @param arm1Directions Directions of the first arm
+	 * @param arm2Directions Directions of the second arm
+	 * @return The state-vectors after each of the commands
+	 */
+	public double[] executeEpisode(double[] factors, int[] durations, int[] arm1Directions, int[] arm2Directions);
+
+	/**
+	 * Returns the factors the robot's parameters are multiplied by in the
+	 * current episode, see {@link RobotSimulation#getVehicleFactors()}.
+	 * 
+	 * @return
+	 */
+	public double[] getVehicleFactors();
+
 	/**
 	 * Has to reset the simulation. After every call of this method the simulation
 	 * has to be in the exact same state.
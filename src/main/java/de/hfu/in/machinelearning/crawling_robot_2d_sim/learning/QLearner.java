@@ -0,0 +1,127 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.learning;
+
+import java.util.Random;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Tabular Q-learning on a simulation of its own, without any RPC in between.
+ * Actions are all combinations of the directions of both arms (nine in
+ * total), every action is executed for {@link QLearningParameters#actionDuration}
+ * milliseconds. The reward of an action is the distance traveled while it was
+ * executed. Every episode starts with a reset and lasts
+ * {@link QLearningParameters#episodeSteps} actions.
+ *
+ * <p>
+ * All random decisions are drawn from a generator seeded by the constructor,
+ * so a learner with the same seed and parameters always learns the same.
+ */
+public final class QLearner implements Runnable {
+
+	/**
+	 * Number of actions, the directions of the arms are {@code action / 3 - 1}
+	 * and {@code action % 3 - 1}.
+	 */
+	public static final int ACTION_COUNT = 9;
+
+	private final QLearningParameters parameters;
+	private final RobotSimulation simulation;
+	private final HeadlessSimulationHandler handler;
+	private final StateDiscretizer discretizer;
+	private final Random random;
+	private final double[] q;
+	private final double[] returns;
+	private final double[] epsilons;
+	private long elapsedNanos;
+
+	public QLearner(QLearningParameters parameters, long seed) {
+		this.parameters = parameters;
+		simulation = new RobotSimulation();
+		handler = new HeadlessSimulationHandler(simulation);
+		discretizer = new StateDiscretizer(parameters.arm1Bins, parameters.arm2Bins);
+		random = new Random(seed);
+		q = new double[discretizer.getStateCount() * ACTION_COUNT];
+		returns = new double[parameters.episodes];
+		epsilons = new double[parameters.episodes];
+	}
+
+	/**
+	 * Runs all episodes.
+	 */
+	@Override
+	public void run() {
+		long start = System.nanoTime();
+		double[] state = new double[VehicleHandler.STATE_VECTOR_SIZE];
+		double epsilon = parameters.epsilon;
+		for (int episode = 0; episode < parameters.episodes; ++episode) {
+			handler.reset();
+			simulation.getVehicleStateVector(state, 0);
+			int s = discretizer.discretize(state, 0);
+			double distance = state[0];
+			double episodeReturn = 0.0;
+			for (int step = 0; step < parameters.episodeSteps; ++step) {
+				int action = selectAction(s, epsilon);
+				handler.execute(parameters.actionDuration, action / 3 - 1, action % 3 - 1, state, 0);
+				double reward = state[0] - distance;
+				distance = state[0];
+				int next = discretizer.discretize(state, 0);
+				int index = s * ACTION_COUNT + action;
+				q[index] += parameters.alpha * (reward + parameters.gamma * maxValue(next) - q[index]);
+				episodeReturn += reward;
+				s = next;
+			}
+			returns[episode] = episodeReturn;
+			epsilons[episode] = epsilon;
+			epsilon = Math.max(parameters.minEpsilon, epsilon * parameters.epsilonDecay);
+		}
+		elapsedNanos = System.nanoTime() - start;
+	}
+
+	private int selectAction(int s, double epsilon) {
+		if (random.nextDouble() < epsilon)
+			return random.nextInt(ACTION_COUNT);
+		int offset = s * ACTION_COUNT;
+		int best = 0;
+		for (int a = 1; a < ACTION_COUNT; ++a)
+			if (q[offset + a] > q[offset + best])
+				best = a;
+		return best;
+	}
+
+	private double maxValue(int s) {
+		int offset = s * ACTION_COUNT;
+		double max = q[offset];
+		for (int a = 1; a < ACTION_COUNT; ++a)
+			max = Math.max(max, q[offset + a]);
+		return max;
+	}
+
+	/**
+	 * Returns the distance traveled in each episode.
+	 *
+	 * @return
+	 */
+	public double[] getReturns() {
+		return returns;
+	}
+
+	/**
+	 * Returns the exploration probability used in each episode.
+	 *
+	 * @return
+	 */
+	public double[] getEpsilons() {
+		return epsilons;
+	}
+
+	/**
+	 * Returns the wall-clock time {@link #run()} took.
+	 *
+	 * @return
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+}
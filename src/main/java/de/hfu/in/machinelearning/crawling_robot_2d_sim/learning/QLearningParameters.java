@@ -0,0 +1,62 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.learning;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+
+/**
+ * Immutable parameters of a {@link QLearner}.
+ */
+public final class QLearningParameters {
+
+	/** Number of episodes per learner. */
+	public final int episodes;
+	/** Number of commands per episode. */
+	public final int episodeSteps;
+	/** Duration of every command in milliseconds. */
+	public final int actionDuration;
+	/** Number of bins of the first joint, see {@link StateDiscretizer}. */
+	public final int arm1Bins;
+	/** Number of bins of the second joint, see {@link StateDiscretizer}. */
+	public final int arm2Bins;
+	/** Learning rate. */
+	public final double alpha;
+	/** Discount factor. */
+	public final double gamma;
+	/** Probability of a random action in the first episode. */
+	public final double epsilon;
+	/** Factor applied to the exploration probability after each episode. */
+	public final double epsilonDecay;
+	/** Lower bound of the exploration probability. */
+	public final double minEpsilon;
+
+	public QLearningParameters(int episodes, int episodeSteps, int actionDuration, int arm1Bins, int arm2Bins,
+			double alpha, double gamma, double epsilon, double epsilonDecay, double minEpsilon) {
+		this.episodes = episodes;
+		this.episodeSteps = episodeSteps;
+		this.actionDuration = actionDuration;
+		this.arm1Bins = arm1Bins;
+		this.arm2Bins = arm2Bins;
+		this.alpha = alpha;
+		this.gamma = gamma;
+		this.epsilon = epsilon;
+		this.epsilonDecay = epsilonDecay;
+		this.minEpsilon = minEpsilon;
+	}
+
+	/**
+	 * Reads the parameters from the settings {@code learning.episodes},
+	 * {@code learning.episodeSteps}, {@code learning.actionDuration},
+	 * {@code learning.arm1Bins}, {@code learning.arm2Bins}, {@code learning.alpha},
+	 * {@code learning.gamma}, {@code learning.epsilon},
+	 * {@code learning.epsilonDecay} and {@code learning.minEpsilon}.
+	 *
+	 * @return
+	 */
+	public static QLearningParameters fromSettings() {
+		return new QLearningParameters(Settings.getInteger("learning.episodes", 200),
+				Settings.getInteger("learning.episodeSteps", 100), Settings.getInteger("learning.actionDuration", 200),
+				Settings.getInteger("learning.arm1Bins", 6), Settings.getInteger("learning.arm2Bins", 10),
+				Settings.getDouble("learning.alpha", 0.2), Settings.getDouble("learning.gamma", 0.9),
+				Settings.getDouble("learning.epsilon", 0.5), Settings.getDouble("learning.epsilonDecay", 0.98),
+				Settings.getDouble("learning.minEpsilon", 0.02));
+	}
+}
@@ -0,0 +1,125 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.learning;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
+
+/**
+ * Trains independent {@link QLearner}s in parallel, one per thread at a time,
+ * and writes their learning curves as CSV files into a directory:
+ * {@code learner-NNN.csv} with the columns {@code episode}, {@code epsilon}
+ * and {@code return} for every learner, and {@code curve.csv} with the mean,
+ * minimum and maximum return of all learners per episode. Learner {@code i} is
+ * seeded with {@code seed + i}.
+ */
+public final class QLearningRunner {
+
+	private final QLearningParameters parameters;
+	private final int learnerCount;
+	private final int threads;
+	private final long seed;
+
+	/**
+	 * @param parameters   Parameters of all learners
+	 * @param learnerCount Number of learners
+	 * @param threads      Number of learners trained at the same time
+	 * @param seed         Seed of the first learner
+	 */
+	public QLearningRunner(QLearningParameters parameters, int learnerCount, int threads, long seed) {
+		if (parameters.episodes < 1 || learnerCount < 1)
+			throw new IllegalArgumentException("At least one learner and one episode are required!");
+		this.parameters = parameters;
+		this.learnerCount = learnerCount;
+		this.threads = Math.max(1, Math.min(threads, learnerCount));
+		this.seed = seed;
+	}
+
+	/**
+	 * Trains all learners, writes the learning curves and prints a summary.
+	 *
+	 * @param directory Directory for the CSV files, created if necessary
+	 * @throws IOException          if the directory or a file could not be
+	 *                              written
+	 * @throws InterruptedException if interrupted while waiting for the
+	 *                              learners, the learners are stopped and no
+	 *                              file is written then
+	 */
+	public void run(File directory) throws IOException, InterruptedException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Couldn't create directory " + directory);
+		System.out.println(String.format(Texts.get("Learning.start"), learnerCount, threads, parameters.episodes,
+				parameters.episodeSteps));
+
+		long start = System.nanoTime();
+		List<QLearner> learners = new ArrayList<>();
+		List<Future<?>> results = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < learnerCount; ++i) {
+				QLearner learner = new QLearner(parameters, seed + i);
+				learners.add(learner);
+				results.add(executor.submit(learner));
+			}
+			for (Future<?> result : results)
+				result.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - start) / 1.0e9;
+
+		for (int i = 0; i < learners.size(); ++i)
+			writeLearner(new File(directory, String.format("learner-%03d.csv", i)), learners.get(i));
+		double[] mean = writeCurve(new File(directory, "curve.csv"), learners);
+
+		long commands = (long) learnerCount * parameters.episodes * parameters.episodeSteps;
+		double simulatedSeconds = commands * parameters.actionDuration / 1000.0;
+		System.out.println(String.format(Texts.get("Learning.summary"), mean[0], mean[mean.length - 1], commands,
+				seconds, commands / seconds, simulatedSeconds / seconds, directory));
+	}
+
+	private void writeLearner(File file, QLearner learner) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("episode,epsilon,return");
+			double[] returns = learner.getReturns();
+			double[] epsilons = learner.getEpsilons();
+			for (int episode = 0; episode < returns.length; ++episode)
+				out.println(episode + "," + epsilons[episode] + "," + returns[episode]);
+		}
+	}
+
+	/**
+	 * Writes mean, minimum and maximum return per episode.
+	 *
+	 * @return The mean returns
+	 */
+	private double[] writeCurve(File file, List<QLearner> learners) throws IOException {
+		double[] mean = new double[parameters.episodes];
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("episode,mean,min,max");
+			for (int episode = 0; episode < parameters.episodes; ++episode) {
+				double sum = 0.0;
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (QLearner learner : learners) {
+					double value = learner.getReturns()[episode];
+					sum += value;
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+				mean[episode] = sum / learners.size();
+				out.println(episode + "," + mean[episode] + "," + min + "," + max);
+			}
+		}
+		return mean;
+	}
+}
@@ -0,0 +1,53 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.learning;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Maps the joint angles of a state-vector (see
+ * {@link VehicleHandler#getStateVector()}) to the index of a discrete state.
+ * The range of each joint between its limits is divided into equally sized
+ * bins, angles outside of the limits are assigned to the first or last bin.
+ */
+public final class StateDiscretizer {
+
+	private final int arm1Bins;
+	private final int arm2Bins;
+
+	/**
+	 * @param arm1Bins Number of bins for the angle between body and first arm
+	 * @param arm2Bins Number of bins for the angle between both arms
+	 */
+	public StateDiscretizer(int arm1Bins, int arm2Bins) {
+		if (arm1Bins < 1 || arm2Bins < 1)
+			throw new IllegalArgumentException("Every joint needs at least one bin!");
+		this.arm1Bins = arm1Bins;
+		this.arm2Bins = arm2Bins;
+	}
+
+	/**
+	 * Returns the number of discrete states.
+	 *
+	 * @return
+	 */
+	public int getStateCount() {
+		return arm1Bins * arm2Bins;
+	}
+
+	/**
+	 * Returns the discrete state of a state-vector.
+	 *
+	 * @param state  Buffer containing the state-vector
+	 * @param offset Index of the first component of the state-vector
+	 * @return Index between 0 and {@link #getStateCount()}
+	 */
+	public int discretize(double[] state, int offset) {
+		int arm1 = bin(state[offset + 1], VehicleHandler.ARM1_LOWER_LIMIT, VehicleHandler.ARM1_UPPER_LIMIT, arm1Bins);
+		int arm2 = bin(state[offset + 2], VehicleHandler.ARM2_LOWER_LIMIT, VehicleHandler.ARM2_UPPER_LIMIT, arm2Bins);
+		return arm1 * arm2Bins + arm2;
+	}
+
+	private static int bin(double angle, double lower, double upper, int bins) {
+		int bin = (int) Math.floor((angle - lower) / (upper - lower) * bins);
+		return Math.max(0, Math.min(bins - 1, bin));
+	}
+}
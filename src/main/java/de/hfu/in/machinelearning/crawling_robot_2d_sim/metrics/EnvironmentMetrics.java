@@ -0,0 +1,108 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Latencies measured in one simulation environment:
+ * <ul>
+ * <li>{@code step}: a single step of the physics engine, including the update
+ * of the floor</li>
+ * <li>{@code execute}: a single command, from the call of the handler until
+ * the state-vector is available. In visualized mode this includes the time
+ * spent waiting in the command queue.</li>
+ * <li>{@code sequence}: a whole sequence or episode of commands</li>
+ * <li>{@code reset}: a reset of the environment</li>
+ * </ul>
+ * The difference between execute and step times shows how long commands wait
+ * for locks or queues.
+ */
+public final class EnvironmentMetrics {
+
+	private final LatencyHistogram step = new LatencyHistogram();
+	private final LatencyHistogram execute = new LatencyHistogram();
+	private final LatencyHistogram sequence = new LatencyHistogram();
+	private final LatencyHistogram reset = new LatencyHistogram();
+
+	public LatencyHistogram getStep() {
+		return step;
+	}
+
+	public LatencyHistogram getExecute() {
+		return execute;
+	}
+
+	public LatencyHistogram getSequence() {
+		return sequence;
+	}
+
+	public LatencyHistogram getReset() {
+		return reset;
+	}
+
+	/**
+	 * Returns the number of steps taken so far.
+	 *
+	 * @return
+	 */
+	public long getSteps() {
+		return step.getCount();
+	}
+
+	/**
+	 * Adds all latencies of another environment to this one.
+	 *
+	 * @param other
+	 */
+	public void add(EnvironmentMetrics other) {
+		step.add(other.step);
+		execute.add(other.execute);
+		sequence.add(other.sequence);
+		reset.add(other.reset);
+	}
+
+	public EnvironmentMetrics copy() {
+		EnvironmentMetrics result = new EnvironmentMetrics();
+		result.add(this);
+		return result;
+	}
+
+	/**
+	 * Returns the latencies recorded since {@code earlier} was copied from these
+	 * metrics, see {@link LatencyHistogram#since(LatencyHistogram)}.
+	 *
+	 * @param earlier
+	 * @return
+	 */
+	public EnvironmentMetrics since(EnvironmentMetrics earlier) {
+		EnvironmentMetrics result = new EnvironmentMetrics();
+		result.step.add(step.since(earlier.step));
+		result.execute.add(execute.since(earlier.execute));
+		result.sequence.add(sequence.since(earlier.sequence));
+		result.reset.add(reset.since(earlier.reset));
+		return result;
+	}
+
+	/**
+	 * Returns all histograms (see {@link LatencyHistogram#toMap()}) together
+	 * with the number of steps ({@code steps}), the steps per second of
+	 * wall-clock time ({@code stepsPerSecond}) and the steps per second of time
+	 * spent in the physics engine ({@code physicsStepsPerSecond}).
+	 *
+	 * @param elapsedNanos Wall-clock time the steps were taken in
+	 * @return
+	 */
+	public Map<String, Object> toMap(long elapsedNanos) {
+		long steps = getSteps();
+		long stepNanos = step.getTotalNanos();
+		Map<String, Object> map = new HashMap<>();
+		map.put("steps", (double) steps);
+		map.put("stepsPerSecond", elapsedNanos > 0 ? steps * 1.0e9 / elapsedNanos : 0.0);
+		map.put("physicsStepsPerSecond", stepNanos > 0 ? steps * 1.0e9 / stepNanos : 0.0);
+		map.put("step", step.toMap());
+		map.put("execute", execute.toMap());
+		map.put("sequence", sequence.toMap());
+		map.put("reset", reset.toMap());
+		return map;
+	}
+}
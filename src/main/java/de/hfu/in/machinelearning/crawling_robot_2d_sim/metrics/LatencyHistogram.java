@@ -0,0 +1,171 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Every power of two is split
+ * into {@value #SUB_BUCKETS} buckets, so percentiles are accurate to about 25%
+ * over the whole range of {@code long}. Recording a value costs two or three
+ * uncontended atomic operations and allocates nothing.
+ *
+ * <p>
+ * Values are read without stopping the writers, a histogram read while values
+ * are recorded may be off by the values recorded in the meantime.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Adds a duration to the histogram. Negative durations are counted as zero.
+	 *
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		buckets.incrementAndGet(bucketOf(nanos));
+		totalNanos.addAndGet(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+			max = maxNanos.get();
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 *
+	 * @return
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; ++i)
+			count += buckets.get(i);
+		return count;
+	}
+
+	/**
+	 * Returns the sum of all recorded durations.
+	 *
+	 * @return
+	 */
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns the upper bound of the bucket containing the given percentile.
+	 *
+	 * @param percentile Between 0 and 100
+	 * @return The duration in nanoseconds, 0 if nothing has been recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		long count = getCount();
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += buckets.get(i);
+			if (seen >= rank)
+				return Math.min(upperBoundOf(i), maxNanos.get());
+		}
+		return maxNanos.get();
+	}
+
+	/**
+	 * Adds all durations recorded by another histogram to this one.
+	 *
+	 * @param other
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; ++i) {
+			long count = other.buckets.get(i);
+			if (count != 0)
+				buckets.addAndGet(i, count);
+		}
+		totalNanos.addAndGet(other.totalNanos.get());
+		long max = other.maxNanos.get();
+		if (max > maxNanos.get())
+			maxNanos.set(max);
+	}
+
+	/**
+	 * Returns the durations recorded since {@code earlier} was copied from this
+	 * histogram, see {@link #copy()}. The maximum of the result is the upper
+	 * bound of its highest non-empty bucket.
+	 *
+	 * @param earlier
+	 * @return
+	 */
+	public LatencyHistogram since(LatencyHistogram earlier) {
+		LatencyHistogram result = new LatencyHistogram();
+		long max = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			long count = buckets.get(i) - earlier.buckets.get(i);
+			if (count > 0) {
+				result.buckets.set(i, count);
+				max = upperBoundOf(i);
+			}
+		}
+		result.totalNanos.set(totalNanos.get() - earlier.totalNanos.get());
+		result.maxNanos.set(Math.min(max, maxNanos.get()));
+		return result;
+	}
+
+	public LatencyHistogram copy() {
+		LatencyHistogram result = new LatencyHistogram();
+		result.add(this);
+		return result;
+	}
+
+	/**
+	 * Returns the count ({@code count}) and the mean ({@code meanMicros}),
+	 * median ({@code p50Micros}), 90th and 99th percentile ({@code p90Micros},
+	 * {@code p99Micros}) and maximum ({@code maxMicros}) in microseconds. All
+	 * values are doubles, so the map can be returned by XML-RPC as it is.
+	 *
+	 * @return
+	 */
+	public Map<String, Object> toMap() {
+		long count = getCount();
+		Map<String, Object> map = new HashMap<>();
+		map.put("count", (double) count);
+		map.put("meanMicros", count > 0 ? totalNanos.get() / 1.0e3 / count : 0.0);
+		map.put("p50Micros", getPercentileNanos(50) / 1.0e3);
+		map.put("p90Micros", getPercentileNanos(90) / 1.0e3);
+		map.put("p99Micros", getPercentileNanos(99) / 1.0e3);
+		map.put("maxMicros", maxNanos.get() / 1.0e3);
+		return map;
+	}
+
+	private static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+		// the very last bucket would overflow
+		return upper < 0 ? Long.MAX_VALUE : upper;
+	}
+}
@@ -0,0 +1,70 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+
+/**
+ * Decorator that passes all calls to another {@link SimulationHandler} and
+ * records their latencies in the {@link EnvironmentMetrics} of the
+ * environment.
+ */
+public class MeteredSimulationHandler implements SimulationHandler {
+
+	private final SimulationHandler handler;
+	private final EnvironmentMetrics metrics;
+
+	public MeteredSimulationHandler(SimulationHandler handler, EnvironmentMetrics metrics) {
+		this.handler = handler;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public double[] execute(int duration, int arm1Direction, int arm2Direction) {
+		long start = System.nanoTime();
+		double[] state = handler.execute(duration, arm1Direction, arm2Direction);
+		metrics.getExecute().record(System.nanoTime() - start);
+		return state;
+	}
+
+	@Override
+	public void execute(int duration, int arm1Direction, int arm2Direction, double[] target, int offset) {
+		long start = System.nanoTime();
+		handler.execute(duration, arm1Direction, arm2Direction, target, offset);
+		metrics.getExecute().record(System.nanoTime() - start);
+	}
+
+	@Override
+	public double[] executeSequence(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		long start = System.nanoTime();
+		double[] trajectory = handler.executeSequence(durations, arm1Directions, arm2Directions);
+		metrics.getSequence().record(System.nanoTime() - start);
+		return trajectory;
+	}
+
+	@Override
+	public double[] executeEpisode(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		long start = System.nanoTime();
+		double[] trajectory = handler.executeEpisode(durations, arm1Directions, arm2Directions);
+		metrics.getSequence().record(System.nanoTime() - start);
+		return trajectory;
+	}
+
+	@Override
+	public double[] executeEpisode(double[] factors, int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		long start = System.nanoTime();
+		double[] trajectory = handler.executeEpisode(factors, durations, arm1Directions, arm2Directions);
+		metrics.getSequence().record(System.nanoTime() - start);
+		return trajectory;
+	}
+
+	@Override
+	public double[] getVehicleFactors() {
+		return handler.getVehicleFactors();
+	}
+
+	@Override
+	public void reset() {
+		long start = System.nanoTime();
+		handler.reset();
+		metrics.getReset().record(System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,144 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
+
+/**
+ * Metrics of all environments of a pool and of the RPC transports serving
+ * them. Environments record their own latencies, the global values are summed
+ * up whenever they are read.
+ */
+public final class Metrics {
+
+	private final EnvironmentMetrics[] environments;
+	private final TransportMetrics xmlRpc = new TransportMetrics();
+	private final TransportMetrics binaryRpc = new TransportMetrics();
+	private final TransportMetrics sharedMemory = new TransportMetrics();
+	private final long startNanos = System.nanoTime();
+	private ScheduledExecutorService logger;
+
+	public Metrics(EnvironmentMetrics[] environments) {
+		this.environments = environments;
+	}
+
+	public EnvironmentMetrics getEnvironment(int envId) {
+		return environments[envId];
+	}
+
+	public TransportMetrics getXmlRpc() {
+		return xmlRpc;
+	}
+
+	public TransportMetrics getBinaryRpc() {
+		return binaryRpc;
+	}
+
+	public TransportMetrics getSharedMemory() {
+		return sharedMemory;
+	}
+
+	/**
+	 * Returns the sum of the metrics of all environments.
+	 *
+	 * @return
+	 */
+	public EnvironmentMetrics getGlobal() {
+		EnvironmentMetrics global = new EnvironmentMetrics();
+		for (EnvironmentMetrics environment : environments)
+			global.add(environment);
+		return global;
+	}
+
+	/**
+	 * Returns the time since these metrics have been created
+	 * ({@code uptimeSeconds}), the global metrics ({@code global}), the metrics
+	 * of every environment ({@code environments}) and the metrics of the
+	 * transports ({@code xmlRpc}, {@code binaryRpc}, {@code sharedMemory}). See
+	 * {@link EnvironmentMetrics#toMap(long)} and {@link TransportMetrics#toMap()}.
+	 *
+	 * @return
+	 */
+	public Map<String, Object> toMap() {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		Object[] environmentMaps = new Object[environments.length];
+		for (int i = 0; i < environments.length; ++i)
+			environmentMaps[i] = environments[i].toMap(elapsedNanos);
+		Map<String, Object> map = new HashMap<>();
+		map.put("uptimeSeconds", elapsedNanos / 1.0e9);
+		map.put("global", getGlobal().toMap(elapsedNanos));
+		map.put("environments", environmentMaps);
+		map.put("xmlRpc", xmlRpc.toMap());
+		map.put("binaryRpc", binaryRpc.toMap());
+		map.put("sharedMemory", sharedMemory.toMap());
+		return map;
+	}
+
+	/**
+	 * Prints the global metrics of the last interval to the console every
+	 * {@code intervalSeconds} seconds, until {@link #stopLogging()} is called.
+	 * Intervals without any step or request are skipped.
+	 *
+	 * @param intervalSeconds
+	 */
+	public synchronized void startLogging(double intervalSeconds) {
+		stopLogging();
+		long intervalNanos = Math.round(intervalSeconds * 1.0e9);
+		logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "MetricsLogger");
+			thread.setDaemon(true);
+			return thread;
+		});
+		logger.scheduleAtFixedRate(new Runnable() {
+			private EnvironmentMetrics lastGlobal = getGlobal();
+			private TransportMetrics lastTransport = getTransports();
+			private long lastNanos = System.nanoTime();
+
+			@Override
+			public void run() {
+				EnvironmentMetrics global = getGlobal();
+				TransportMetrics transport = getTransports();
+				long now = System.nanoTime();
+				log(global.since(lastGlobal), transport.since(lastTransport), now - lastNanos);
+				lastGlobal = global;
+				lastTransport = transport;
+				lastNanos = now;
+			}
+		}, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public synchronized void stopLogging() {
+		if (logger != null)
+			logger.shutdownNow();
+		logger = null;
+	}
+
+	/**
+	 * Returns the sum of all transports, for logging only.
+	 */
+	private TransportMetrics getTransports() {
+		TransportMetrics sum = xmlRpc.copy();
+		sum.getDecode().add(binaryRpc.getDecode());
+		sum.getEncode().add(binaryRpc.getEncode());
+		sum.getDecode().add(sharedMemory.getDecode());
+		sum.getEncode().add(sharedMemory.getEncode());
+		return sum;
+	}
+
+	private static void log(EnvironmentMetrics global, TransportMetrics transport, long elapsedNanos) {
+		if (global.getSteps() == 0 && global.getReset().getCount() == 0 && transport.getDecode().getCount() == 0)
+			return;
+		System.out.println(String.format(Texts.get("Metrics.log"), global.getSteps() * 1.0e9 / elapsedNanos,
+				micros(global.getStep(), 50), micros(global.getStep(), 99), global.getExecute().getCount(),
+				micros(global.getExecute(), 50), micros(global.getExecute(), 99), micros(global.getReset(), 99),
+				micros(transport.getDecode(), 99), micros(transport.getEncode(), 99)));
+	}
+
+	private static double micros(LatencyHistogram histogram, double percentile) {
+		return histogram.getPercentileNanos(percentile) / 1.0e3;
+	}
+}
@@ -0,0 +1,74 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Latencies of one RPC transport. {@code decode} covers everything between
+ * receiving a request and passing it to the simulation, {@code encode}
+ * everything between the result of the simulation and the reply being sent.
+ * What exactly that includes depends on the transport.
+ *
+ * <p>
+ * Transports that hand requests to other threads additionally record how long
+ * a complete request waits for its thread ({@code queue}) and how long a
+ * finished reply waits until it has been written to the client
+ * ({@code write}). Both stay empty for the other transports.
+ */
+public final class TransportMetrics {
+
+	private final LatencyHistogram decode = new LatencyHistogram();
+	private final LatencyHistogram encode = new LatencyHistogram();
+	private final LatencyHistogram queue = new LatencyHistogram();
+	private final LatencyHistogram write = new LatencyHistogram();
+
+	public LatencyHistogram getDecode() {
+		return decode;
+	}
+
+	public LatencyHistogram getEncode() {
+		return encode;
+	}
+
+	public LatencyHistogram getQueue() {
+		return queue;
+	}
+
+	public LatencyHistogram getWrite() {
+		return write;
+	}
+
+	public TransportMetrics copy() {
+		TransportMetrics result = new TransportMetrics();
+		result.decode.add(decode);
+		result.encode.add(encode);
+		result.queue.add(queue);
+		result.write.add(write);
+		return result;
+	}
+
+	/**
+	 * Returns the latencies recorded since {@code earlier} was copied from these
+	 * metrics.
+	 *
+	 * @param earlier
+	 * @return
+	 */
+	public TransportMetrics since(TransportMetrics earlier) {
+		TransportMetrics result = new TransportMetrics();
+		result.decode.add(decode.since(earlier.decode));
+		result.encode.add(encode.since(earlier.encode));
+		result.queue.add(queue.since(earlier.queue));
+		result.write.add(write.since(earlier.write));
+		return result;
+	}
+
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new HashMap<>();
+		map.put("decode", decode.toMap());
+		map.put("encode", encode.toMap());
+		map.put("queue", queue.toMap());
+		map.put("write", write.toMap());
+		return map;
+	}
+}
@@ -18,6 +18,20 @@ public abstract class BasicBody extends org.dyn4j.dynamics.Body {
 
 	public abstract void renderFixture(Graphics2D g, BodyFixture fixture, double scale);
 
+	/**
+	 * Returns a body that can be rendered by another thread while the simulation
+	 * keeps running, see
+	 * {@link #render(Graphics2D, double, double, double, double)}. Bodies whose
+	 * fixtures never change return themselves, bodies that change their shapes
+	 * in place return a copy. Has to be called while holding the lock of the
+	 * simulation.
+	 * 
+	 * @return
+	 */
+	public BasicBody getRenderCopy() {
+		return this;
+	}
+
 	/**
 	 * Renders all fixtures of this body using the
 	 * {@link #renderFixture(Graphics2D, BodyFixture, double)}-Method that has to be
@@ -29,6 +43,21 @@ public abstract class BasicBody extends org.dyn4j.dynamics.Body {
 	 *              drawn to the {@link Graphics2D}-Instance.
 	 */
 	public void render(Graphics2D g, double scale) {
+		render(g, scale, transform.getTranslationX(), transform.getTranslationY(), transform.getRotation());
+	}
+
+	/**
+	 * Renders all fixtures of this body at the given position instead of the
+	 * current one of the body. This allows drawing a body from a copy of its
+	 * state while the simulation keeps changing the body itself.
+	 * 
+	 * @param g
+	 * @param scale    Scale-factor, see {@link #render(Graphics2D, double)}
+	 * @param x        Translation of the body in world coordinates
+	 * @param y        Translation of the body in world coordinates
+	 * @param rotation Rotation of the body in radians
+	 */
+	public void render(Graphics2D g, double scale, double x, double y, double rotation) {
 		// point radius
 //		final int pr = 4;
 
@@ -37,8 +66,8 @@ public abstract class BasicBody extends org.dyn4j.dynamics.Body {
 
 		// transform the coordinate system from world coordinates to local coordinates
 		AffineTransform lt = new AffineTransform();
-		lt.translate(transform.getTranslationX() * scale, transform.getTranslationY() * scale);
-		lt.rotate(transform.getRotation());
+		lt.translate(x * scale, y * scale);
+		lt.rotate(rotation);
 
 		// apply the transform
 		g.transform(lt);
@@ -0,0 +1,115 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
+
+import java.util.Random;
+
+/**
+ * Immutable description of the random variation of the robot applied at every
+ * reset. Friction, density, the torques of both arm motors and the arm speed
+ * are multiplied by factors drawn around 1. The spread of a factor is the
+ * half-width of a uniform distribution, or the standard deviation of a normal
+ * distribution cut off at three standard deviations. A spread of 0 disables
+ * the variation of that parameter.
+ *
+ * <p>
+ * Factors are drawn from a generator seeded with {@link #seed}, so a
+ * simulation that is reset the same number of times always ends up with the
+ * same robot.
+ */
+public final class DomainRandomization {
+
+	public static final int FRICTION = 0;
+	public static final int DENSITY = 1;
+	public static final int ARM1_TORQUE = 2;
+	public static final int ARM2_TORQUE = 3;
+	public static final int ARM_SPEED = 4;
+	/** Number of factors, see {@link #sample(Random, double[])}. */
+	public static final int FACTOR_COUNT = 5;
+
+	private static final double MIN_FACTOR = 0.01;
+
+	public final double friction;
+	public final double density;
+	public final double torque;
+	public final double armSpeed;
+	/** Whether the factors are normally instead of uniformly distributed. */
+	public final boolean gaussian;
+	public final long seed;
+
+	public DomainRandomization(double friction, double density, double torque, double armSpeed, boolean gaussian,
+			long seed) {
+		this.friction = friction;
+		this.density = density;
+		this.torque = torque;
+		this.armSpeed = armSpeed;
+		this.gaussian = gaussian;
+		this.seed = seed;
+	}
+
+	/**
+	 * Reads the spreads {@code randomization.friction},
+	 * {@code randomization.density}, {@code randomization.torque} and
+	 * {@code randomization.armSpeed}, the distribution
+	 * {@code randomization.gaussian} (0 or 1) and the seed
+	 * {@code randomization.seed}. All of them default to 0, i.e. no
+	 * randomization.
+	 *
+	 * @param source
+	 * @return
+	 */
+	public static DomainRandomization read(VehicleConfiguration.Source source) {
+		return new DomainRandomization(source.get("randomization.friction", 0.0),
+				source.get("randomization.density", 0.0), source.get("randomization.torque", 0.0),
+				source.get("randomization.armSpeed", 0.0), source.get("randomization.gaussian", 0.0) != 0.0,
+				source.getLong("randomization.seed", 0L));
+	}
+
+	/**
+	 * Returns whether any parameter is varied.
+	 *
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return friction != 0.0 || density != 0.0 || torque != 0.0 || armSpeed != 0.0;
+	}
+
+	public DomainRandomization withSeed(long seed) {
+		return new DomainRandomization(friction, density, torque, armSpeed, gaussian, seed);
+	}
+
+	/**
+	 * Creates the generator for {@link #sample(Random, double[])}. The seed is
+	 * spread first, as {@link Random} draws nearly the same first values for
+	 * consecutive seeds like those of the environments of a pool.
+	 *
+	 * @return
+	 */
+	public Random createRandom() {
+		return new Random(seed * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Draws a new set of factors. The same number of values is drawn from the
+	 * generator no matter which parameters are varied.
+	 *
+	 * @param random
+	 * @param factors Buffer for {@link #FACTOR_COUNT} factors, indexed by
+	 *                {@link #FRICTION}, {@link #DENSITY}, {@link #ARM1_TORQUE},
+	 *                {@link #ARM2_TORQUE} and {@link #ARM_SPEED}
+	 */
+	public void sample(Random random, double[] factors) {
+		factors[FRICTION] = factor(random, friction);
+		factors[DENSITY] = factor(random, density);
+		factors[ARM1_TORQUE] = factor(random, torque);
+		factors[ARM2_TORQUE] = factor(random, torque);
+		factors[ARM_SPEED] = factor(random, armSpeed);
+	}
+
+	private double factor(Random random, double spread) {
+		double offset;
+		if (gaussian)
+			offset = Math.max(-3.0, Math.min(3.0, random.nextGaussian())) * spread;
+		else
+			offset = (random.nextDouble() * 2.0 - 1.0) * spread;
+		return Math.max(MIN_FACTOR, 1.0 + offset);
+	}
+}
@@ -0,0 +1,31 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
+
+/**
+ * Ground the robot moves on. The floor bodies are created once and only moved
+ * or reshaped while the robot travels, so the number of bodies in the world
+ * stays the same no matter how far it gets.
+ */
+public interface Floor {
+
+	/**
+	 * Adjusts the floor to the current (vehicle-) position. Needs to be called
+	 * after every world-update.
+	 *
+	 * @param currentPosition
+	 */
+	void updateFor(double currentPosition);
+
+	/**
+	 * Captures the current state of the floor.
+	 *
+	 * @return
+	 */
+	double[] capture();
+
+	/**
+	 * Restores a state previously returned by {@link #capture()}.
+	 *
+	 * @param state
+	 */
+	void restore(double[] state);
+}
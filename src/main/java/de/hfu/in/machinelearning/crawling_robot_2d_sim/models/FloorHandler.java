@@ -1,6 +1,7 @@
 package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
 
 import java.awt.Color;
+import java.util.Arrays;
 
 import org.dyn4j.dynamics.World;
 import org.dyn4j.geometry.Geometry;
@@ -16,26 +17,32 @@ import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
  * the tiles are moved around accordingly as soon as the robot passes a certain
  * point.
  */
-public final class FloorHandler {
+public final class FloorHandler implements Floor {
 
 	private final World world;
 	private final BasicBody[] tiles;
-	private final static double TILE_WIDTH = Settings.getDouble("floor.tileWidth", 20.0);
-	private final static double TILE_HEIGHT = Settings.getDouble("floor.tileHeight", 0.4);
+	private final BasicBody[] tilesInCreationOrder;
+	private final double tileWidth;
 
 	public FloorHandler(World world, double y) {
 		this(world, new Vector2(0.0, y));
 	}
 
 	public FloorHandler(World world, Vector2 position) {
+		this(world, position, Settings.getDouble("floor.tileWidth", 20.0), Settings.getDouble("floor.tileHeight", 0.4));
+	}
+
+	public FloorHandler(World world, Vector2 position, double tileWidth, double tileHeight) {
 		this.world = world;
+		this.tileWidth = tileWidth;
 		tiles = new BasicBody[3];
-		tiles[0] = createTile();
-		tiles[1] = createTile();
-		tiles[2] = createTile();
-		tiles[0].translate(position.copy().add(-TILE_WIDTH, 0.0));
+		tiles[0] = createTile(tileWidth, tileHeight);
+		tiles[1] = createTile(tileWidth, tileHeight);
+		tiles[2] = createTile(tileWidth, tileHeight);
+		tiles[0].translate(position.copy().add(-tileWidth, 0.0));
 		tiles[1].translate(position);
-		tiles[2].translate(position.copy().add(TILE_WIDTH, 0.0));
+		tiles[2].translate(position.copy().add(tileWidth, 0.0));
+		tilesInCreationOrder = tiles.clone();
 		initialize();
 	}
 
@@ -54,11 +61,12 @@ public final class FloorHandler {
 	 * 
 	 * @param currentPosition
 	 */
+	@Override
 	public void updateFor(double currentPosition) {
 		double limitX = tiles[2].getWorldCenter().x;
 		if (Double.compare(currentPosition, limitX) > 0) {
 			// move the leftmost tile by 3x width to the right
-			tiles[0].translate(TILE_WIDTH * 3.0, 0.0);
+			tiles[0].translate(tileWidth * 3.0, 0.0);
 			BasicBody tmp = tiles[0];
 			tiles[0] = tiles[1];
 			tiles[1] = tiles[2];
@@ -67,7 +75,7 @@ public final class FloorHandler {
 			limitX = tiles[0].getWorldCenter().x;
 			if (Double.compare(currentPosition, limitX) < 0) {
 				// move the rightmost tile by 3x width to the left
-				tiles[2].translate(-TILE_WIDTH * 3.0, 0.0);
+				tiles[2].translate(-tileWidth * 3.0, 0.0);
 				BasicBody tmp = tiles[2];
 				tiles[2] = tiles[1];
 				tiles[1] = tiles[0];
@@ -76,16 +84,40 @@ public final class FloorHandler {
 		}
 	}
 
-	public void reset() {
-		double x = tiles[1].getTransform().getTranslationX();
-		tiles[0].translate(-x, 0.0);
-		tiles[1].translate(-x, 0.0);
-		tiles[2].translate(-x, 0.0);
+	/**
+	 * Returns the x-positions of the tiles. The positions are always returned in
+	 * the same order, no matter how the tiles have been moved around.
+	 * 
+	 * @return
+	 */
+	@Override
+	public double[] capture() {
+		double[] positions = new double[tilesInCreationOrder.length];
+		for (int i = 0; i < positions.length; ++i)
+			positions[i] = tilesInCreationOrder[i].getTransform().getTranslationX();
+		return positions;
+	}
+
+	/**
+	 * Moves the tiles back to the positions returned by {@link #capture()}.
+	 * 
+	 * @param positions
+	 */
+	@Override
+	public void restore(double[] positions) {
+		for (int i = 0; i < positions.length; ++i) {
+			BasicBody tile = tilesInCreationOrder[i];
+			tile.getTransform().setTranslationX(positions[i]);
+			tiles[i] = tile;
+		}
+		// keep the tiles sorted from left to right
+		Arrays.sort(tiles, (a, b) -> Double.compare(a.getTransform().getTranslationX(),
+				b.getTransform().getTranslationX()));
 	}
 
-	private static BasicBody createTile() {
+	private static BasicBody createTile(double width, double height) {
 		BasicBody tile = new TextureBody(null, Color.darkGray.darker()); // TODO add texture
-		tile.addFixture(Geometry.createRectangle(TILE_WIDTH, TILE_HEIGHT));
+		tile.addFixture(Geometry.createRectangle(width, height));
 		tile.setMass(MassType.INFINITE);
 		return tile;
 	}
@@ -0,0 +1,128 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
+
+/**
+ * Immutable description of the procedural terrain streamed by the
+ * {@link TerrainHandler}. The surface is a sum of smooth hills and random
+ * bumps. Its height at a point only depends on the seed and the position, so
+ * a chunk looks the same whenever it is generated, no matter in which order
+ * the robot visits the chunks. Close to the origin, where the robot starts,
+ * the terrain is flat and it fades in over the next meters.
+ */
+public final class TerrainConfiguration {
+
+	/** Distance from the origin within which the terrain is flat. */
+	private static final double FLAT_DISTANCE = 5.0;
+	/** Distance over which the terrain fades in after the flat part. */
+	private static final double FADE_DISTANCE = 5.0;
+	/** Narrower segments have edges too short for reliable normals. */
+	public static final double MIN_SEGMENT_WIDTH = 0.01;
+
+	private static final long HILL_SALT = 0x632BE59BD9B4E019L;
+	private static final long BUMP_SALT = 0x85157AF5D1B6E3F1L;
+
+	public final double chunkWidth;
+	/** Number of straight segments per chunk. */
+	public final int segments;
+	/** Number of chunk bodies, i.e. the size of the pool. At least 3. */
+	public final int chunks;
+	/** Maximum height of the hills above and below the flat floor. */
+	public final double hillHeight;
+	/** Distance between the tops and bottoms of the hills. */
+	public final double hillWidth;
+	/** Maximum height of the bumps between two segments. */
+	public final double bumpHeight;
+	public final long seed;
+
+	/**
+	 * @throws IllegalArgumentException if there are less than three chunks, no
+	 *                                  segments, segments narrower than
+	 *                                  {@link #MIN_SEGMENT_WIDTH} or hills
+	 *                                  without a positive width
+	 */
+	public TerrainConfiguration(double chunkWidth, int segments, int chunks, double hillHeight, double hillWidth,
+			double bumpHeight, long seed) {
+		if (chunks < 3 || segments < 1)
+			throw new IllegalArgumentException("At least three chunks with one segment are required!");
+		if (!(chunkWidth / segments >= MIN_SEGMENT_WIDTH) || Double.isInfinite(chunkWidth))
+			throw new IllegalArgumentException("Terrain segments need to be at least " + MIN_SEGMENT_WIDTH
+					+ " wide, but chunks of width " + chunkWidth + " have " + segments + " segments!");
+		if (hillHeight != 0.0 && !(hillWidth > 0.0))
+			throw new IllegalArgumentException("Terrain hills need a positive width!");
+		if (Double.isNaN(hillHeight) || Double.isInfinite(hillHeight) || Double.isNaN(bumpHeight)
+				|| Double.isInfinite(bumpHeight))
+			throw new IllegalArgumentException("Terrain heights need to be finite!");
+		this.chunkWidth = chunkWidth;
+		this.segments = segments;
+		this.chunks = chunks;
+		this.hillHeight = hillHeight;
+		this.hillWidth = hillWidth;
+		this.bumpHeight = bumpHeight;
+		this.seed = seed;
+	}
+
+	/**
+	 * Reads {@code terrain.chunkWidth}, {@code terrain.segments},
+	 * {@code terrain.chunks}, {@code terrain.hillHeight},
+	 * {@code terrain.hillWidth}, {@code terrain.bumpHeight} and
+	 * {@code terrain.seed}. Without hills and bumps (the default) the flat floor
+	 * of the {@link FloorHandler} is used instead.
+	 *
+	 * @param source
+	 * @return
+	 */
+	public static TerrainConfiguration read(VehicleConfiguration.Source source) {
+		return new TerrainConfiguration(source.get("terrain.chunkWidth", 10.0),
+				(int) source.get("terrain.segments", 20), (int) source.get("terrain.chunks", 4),
+				source.get("terrain.hillHeight", 0.0), source.get("terrain.hillWidth", 8.0),
+				source.get("terrain.bumpHeight", 0.0), source.getLong("terrain.seed", 0L));
+	}
+
+	/**
+	 * Returns whether the terrain differs from a flat floor.
+	 *
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return hillHeight != 0.0 || bumpHeight != 0.0;
+	}
+
+	public double getSegmentWidth() {
+		return chunkWidth / segments;
+	}
+
+	/**
+	 * Returns the height of the surface above the flat floor at the given
+	 * segment boundary. Boundary {@code n} is located at
+	 * {@code x = n * }{@link #getSegmentWidth()}.
+	 *
+	 * @param boundary
+	 * @return
+	 */
+	public double getHeight(long boundary) {
+		double x = boundary * getSegmentWidth();
+		double fade = Math.min(1.0, Math.max(0.0, (Math.abs(x) - FLAT_DISTANCE) / FADE_DISTANCE));
+		if (fade == 0.0)
+			return 0.0;
+
+		// cosine interpolation between random heights at the tops and bottoms
+		double position = x / hillWidth;
+		long hill = (long) Math.floor(position);
+		double t = (1.0 - Math.cos(Math.PI * (position - hill))) / 2.0;
+		double from = random(HILL_SALT, hill);
+		double hills = from + (random(HILL_SALT, hill + 1) - from) * t;
+
+		return fade * (hillHeight * hills + bumpHeight * random(BUMP_SALT, boundary));
+	}
+
+	/**
+	 * Returns a random value between -1 and 1 that only depends on the seed, the
+	 * salt and the index (SplitMix64).
+	 */
+	private double random(long salt, long index) {
+		long z = seed ^ salt ^ (index * 0x9E3779B97F4A7C15L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z ^= z >>> 31;
+		return (z >>> 11) * 0x1.0p-52 - 1.0;
+	}
+}
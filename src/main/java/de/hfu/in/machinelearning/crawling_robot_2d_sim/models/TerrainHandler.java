@@ -0,0 +1,220 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
+
+import java.awt.Color;
+
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.MassType;
+import org.dyn4j.geometry.Polygon;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Streams a procedural terrain, see {@link TerrainConfiguration}, in chunks
+ * of {@link TerrainConfiguration#chunkWidth}. Chunk {@code k} covers
+ * {@code k * chunkWidth <= x <= (k + 1) * chunkWidth}. A fixed pool of chunk
+ * bodies is created once and covers one chunk behind the robot and the rest
+ * ahead of it. As soon as the robot enters a new chunk, the chunks that fell
+ * behind are reshaped in place into the ones ahead, so neither bodies nor
+ * fixtures are created or removed and the broadphase always holds the same
+ * number of proxies, no matter how far the robot travels.
+ *
+ * <p>
+ * Chunk {@code k} always uses the body {@code floorMod(k, chunks)}, so every
+ * window of consecutive chunks occupies each body exactly once. The renderer
+ * draws copies of the chunk shapes, which are only made after a chunk has been
+ * rebuilt, see {@link BasicBody#getRenderCopy()}.
+ */
+public final class TerrainHandler implements Floor {
+
+	private final World world;
+	private final TerrainConfiguration configuration;
+	private final double y;
+	private final double thickness;
+	private final ChunkBody[] bodies;
+	private final Segment[][] segments;
+	/** Chunk currently represented by each body. */
+	private final int[] indices;
+	/** Leftmost chunk of the current window. */
+	private int first;
+
+	/**
+	 * @param world
+	 * @param y             Vertical position of the center of the flat floor
+	 * @param thickness     Thickness of the ground below the lowest point of each
+	 *                      segment
+	 * @param configuration
+	 */
+	public TerrainHandler(World world, double y, double thickness, TerrainConfiguration configuration) {
+		this.world = world;
+		this.configuration = configuration;
+		this.y = y;
+		this.thickness = thickness;
+		bodies = new ChunkBody[configuration.chunks];
+		segments = new Segment[configuration.chunks][configuration.segments];
+		indices = new int[configuration.chunks];
+		for (int i = 0; i < bodies.length; ++i) {
+			bodies[i] = new ChunkBody();
+			for (int j = 0; j < configuration.segments; ++j) {
+				segments[i][j] = new Segment();
+				bodies[i].addFixture(segments[i][j]);
+			}
+			bodies[i].setMass(MassType.INFINITE);
+			world.addBody(bodies[i]);
+			// mark as empty, so the first window builds all chunks
+			indices[i] = Integer.MIN_VALUE;
+		}
+		moveWindow(-1);
+	}
+
+	/**
+	 * Moves the window of chunks when the robot enters a chunk that is not
+	 * covered by the current window anymore, keeping one chunk behind it. Moving
+	 * backwards keeps one chunk ahead, so a robot going back and forth at a
+	 * chunk border does not rebuild any chunks.
+	 *
+	 * @param currentPosition
+	 */
+	@Override
+	public void updateFor(double currentPosition) {
+		int chunk = (int) Math.floor(currentPosition / configuration.chunkWidth);
+		if (chunk > first + bodies.length - 2)
+			moveWindow(chunk - 1);
+		else if (chunk < first + 1)
+			moveWindow(chunk - bodies.length + 2);
+	}
+
+	/**
+	 * Returns the chunk represented by each body.
+	 *
+	 * @return
+	 */
+	@Override
+	public double[] capture() {
+		double[] state = new double[indices.length];
+		for (int i = 0; i < state.length; ++i)
+			state[i] = indices[i];
+		return state;
+	}
+
+	/**
+	 * Rebuilds the chunks returned by {@link #capture()}. Only bodies that
+	 * represent another chunk by now are reshaped.
+	 *
+	 * @param state
+	 */
+	@Override
+	public void restore(double[] state) {
+		int newFirst = Integer.MAX_VALUE;
+		for (double index : state)
+			newFirst = Math.min(newFirst, (int) index);
+		moveWindow(newFirst);
+	}
+
+	private void moveWindow(int newFirst) {
+		first = newFirst;
+		for (int chunk = newFirst; chunk < newFirst + bodies.length; ++chunk) {
+			int body = Math.floorMod(chunk, bodies.length);
+			if (indices[body] != chunk)
+				build(body, chunk);
+		}
+	}
+
+	/**
+	 * Reshapes a body into the given chunk.
+	 */
+	private void build(int body, int chunk) {
+		indices[body] = chunk;
+		double segmentWidth = configuration.getSegmentWidth();
+		long boundary = (long) chunk * configuration.segments;
+		double top = thickness / 2.0;
+		double left = top + configuration.getHeight(boundary);
+		for (int j = 0; j < configuration.segments; ++j) {
+			double right = top + configuration.getHeight(boundary + j + 1);
+			segments[body][j].reshape(j * segmentWidth, (j + 1) * segmentWidth, left, right,
+					Math.min(left, right) - thickness);
+			left = right;
+		}
+		ChunkBody b = bodies[body];
+		++b.version;
+		b.getTransform().setTranslation(chunk * configuration.chunkWidth, y);
+		b.setMass(MassType.INFINITE);
+		world.getBroadphaseDetector().update(b);
+	}
+
+	/**
+	 * Body of one chunk. Its render copy is rebuilt whenever the chunk has been
+	 * reshaped since the last copy.
+	 */
+	private static final class ChunkBody extends TextureBody {
+		private int version;
+		private int copyVersion = -1;
+		private TextureBody copy;
+
+		ChunkBody() {
+			super(null, Color.darkGray.darker());
+		}
+
+		@Override
+		public BasicBody getRenderCopy() {
+			if (copyVersion != version) {
+				TextureBody body = new TextureBody(null, getColor());
+				for (BodyFixture fixture : fixtures) {
+					Vector2[] vertices = ((Polygon) fixture.getShape()).getVertices();
+					Vector2[] copies = new Vector2[vertices.length];
+					for (int i = 0; i < vertices.length; ++i)
+						copies[i] = vertices[i].copy();
+					body.addFixture(new Polygon(copies));
+				}
+				copy = body;
+				copyVersion = version;
+			}
+			return copy;
+		}
+	}
+
+	/**
+	 * Quadrilateral between the ground and the surface of one segment. The shape
+	 * is changed in place when the chunk is recycled.
+	 */
+	private static final class Segment extends Polygon {
+
+		Segment() {
+			super(new Vector2(0.0, 0.0), new Vector2(1.0, 0.0), new Vector2(1.0, 1.0), new Vector2(0.0, 1.0));
+		}
+
+		/**
+		 * Sets the vertices to the given corners and updates the edge normals, the
+		 * center and the radius accordingly.
+		 */
+		void reshape(double x0, double x1, double y0, double y1, double bottom) {
+			Vector2[] vertices = getVertices();
+			vertices[0].set(x0, bottom);
+			vertices[1].set(x1, bottom);
+			vertices[2].set(x1, y1);
+			vertices[3].set(x0, y0);
+
+			Vector2[] normals = getNormals();
+			double area = 0.0;
+			double cx = 0.0;
+			double cy = 0.0;
+			for (int i = 0; i < vertices.length; ++i) {
+				Vector2 a = vertices[i];
+				Vector2 b = vertices[(i + 1) % vertices.length];
+				double dx = b.x - a.x;
+				double dy = b.y - a.y;
+				double length = Math.sqrt(dx * dx + dy * dy);
+				normals[i].set(dy / length, -dx / length);
+
+				double cross = a.x * b.y - b.x * a.y;
+				area += cross;
+				cx += (a.x + b.x) * cross;
+				cy += (a.y + b.y) * cross;
+			}
+			center.set(cx / (3.0 * area), cy / (3.0 * area));
+
+			radius = 0.0;
+			for (Vector2 vertex : vertices)
+				radius = Math.max(radius, center.distance(vertex));
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
+
+import java.util.Map;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+
+/**
+ * Immutable physical parameters of the robot. All values are parsed once when
+ * the configuration is created, so every {@link VehicleHandler} can use its
+ * own configuration and nothing has to be looked up while the robot is built
+ * or reset.
+ */
+public final class VehicleConfiguration {
+
+	/**
+	 * Source of configuration values, e.g. {@link Settings#getDouble(String, double)}.
+	 */
+	public interface Source {
+		double get(String key, double defaultValue);
+
+		/**
+		 * Returns a whole number like a seed. Sources reading text should parse
+		 * it as a long, the default goes through {@link #get(String, double)}
+		 * and loses precision above 2^53.
+		 *
+		 * @param key
+		 * @param defaultValue
+		 * @return
+		 */
+		default long getLong(String key, long defaultValue) {
+			return (long) get(key, defaultValue);
+		}
+	}
+
+	/** Keys of all parameters, in the order of the constructor arguments. */
+	public static final String[] KEYS = { "robot.armSpeed", "robot.arm1Length", "robot.arm2Length",
+			"robot.arm1Torque", "robot.arm2Torque", "robot.wheelTorque", "robot.wheelFriction",
+			"robot.armTipFriction", "robot.bodyDensity", "robot.armDensity" };
+
+	/** Speed of the arm motors in radiants per second. */
+	public final double armSpeed;
+	public final double arm1Length;
+	public final double arm2Length;
+	/** Maximum torque of the motor between body and first arm. */
+	public final double arm1Torque;
+	/** Maximum torque of the motor between both arms. */
+	public final double arm2Torque;
+	/** Maximum torque of the (idle) wheel motor, i.e. the rolling resistance. */
+	public final double wheelTorque;
+	public final double wheelFriction;
+	public final double armTipFriction;
+	/** Density of the wheel and the foot tip of the body. */
+	public final double bodyDensity;
+	public final double armDensity;
+
+	public VehicleConfiguration(double armSpeed, double arm1Length, double arm2Length, double arm1Torque,
+			double arm2Torque, double wheelTorque, double wheelFriction, double armTipFriction, double bodyDensity,
+			double armDensity) {
+		this.armSpeed = armSpeed;
+		this.arm1Length = arm1Length;
+		this.arm2Length = arm2Length;
+		this.arm1Torque = arm1Torque;
+		this.arm2Torque = arm2Torque;
+		this.wheelTorque = wheelTorque;
+		this.wheelFriction = wheelFriction;
+		this.armTipFriction = armTipFriction;
+		this.bodyDensity = bodyDensity;
+		this.armDensity = armDensity;
+	}
+
+	/**
+	 * Reads all parameters from a source, using the defaults of the robot for
+	 * missing values.
+	 *
+	 * @param source
+	 * @return
+	 */
+	public static VehicleConfiguration read(Source source) {
+		return new VehicleConfiguration(source.get("robot.armSpeed", Math.PI / 4),
+				source.get("robot.arm1Length", 2.0), source.get("robot.arm2Length", 1.5),
+				source.get("robot.arm1Torque", 160.0), source.get("robot.arm2Torque", 100.0),
+				source.get("robot.wheelTorque", 13.0), source.get("robot.wheelFriction", 10.0),
+				source.get("robot.armTipFriction", 18.0), source.get("robot.bodyDensity", 1.0),
+				source.get("robot.armDensity", 0.2));
+	}
+
+	/**
+	 * Reads all parameters from the {@link Settings}.
+	 *
+	 * @return
+	 */
+	public static VehicleConfiguration fromSettings() {
+		return read(Settings::getDouble);
+	}
+
+	/**
+	 * Returns a copy of this configuration with some parameters replaced.
+	 *
+	 * @param values New values by key, see {@link #KEYS}
+	 * @return
+	 * @throws IllegalArgumentException if a key is unknown
+	 */
+	public VehicleConfiguration with(Map<String, Double> values) {
+		for (String key : values.keySet())
+			if (indexOf(key) < 0)
+				throw new IllegalArgumentException("Unknown robot parameter: " + key);
+		double[] current = toArray();
+		return read((key, defaultValue) -> values.containsKey(key) ? values.get(key) : current[indexOf(key)]);
+	}
+
+	/**
+	 * Returns all parameters in the order of {@link #KEYS}.
+	 *
+	 * @return
+	 */
+	public double[] toArray() {
+		return new double[] { armSpeed, arm1Length, arm2Length, arm1Torque, arm2Torque, wheelTorque, wheelFriction,
+				armTipFriction, bodyDensity, armDensity };
+	}
+
+	private static int indexOf(String key) {
+		for (int i = 0; i < KEYS.length; ++i)
+			if (KEYS[i].equals(key))
+				return i;
+		return -1;
+	}
+}
@@ -1,94 +1,259 @@
 package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.dyn4j.dynamics.BodyFixture;
 import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.joint.Joint;
 import org.dyn4j.dynamics.joint.LimitState;
 import org.dyn4j.dynamics.joint.RevoluteJoint;
 import org.dyn4j.dynamics.joint.WeldJoint;
 import org.dyn4j.dynamics.joint.WheelJoint;
 import org.dyn4j.geometry.Geometry;
 import org.dyn4j.geometry.MassType;
+import org.dyn4j.geometry.Transform;
 import org.dyn4j.geometry.Vector2;
 
-import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
-
+/**
+ * Builds the robot in a {@link World} and controls it. All physical parameters
+ * are taken from the {@link VehicleConfiguration} passed to the constructor and
+ * can be varied by the factors set with {@link #setFactors(double[])}.
+ */
 public class VehicleHandler {
 
+	/**
+	 * Number of components of the vector returned by {@link #getStateVector()}.
+	 */
+	public static final int STATE_VECTOR_SIZE = 5;
+
+	/**
+	 * Limits of the angle between vehicle body and first arm in radiants.
+	 */
+	public static final double ARM1_LOWER_LIMIT = -Math.PI / 4;
+	public static final double ARM1_UPPER_LIMIT = Math.PI / 8;
+
+	/**
+	 * Limits of the angle between both arms in radiants.
+	 */
+	public static final double ARM2_LOWER_LIMIT = 0.0;
+	public static final double ARM2_UPPER_LIMIT = 3 * Math.PI / 4;
+
 	private final World world;
 	private final double scale;
+	private final VehicleConfiguration configuration;
 	private BasicBody wheel;
 	private BasicBody body;
 	private BasicBody pack;
 	private BasicBody arm1;
 	private BasicBody arm2;
 
+	private BasicBody[] bodies;
+	private Transform[] designPose;
+
+	private Joint[] joints;
 	private RevoluteJoint rj1;
 	private RevoluteJoint rj2;
 
 	private double distanceAccumulator;
 
-	private static final double MOTOR_SPEED = Settings.getDouble("robot.armSpeed", Math.PI / 4);
+	private BodyFixture[] fixtures;
+	private double[] designFrictions;
+	private double[] designDensities;
+	private final double[] factors = { 1.0, 1.0, 1.0, 1.0, 1.0 };
 
 	public VehicleHandler(World world) {
 		this(world, 1.0);
 	}
 
 	public VehicleHandler(World world, double scale) {
+		this(world, scale, VehicleConfiguration.fromSettings());
+	}
+
+	public VehicleHandler(World world, double scale, VehicleConfiguration configuration) {
 		this.world = world;
 		this.scale = scale;
+		this.configuration = configuration;
 		initialize();
 	}
-	
-	public void initialize() {
+
+	public VehicleConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * Returns the bodies of the robot in the order body, wheel, first arm, second
+	 * arm, pack.
+	 * 
+	 * @return
+	 */
+	public List<BasicBody> getBodies() {
+		return Collections.unmodifiableList(Arrays.asList(bodies));
+	}
+
+	private void initialize() {
 		distanceAccumulator = 0.0;
 
 		body = createBody(scale);
 		wheel = createWheel(scale);
-		arm1 = createArm(scale, Settings.getDouble("robot.arm1Length", 2.0), false);
-		arm2 = createArm(scale, Settings.getDouble("robot.arm2Length", 1.5), true);
+		arm1 = createArm(scale, configuration.arm1Length, false);
+		arm2 = createArm(scale, configuration.arm2Length, true);
 		pack = createPack(scale);
+		bodies = new BasicBody[] { body, wheel, arm1, arm2, pack };
+
+		// remember the designed values, all factors are applied to them
+		List<BodyFixture> allFixtures = new ArrayList<>();
+		for (BasicBody b : bodies)
+			allFixtures.addAll(b.getFixtures());
+		fixtures = allFixtures.toArray(new BodyFixture[allFixtures.size()]);
+		designFrictions = new double[fixtures.length];
+		designDensities = new double[fixtures.length];
+		for (int i = 0; i < fixtures.length; ++i) {
+			designFrictions[i] = fixtures[i].getFriction();
+			designDensities[i] = fixtures[i].getDensity();
+		}
 
 		wheel.translate(-1.4, -0.3);
+		arm1.translate(1.75, 0.75);
+		arm2.translate(3.75, 0.75);
+
+		// the joints are created in this pose, remember it to be able to recreate them
+		designPose = new Transform[bodies.length];
+		for (int i = 0; i < bodies.length; ++i)
+			designPose[i] = bodies[i].getTransform().copy();
+		createJoints();
+
+		world.addBody(body);
+		world.addBody(wheel);
+		world.addBody(arm1);
+		world.addBody(arm2);
+		world.addBody(pack);
+
+		body.translate(0.0, -3.7);
+		wheel.translate(0.0, -3.7);
+		arm1.translate(0.0, -3.7);
+		arm2.translate(0.0, -3.7);
+		pack.translate(0.0, -3.7);
+	}
+
+	private void createJoints() {
+		joints = new Joint[4];
+
 		WheelJoint j = new WheelJoint(body, wheel, new Vector2(-1.4, -0.3), new Vector2(0.0, -0.1));
 		j.setFrequency(100);
 		j.setMotorEnabled(true);
-		j.setMaximumMotorTorque(Settings.getDouble("robot.wheelTorque", 13.0));
+		j.setMaximumMotorTorque(configuration.wheelTorque);
 		world.addJoint(j);
+		joints[0] = j;
 
-		arm1.translate(1.75, 0.75);
 		rj1 = new RevoluteJoint(body, arm1, new Vector2(1.75, 0.75));
 		rj1.setMotorEnabled(true);
-		rj1.setMaximumMotorTorque(Settings.getDouble("robot.arm1Torque", 160.0));
+		rj1.setMaximumMotorTorque(configuration.arm1Torque * factors[DomainRandomization.ARM1_TORQUE]);
 		rj1.setLimitEnabled(true);
-		rj1.setLimits(-Math.PI / 4, Math.PI / 8);
+		rj1.setLimits(ARM1_LOWER_LIMIT, ARM1_UPPER_LIMIT);
 		rj1.setMotorSpeed(0.0);
 		world.addJoint(rj1);
+		joints[1] = rj1;
 
-		arm2.translate(3.75, 0.75);
 		rj2 = new RevoluteJoint(arm1, arm2, new Vector2(3.75, 0.75));
 		rj2.setMotorEnabled(true);
-		rj2.setMaximumMotorTorque(Settings.getDouble("robot.arm2Torque", 100.0));
+		rj2.setMaximumMotorTorque(configuration.arm2Torque * factors[DomainRandomization.ARM2_TORQUE]);
 		rj2.setLimitEnabled(true);
-		rj2.setLimits(0.0, 3 * Math.PI / 4);
+		rj2.setLimits(ARM2_LOWER_LIMIT, ARM2_UPPER_LIMIT);
 		rj2.setMotorSpeed(0.0);
 		world.addJoint(rj2);
+		joints[2] = rj2;
 
 		WeldJoint wj = new WeldJoint(body, pack, new Vector2(-1.0, 0.5));
 		world.addJoint(wj);
+		joints[3] = wj;
+	}
 
-		world.addBody(body);
-		world.addBody(wheel);
-		world.addBody(arm1);
-		world.addBody(arm2);
-		world.addBody(pack);
+	/**
+	 * Varies the physical parameters of the robot. The factors are applied to the
+	 * values of the {@link VehicleConfiguration} by changing the existing
+	 * fixtures and joints, nothing is created or removed. Masses are only
+	 * recomputed if the density changes.
+	 * 
+	 * @param newFactors Factors as described in
+	 *                   {@link DomainRandomization#sample(java.util.Random, double[])}
+	 */
+	public void setFactors(double[] newFactors) {
+		if (Arrays.equals(factors, newFactors))
+			return;
+		boolean densityChanged = factors[DomainRandomization.DENSITY] != newFactors[DomainRandomization.DENSITY];
+		System.arraycopy(newFactors, 0, factors, 0, DomainRandomization.FACTOR_COUNT);
+		for (int i = 0; i < fixtures.length; ++i) {
+			fixtures[i].setFriction(designFrictions[i] * factors[DomainRandomization.FRICTION]);
+			fixtures[i].setDensity(designDensities[i] * factors[DomainRandomization.DENSITY]);
+		}
+		if (densityChanged)
+			for (BasicBody b : bodies)
+				b.setMass(MassType.NORMAL);
+		rj1.setMaximumMotorTorque(configuration.arm1Torque * factors[DomainRandomization.ARM1_TORQUE]);
+		rj2.setMaximumMotorTorque(configuration.arm2Torque * factors[DomainRandomization.ARM2_TORQUE]);
+	}
 
-		body.translate(0.0, -3.7);
-		wheel.translate(0.0, -3.7);
-		arm1.translate(0.0, -3.7);
-		arm2.translate(0.0, -3.7);
-		pack.translate(0.0, -3.7);
+	/**
+	 * Returns a copy of the factors set by {@link #setFactors(double[])}.
+	 * 
+	 * @return
+	 */
+	public double[] getFactors() {
+		return factors.clone();
+	}
+
+	/**
+	 * Captures the current state of all bodies of the robot, the arm motors, the
+	 * factors of the physical parameters and the accumulated distance.
+	 * 
+	 * @return
+	 */
+	public VehicleSnapshot capture() {
+		Transform[] transforms = new Transform[bodies.length];
+		double[] linearVelocities = new double[bodies.length * 2];
+		double[] angularVelocities = new double[bodies.length];
+		for (int i = 0; i < bodies.length; ++i) {
+			transforms[i] = bodies[i].getTransform().copy();
+			Vector2 v = bodies[i].getLinearVelocity();
+			linearVelocities[i * 2] = v.x;
+			linearVelocities[i * 2 + 1] = v.y;
+			angularVelocities[i] = bodies[i].getAngularVelocity();
+		}
+		return new VehicleSnapshot(transforms, linearVelocities, angularVelocities, rj1.getMotorSpeed(),
+				rj2.getMotorSpeed(), factors.clone(), distanceAccumulator);
+	}
+
+	/**
+	 * Restores a state previously returned by {@link #capture()}. The bodies and
+	 * fixtures are kept, only the joints are replaced by new ones, so no
+	 * accumulated solver impulses survive the restore.
+	 * 
+	 * @param snapshot
+	 */
+	public void restore(VehicleSnapshot snapshot) {
+		for (Joint joint : joints)
+			world.removeJoint(joint);
+		for (int i = 0; i < bodies.length; ++i)
+			bodies[i].getTransform().set(designPose[i]);
+		setFactors(snapshot.factors);
+		createJoints();
+
+		for (int i = 0; i < bodies.length; ++i) {
+			BasicBody b = bodies[i];
+			b.getTransform().set(snapshot.transforms[i]);
+			b.setLinearVelocity(snapshot.linearVelocities[i * 2], snapshot.linearVelocities[i * 2 + 1]);
+			b.setAngularVelocity(snapshot.angularVelocities[i]);
+			b.clearAccumulatedForce();
+			b.clearAccumulatedTorque();
+			b.setAsleep(false);
+		}
+		rj1.setMotorSpeed(snapshot.arm1MotorSpeed);
+		rj2.setMotorSpeed(snapshot.arm2MotorSpeed);
+		distanceAccumulator = snapshot.distanceAccumulator;
 	}
 
 	public void setArmDirection(int arm1, int arm2) {
@@ -96,11 +261,11 @@ public class VehicleHandler {
 		setArmMotorSpeed(rj2, arm2);
 	}
 
-	private static void setArmMotorSpeed(RevoluteJoint j, int direction) {
+	private void setArmMotorSpeed(RevoluteJoint j, int direction) {
 		if (Constants.DIRECTION_CLOCKWISE == direction && j.getLimitState() != LimitState.AT_UPPER)
-			j.setMotorSpeed(MOTOR_SPEED);
+			j.setMotorSpeed(configuration.armSpeed * factors[DomainRandomization.ARM_SPEED]);
 		else if (Constants.DIRECTION_COUNTERCLOCKWISE == direction && j.getLimitState() != LimitState.AT_LOWER)
-			j.setMotorSpeed(-MOTOR_SPEED);
+			j.setMotorSpeed(-configuration.armSpeed * factors[DomainRandomization.ARM_SPEED]);
 		else
 			j.setMotorSpeed(0.0);
 	}
@@ -127,11 +292,27 @@ public class VehicleHandler {
 	 * @return
 	 */
 	public double[] getStateVector() {
-		return new double[] { getXPosition() + distanceAccumulator, rj1.getJointAngle(), rj2.getJointAngle(),
-				body.getTransform().getRotation(), body.getLinearVelocity().getMagnitude() };
+		double[] state = new double[STATE_VECTOR_SIZE];
+		getStateVector(state, 0);
+		return state;
+	}
+
+	/**
+	 * Writes the state vector described in {@link #getStateVector()} into the
+	 * given buffer without allocating any memory.
+	 * 
+	 * @param target Buffer to write to
+	 * @param offset Index of the first component in the buffer
+	 */
+	public void getStateVector(double[] target, int offset) {
+		target[offset] = getXPosition() + distanceAccumulator;
+		target[offset + 1] = rj1.getJointAngle();
+		target[offset + 2] = rj2.getJointAngle();
+		target[offset + 3] = body.getTransform().getRotation();
+		target[offset + 4] = body.getLinearVelocity().getMagnitude();
 	}
 
-	private static BasicBody createBody(double scale) {
+	private BasicBody createBody(double scale) {
 		BasicBody body = new TextureBody(null, Color.lightGray);
 		BodyFixture f;
 		f = new BodyFixture( // base rectangle
@@ -152,26 +333,26 @@ public class VehicleHandler {
 				Geometry.createSlice(0.2, Math.PI));
 		f.getShape().rotate(-Math.PI / 2);
 		f.getShape().translate(1.8, -0.9);
-		f.setDensity(Settings.getDouble("robot.bodyDensity", 1.0));
+		f.setDensity(configuration.bodyDensity);
 		f.setFriction(15.0);
 		body.addFixture(f);
 		body.setMass(MassType.NORMAL);
 		return body;
 	}
 
-	private static BasicBody createWheel(double scale) {
+	private BasicBody createWheel(double scale) {
 		BasicBody wheel = new TextureBody(null, Color.darkGray);
 		BodyFixture f = new BodyFixture(Geometry.createCircle(0.8));
-		f.setDensity(Settings.getDouble("robot.bodyDensity", 1.0));
-		f.setFriction(Settings.getDouble("robot.wheelFriction", 10.0));
+		f.setDensity(configuration.bodyDensity);
+		f.setFriction(configuration.wheelFriction);
 		wheel.addFixture(f);
 		wheel.setMass(MassType.NORMAL);
 		return wheel;
 	}
 
-	private static BasicBody createArm(double scale, double length, boolean isTip) {
+	private BasicBody createArm(double scale, double length, boolean isTip) {
 		BasicBody arm = new TextureBody(null, Color.lightGray);
-		double density = Settings.getDouble("robot.armDensity", 0.2);
+		double density = configuration.armDensity;
 		BodyFixture f = new BodyFixture(Geometry.createSlice(0.2, Math.PI));
 		f.getShape().rotate(Math.PI);
 		f.setDensity(density);
@@ -184,7 +365,7 @@ public class VehicleHandler {
 		f.getShape().translate(length, 0.0);
 		f.setDensity(density);
 		if (isTip)
-			f.setFriction(Settings.getDouble("robot.armTipFriction", 18.0));
+			f.setFriction(configuration.armTipFriction);
 		arm.addFixture(f);
 		arm.setMass(MassType.NORMAL);
 		arm.rotate(0.0);
@@ -0,0 +1,30 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
+
+import org.dyn4j.geometry.Transform;
+
+/**
+ * Immutable copy of the dynamic state of the robot as captured by
+ * {@link VehicleHandler#capture()}. Bodies are stored in the order body,
+ * wheel, first arm, second arm, pack.
+ */
+public final class VehicleSnapshot {
+
+	final Transform[] transforms;
+	final double[] linearVelocities;
+	final double[] angularVelocities;
+	final double arm1MotorSpeed;
+	final double arm2MotorSpeed;
+	final double[] factors;
+	final double distanceAccumulator;
+
+	VehicleSnapshot(Transform[] transforms, double[] linearVelocities, double[] angularVelocities,
+			double arm1MotorSpeed, double arm2MotorSpeed, double[] factors, double distanceAccumulator) {
+		this.transforms = transforms;
+		this.linearVelocities = linearVelocities;
+		this.angularVelocities = angularVelocities;
+		this.arm1MotorSpeed = arm1MotorSpeed;
+		this.arm2MotorSpeed = arm2MotorSpeed;
+		this.factors = factors;
+		this.distanceAccumulator = distanceAccumulator;
+	}
+}
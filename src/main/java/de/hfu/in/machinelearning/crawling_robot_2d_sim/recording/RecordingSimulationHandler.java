@@ -0,0 +1,106 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.recording;
+
+import java.io.IOException;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Decorator that passes all calls to another {@link SimulationHandler} and
+ * records the executed commands with a {@link TrajectoryRecorder}. Every reset
+ * starts a new episode, the factors drawn by the reset are recorded with it.
+ * Restores of saved states are not recorded, episodes
+ * containing them can not be replayed. Calls are serialized, so the records of
+ * clients sharing the environment are written in the order of execution.
+ */
+public class RecordingSimulationHandler implements SimulationHandler {
+
+	private final SimulationHandler handler;
+	private final TrajectoryRecorder recorder;
+
+	public RecordingSimulationHandler(SimulationHandler handler, TrajectoryRecorder recorder) {
+		this.handler = handler;
+		this.recorder = recorder;
+		recorder.setFactors(handler.getVehicleFactors());
+	}
+
+	public TrajectoryRecorder getRecorder() {
+		return recorder;
+	}
+
+	@Override
+	public synchronized double[] execute(int duration, int arm1Direction, int arm2Direction) {
+		double[] state = handler.execute(duration, arm1Direction, arm2Direction);
+		if (state != null)
+			record(duration, arm1Direction, arm2Direction, state, 0);
+		return state;
+	}
+
+	@Override
+	public synchronized void execute(int duration, int arm1Direction, int arm2Direction, double[] target, int offset) {
+		handler.execute(duration, arm1Direction, arm2Direction, target, offset);
+		record(duration, arm1Direction, arm2Direction, target, offset);
+	}
+
+	@Override
+	public synchronized double[] executeSequence(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		double[] trajectory = handler.executeSequence(durations, arm1Directions, arm2Directions);
+		if (trajectory != null)
+			for (int i = 0; i < durations.length; ++i)
+				record(durations[i], arm1Directions[i], arm2Directions[i], trajectory,
+						i * VehicleHandler.STATE_VECTOR_SIZE);
+		return trajectory;
+	}
+
+	@Override
+	public synchronized double[] executeEpisode(int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		rotate();
+		double[] trajectory = handler.executeEpisode(durations, arm1Directions, arm2Directions);
+		recorder.setFactors(handler.getVehicleFactors());
+		if (trajectory != null)
+			for (int i = 0; i < durations.length; ++i)
+				record(durations[i], arm1Directions[i], arm2Directions[i], trajectory,
+						i * VehicleHandler.STATE_VECTOR_SIZE);
+		return trajectory;
+	}
+
+	@Override
+	public synchronized double[] executeEpisode(double[] factors, int[] durations, int[] arm1Directions, int[] arm2Directions) {
+		rotate();
+		double[] trajectory = handler.executeEpisode(factors, durations, arm1Directions, arm2Directions);
+		recorder.setFactors(factors);
+		if (trajectory != null)
+			for (int i = 0; i < durations.length; ++i)
+				record(durations[i], arm1Directions[i], arm2Directions[i], trajectory,
+						i * VehicleHandler.STATE_VECTOR_SIZE);
+		return trajectory;
+	}
+
+	@Override
+	public double[] getVehicleFactors() {
+		return handler.getVehicleFactors();
+	}
+
+	@Override
+	public synchronized void reset() {
+		rotate();
+		handler.reset();
+		recorder.setFactors(handler.getVehicleFactors());
+	}
+
+	private void rotate() {
+		try {
+			recorder.rotate();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void record(int duration, int arm1Direction, int arm2Direction, double[] state, int offset) {
+		try {
+			recorder.record(duration, arm1Direction, arm2Direction, state, offset);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
+
+/**
+ * Replays recorded episodes through a {@link SimulationHandler} and compares
+ * the resulting state-vectors with the recorded ones. Every episode starts with
+ * a reset, see {@link SimulationHandler#executeEpisode(int[], int[], int[])},
+ * and the robot uses the recorded factors, if the file contains any.
+ * Every episode is replayed in a simulation of the environment it has been
+ * recorded in, created on first use and reused for all further episodes of
+ * that environment.
+ * With a {@link de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler}
+ * the replay runs at full speed and doubles as an end-to-end benchmark.
+ */
+public final class ReplayRunner {
+
+	private final IntFunction<RobotSimulation> simulationFactory;
+	private final Function<RobotSimulation, SimulationHandler> handlerFactory;
+	private final double tolerance;
+	private final Map<Integer, RobotSimulation> simulations = new HashMap<>();
+	private final Map<Integer, SimulationHandler> handlers = new HashMap<>();
+
+	private int episodes;
+	private long commands;
+	private long mismatches;
+	private double maxDeviation;
+	private double simulatedSeconds;
+	private long elapsedNanos;
+
+	/**
+	 * Replays every episode in a simulation configured like its environment, see
+	 * {@link SimulationConfiguration#forEnvironment(int)}.
+	 *
+	 * @param handlerFactory Creates the handler to replay the episodes of a
+	 *                       simulation with
+	 * @param tolerance      Maximum absolute difference of a state-vector
+	 *                       component that is not reported as a mismatch, 0 for
+	 *                       exact reproduction
+	 */
+	public ReplayRunner(Function<RobotSimulation, SimulationHandler> handlerFactory, double tolerance) {
+		this(envId -> new RobotSimulation(SimulationConfiguration.forEnvironment(envId)), handlerFactory, tolerance);
+	}
+
+	/**
+	 * @param simulationFactory Creates the simulation of an environment id
+	 * @param handlerFactory    Creates the handler to replay the episodes of a
+	 *                          simulation with
+	 * @param tolerance         Maximum absolute difference of a state-vector
+	 *                          component that is not reported as a mismatch, 0
+	 *                          for exact reproduction
+	 */
+	public ReplayRunner(IntFunction<RobotSimulation> simulationFactory,
+			Function<RobotSimulation, SimulationHandler> handlerFactory, double tolerance) {
+		this.simulationFactory = simulationFactory;
+		this.handlerFactory = handlerFactory;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Replays all trajectory files of a directory or a single file and prints one
+	 * line per episode.
+	 *
+	 * @param fileOrDirectory
+	 * @return {@code true} if all state-vectors matched
+	 */
+	public boolean replay(File fileOrDirectory) {
+		boolean matched = true;
+		for (File file : TrajectoryReader.listFiles(fileOrDirectory)) {
+			try {
+				matched &= replay(new TrajectoryReader(file), file.getName());
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+				matched = false;
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * Replays a single episode and prints the result.
+	 *
+	 * @param episode
+	 * @param name    Name of the episode in the output
+	 * @return {@code true} if all state-vectors matched
+	 */
+	public boolean replay(TrajectoryReader episode, String name) {
+		RobotSimulation simulation = simulations.computeIfAbsent(episode.getEnvId(), simulationFactory::apply);
+		SimulationHandler handler = handlers.computeIfAbsent(episode.getEnvId(),
+				envId -> handlerFactory.apply(simulation));
+		if (episode.getStepNanos() != simulation.getStepNanos())
+			System.err.println(String.format(Texts.get("Replay.stepMismatch"), name, episode.getStepNanos(),
+					simulation.getStepNanos()));
+
+		long start = System.nanoTime();
+		double[] states = episode.getFactors() == null
+				? handler.executeEpisode(episode.getDurations(), episode.getArm1Directions(),
+						episode.getArm2Directions())
+				: handler.executeEpisode(episode.getFactors(), episode.getDurations(), episode.getArm1Directions(),
+						episode.getArm2Directions());
+		elapsedNanos += System.nanoTime() - start;
+		if (states == null)
+			return false;
+
+		double[] recorded = episode.getStates();
+		int firstMismatch = -1;
+		int episodeMismatches = 0;
+		double episodeDeviation = 0.0;
+		for (int i = 0; i < episode.getCommandCount(); ++i) {
+			boolean mismatch = false;
+			for (int j = 0; j < VehicleHandler.STATE_VECTOR_SIZE; ++j) {
+				int index = i * VehicleHandler.STATE_VECTOR_SIZE + j;
+				double deviation = Math.abs(states[index] - recorded[index]);
+				if (!(deviation <= tolerance))
+					mismatch = true;
+				if (deviation > episodeDeviation || Double.isNaN(deviation))
+					episodeDeviation = deviation;
+			}
+			if (mismatch) {
+				++episodeMismatches;
+				if (firstMismatch < 0)
+					firstMismatch = i;
+			}
+			simulatedSeconds += episode.getDurations()[i] / 1000.0;
+		}
+
+		++episodes;
+		commands += episode.getCommandCount();
+		mismatches += episodeMismatches;
+		maxDeviation = Math.max(maxDeviation, episodeDeviation);
+		if (episodeMismatches == 0)
+			System.out.println(String.format(Texts.get("Replay.match"), name, episode.getCommandCount()));
+		else
+			System.out.println(String.format(Texts.get("Replay.mismatch"), name, episode.getCommandCount(),
+					episodeMismatches, firstMismatch, episodeDeviation));
+		return episodeMismatches == 0;
+	}
+
+	/**
+	 * Prints the totals of all episodes replayed so far, including the
+	 * throughput.
+	 */
+	public void printSummary() {
+		double seconds = elapsedNanos / 1.0e9;
+		System.out.println(String.format(Texts.get("Replay.summary"), episodes, commands, mismatches, maxDeviation,
+				commands / seconds, simulatedSeconds / seconds));
+	}
+
+	public long getMismatches() {
+		return mismatches;
+	}
+}
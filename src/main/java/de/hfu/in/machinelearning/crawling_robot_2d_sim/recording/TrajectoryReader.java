@@ -0,0 +1,138 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Reads an episode written by the {@link TrajectoryRecorder}. The whole file is
+ * read on construction. A truncated last record, e.g. of a process that has
+ * been killed, is ignored. Files of version 1 are read as well, they have no
+ * factors.
+ */
+public final class TrajectoryReader {
+
+	private final int envId;
+	private final long stepNanos;
+	private final double[] factors;
+	private final int[] durations;
+	private final int[] arm1Directions;
+	private final int[] arm2Directions;
+	private final double[] states;
+
+	/**
+	 * @param file
+	 * @throws IOException if the file could not be read or is no trajectory file
+	 *                     of a supported version
+	 */
+	public TrajectoryReader(File file) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < TrajectoryRecorder.HEADER_SIZE_V1 || buffer.getInt() != TrajectoryRecorder.MAGIC)
+			throw new IOException(file + " is no trajectory file");
+		int version = buffer.getInt();
+		if (version != 1 && version != TrajectoryRecorder.VERSION)
+			throw new IOException(file + " has the unsupported version " + version);
+		if (version > 1 && buffer.limit() < TrajectoryRecorder.HEADER_SIZE)
+			throw new IOException(file + " has a truncated header");
+		int stateSize = buffer.getInt();
+		if (stateSize != VehicleHandler.STATE_VECTOR_SIZE)
+			throw new IOException(file + " has state-vectors of size " + stateSize);
+		envId = buffer.getInt();
+		stepNanos = buffer.getLong();
+		if (version > 1) {
+			int factorCount = buffer.getInt();
+			if (factorCount != DomainRandomization.FACTOR_COUNT)
+				throw new IOException(file + " has " + factorCount + " factors");
+			factors = new double[factorCount];
+			for (int i = 0; i < factorCount; ++i)
+				factors[i] = buffer.getDouble();
+		} else {
+			factors = null;
+		}
+
+		int count = buffer.remaining() / TrajectoryRecorder.RECORD_SIZE;
+		durations = new int[count];
+		arm1Directions = new int[count];
+		arm2Directions = new int[count];
+		states = new double[count * stateSize];
+		for (int i = 0; i < count; ++i) {
+			durations[i] = buffer.getInt();
+			arm1Directions[i] = buffer.getInt();
+			arm2Directions[i] = buffer.getInt();
+			for (int j = 0; j < stateSize; ++j)
+				states[i * stateSize + j] = buffer.getDouble();
+		}
+	}
+
+	/**
+	 * Returns the trajectory files in a directory in the order of their names,
+	 * i.e. by environment, run and episode. A file is returned as it is.
+	 *
+	 * @param fileOrDirectory
+	 * @return
+	 */
+	public static File[] listFiles(File fileOrDirectory) {
+		if (!fileOrDirectory.isDirectory())
+			return new File[] { fileOrDirectory };
+		File[] files = fileOrDirectory
+				.listFiles((directory, name) -> name.endsWith(TrajectoryRecorder.FILE_EXTENSION));
+		if (files == null)
+			return new File[0];
+		Arrays.sort(files);
+		return files;
+	}
+
+	public int getEnvId() {
+		return envId;
+	}
+
+	public long getStepNanos() {
+		return stepNanos;
+	}
+
+	/**
+	 * Returns the factors the robot's parameters were multiplied by, see
+	 * {@link DomainRandomization}, {@code null} for files of version 1.
+	 *
+	 * @return
+	 */
+	public double[] getFactors() {
+		return factors;
+	}
+
+	public int getCommandCount() {
+		return durations.length;
+	}
+
+	public int[] getDurations() {
+		return durations;
+	}
+
+	public int[] getArm1Directions() {
+		return arm1Directions;
+	}
+
+	public int[] getArm2Directions() {
+		return arm2Directions;
+	}
+
+	/**
+	 * Returns the recorded state-vectors after each command as one flat array.
+	 *
+	 * @return
+	 */
+	public double[] getStates() {
+		return states;
+	}
+}
@@ -0,0 +1,146 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Writes the commands executed in one environment together with the resulting
+ * state-vectors to append-only binary files. Every episode, i.e. everything
+ * between two resets, goes to a file of its own named
+ * {@code env<id>-<run>-<episode>.traj}, where {@code run} is the time the
+ * recorder was created in milliseconds. Files of an episode without any command
+ * are not created.
+ *
+ * <p>
+ * All values are little-endian. A file starts with a header of
+ * {@value #HEADER_SIZE} bytes: int32 magic ({@link #MAGIC}), int32 version,
+ * int32 size of the state-vector, int32 environment id, int64 length of a
+ * simulation step in nanoseconds, int32 number of factors and the float64
+ * factors the robot's parameters were multiplied by during the episode (see
+ * {@link DomainRandomization}). Version 1 files end the header after the step
+ * length. Records of {@value #RECORD_SIZE} bytes follow,
+ * each consisting of int32 duration in milliseconds, int32 direction of the
+ * first arm, int32 direction of the second arm and the float64 state-vector
+ * after the command.
+ *
+ * <p>
+ * Records are collected in a direct buffer and written when it is full, when
+ * the episode ends and on {@link #close()}.
+ */
+public final class TrajectoryRecorder {
+
+	public static final int MAGIC = 0x4A544352; // "CRTJ" in little-endian
+	public static final int VERSION = 2;
+	public static final int HEADER_SIZE = 4 * 4 + 8 + 4 + DomainRandomization.FACTOR_COUNT * 8;
+	/** Header size of version 1, without the factors. */
+	public static final int HEADER_SIZE_V1 = 4 * 4 + 8;
+	public static final int RECORD_SIZE = 3 * 4 + VehicleHandler.STATE_VECTOR_SIZE * 8;
+	public static final String FILE_EXTENSION = ".traj";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File directory;
+	private final int envId;
+	private final long stepNanos;
+	private final long run = System.currentTimeMillis();
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private final double[] factors = new double[DomainRandomization.FACTOR_COUNT];
+	private FileChannel channel;
+	private int episode;
+
+	/**
+	 * @param directory Directory for the episode files, created if necessary
+	 * @param envId     Id of the recorded environment
+	 * @param stepNanos Length of a simulation step, stored for the replay
+	 * @throws IOException if the directory could not be created
+	 */
+	public TrajectoryRecorder(File directory, int envId, long stepNanos) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Couldn't create the recording directory " + directory);
+		this.directory = directory;
+		this.envId = envId;
+		this.stepNanos = stepNanos;
+		Arrays.fill(factors, 1.0);
+	}
+
+	/**
+	 * Sets the factors written to the header of the next episode file.
+	 *
+	 * @param factors
+	 */
+	public synchronized void setFactors(double[] factors) {
+		System.arraycopy(factors, 0, this.factors, 0, this.factors.length);
+	}
+
+	/**
+	 * Appends a record to the current episode, starting a new file if
+	 * necessary.
+	 *
+	 * @param duration      Duration of the command in milliseconds
+	 * @param arm1Direction
+	 * @param arm2Direction
+	 * @param state         Buffer holding the state-vector after the command
+	 * @param offset        Index of the first component in the buffer
+	 * @throws IOException
+	 */
+	public synchronized void record(int duration, int arm1Direction, int arm2Direction, double[] state, int offset)
+			throws IOException {
+		if (channel == null)
+			open();
+		if (buffer.remaining() < RECORD_SIZE)
+			flush();
+		buffer.putInt(duration).putInt(arm1Direction).putInt(arm2Direction);
+		for (int i = 0; i < VehicleHandler.STATE_VECTOR_SIZE; ++i)
+			buffer.putDouble(state[offset + i]);
+	}
+
+	/**
+	 * Ends the current episode, the next record starts a new file.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void rotate() throws IOException {
+		if (channel == null)
+			return;
+		flush();
+		channel.close();
+		channel = null;
+		++episode;
+	}
+
+	/**
+	 * Writes all pending records and closes the current file.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		rotate();
+	}
+
+	private void open() throws IOException {
+		File file = new File(directory,
+				String.format("env%d-%d-%06d%s", envId, run, episode, FILE_EXTENSION));
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		buffer.clear();
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(VehicleHandler.STATE_VECTOR_SIZE).putInt(envId)
+				.putLong(stepNanos).putInt(factors.length);
+		for (double factor : factors)
+			buffer.putDouble(factor);
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,336 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.TransportMetrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Lightweight alternative to the XML-RPC server. Commands are exchanged as
+ * fixed-size, length-prefixed frames in little-endian byte order over a plain
+ * TCP connection. Every frame starts with a 32-bit length of the remaining
+ * frame.
+ *
+ * <p>
+ * Request frames ({@value #REQUEST_SIZE} bytes after the length):
+ * <ol>
+ * <li>int32 opcode, {@link #OP_ACTION} or {@link #OP_RESET}</li>
+ * <li>int32 environment id, {@value #CONNECTION_ENVIRONMENT} for the
+ * environment assigned to the connection</li>
+ * <li>int32 duration in milliseconds (ignored for resets)</li>
+ * <li>int32 direction of the first arm (ignored for resets)</li>
+ * <li>int32 direction of the second arm (ignored for resets)</li>
+ * </ol>
+ *
+ * <p>
+ * Reply frames ({@value #REPLY_SIZE} bytes after the length):
+ * <ol>
+ * <li>int32 status, {@link #STATUS_OK} or {@link #STATUS_ERROR}</li>
+ * <li>float64[{@value VehicleHandler#STATE_VECTOR_SIZE}] state-vector (zeros
+ * for resets and errors)</li>
+ * </ol>
+ *
+ * <p>
+ * All sockets are served by a single selector thread that only moves bytes.
+ * The commands are executed by a fixed set of worker threads, environment
+ * {@code i} is always simulated by worker {@code i % workers}. Every
+ * environment is therefore confined to one thread. Clients of different
+ * environments only run in parallel if their environments map to different
+ * workers. With more environments than workers, environments sharing a
+ * worker are served one command at a time, and a long command delays the
+ * others queued on that worker. On connect, every connection is
+ * assigned the least used environment by {@link EnvironmentPool#attach()}.
+ * Requests of one connection are answered in order.
+ *
+ * <p>
+ * The transport metrics of the pool record as decode time how long the worker
+ * takes to read the fields of a request, and as encode time how long it takes
+ * to put the reply into the buffer. How long a complete request waits for its
+ * worker is recorded as queue time, how long a finished reply takes until it
+ * is written to the socket as write time.
+ */
+public final class BinaryRpcServer {
+
+	public static final int OP_ACTION = 1;
+	public static final int OP_RESET = 2;
+
+	public static final int STATUS_OK = 0;
+	public static final int STATUS_ERROR = 1;
+
+	public static final int CONNECTION_ENVIRONMENT = -1;
+
+	public static final int REQUEST_SIZE = 5 * 4;
+	public static final int REPLY_SIZE = 4 + VehicleHandler.STATE_VECTOR_SIZE * 8;
+
+	private final int port;
+	private final EnvironmentPool pool;
+	private final TransportMetrics metrics;
+	private final ExecutorService[] workers;
+	private final ConcurrentLinkedQueue<Connection> answered = new ConcurrentLinkedQueue<>();
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private Thread selectorThread;
+
+	/**
+	 * @param port        TCP port to listen on
+	 * @param pool        Environments to serve
+	 * @param workerCount Number of threads executing commands, at most one per
+	 *                    environment is used
+	 */
+	public BinaryRpcServer(int port, EnvironmentPool pool, int workerCount) {
+		this.port = port;
+		this.pool = pool;
+		metrics = pool.getMetrics().getBinaryRpc();
+		workers = new ExecutorService[Math.max(1, Math.min(workerCount, pool.size()))];
+		for (int i = 0; i < workers.length; ++i) {
+			String name = "BinaryRpcServer-worker-" + i;
+			workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Binds the server socket and starts serving connections in a background
+	 * thread.
+	 *
+	 * @throws IOException if the port could not be bound
+	 */
+	public void start() throws IOException {
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		selectorThread = new Thread(this::selectLoop, "BinaryRpcServer-selector");
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+
+	/**
+	 * Closes the server socket and all open connections and stops the worker
+	 * threads.
+	 */
+	public void shutdown() {
+		try {
+			if (selector != null)
+				selector.close();
+			if (serverChannel != null)
+				serverChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		for (ExecutorService worker : workers)
+			worker.shutdownNow();
+	}
+
+	private void selectLoop() {
+		try {
+			while (selector.isOpen()) {
+				selector.select();
+				Connection connection;
+				while ((connection = answered.poll()) != null)
+					connection.write();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable())
+						accept();
+					else if (key.isReadable())
+						((Connection) key.attachment()).read();
+					else if (key.isWritable())
+						((Connection) key.attachment()).write();
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			// regular shutdown
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Accepts one connection. A connection that cannot be set up is closed again
+	 * without affecting the other connections or the selector thread.
+	 */
+	private void accept() {
+		SocketChannel channel;
+		try {
+			channel = serverChannel.accept();
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		if (channel == null)
+			return;
+		int envId = -1;
+		try {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			channel.configureBlocking(false);
+			envId = pool.attach();
+			Connection connection = new Connection(channel, envId);
+			connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			if (envId >= 0)
+				pool.detach(envId);
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * State of one client connection. Buffers are only touched by the selector
+	 * thread while the connection is reading or writing, and only by the worker
+	 * while a request is executed, never by both at the same time.
+	 */
+	private final class Connection {
+		private final SocketChannel channel;
+		private final int envId;
+		private final ByteBuffer request = ByteBuffer.allocateDirect(4 + REQUEST_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final ByteBuffer reply = ByteBuffer.allocateDirect(4 + REPLY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final double[] state = new double[VehicleHandler.STATE_VECTOR_SIZE];
+		private final Runnable execution = this::execute;
+		private SelectionKey key;
+		private long receivedNanos;
+		private long executedNanos;
+
+		Connection(SocketChannel channel, int envId) {
+			this.channel = channel;
+			this.envId = envId;
+		}
+
+		void read() {
+			try {
+				if (channel.read(request) < 0) {
+					close();
+					return;
+				}
+				if (request.hasRemaining())
+					return;
+				request.flip();
+				int length = request.getInt();
+				if (length != REQUEST_SIZE)
+					throw new IOException("Invalid request frame length: " + length);
+				// stop reading until the reply is sent, so requests stay in order
+				key.interestOps(0);
+				receivedNanos = System.nanoTime();
+				workers[Math.floorMod(targetEnvironment(), workers.length)].execute(execution);
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+				close();
+			}
+		}
+
+		void write() {
+			try {
+				channel.write(reply);
+				if (reply.hasRemaining()) {
+					key.interestOps(SelectionKey.OP_WRITE);
+				} else {
+					metrics.getWrite().record(System.nanoTime() - executedNanos);
+					request.clear();
+					key.interestOps(SelectionKey.OP_READ);
+				}
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+				close();
+			}
+		}
+
+		private int targetEnvironment() {
+			int target = request.getInt(8);
+			return target == CONNECTION_ENVIRONMENT ? envId : target;
+		}
+
+		private void execute() {
+			long start = System.nanoTime();
+			metrics.getQueue().record(start - receivedNanos);
+			int opcode = request.getInt();
+			request.getInt(); // environment id, resolved by targetEnvironment()
+			int duration = request.getInt();
+			int arm1 = request.getInt();
+			int arm2 = request.getInt();
+			int envId = targetEnvironment();
+			long decoded = System.nanoTime();
+			metrics.getDecode().record(decoded - start);
+
+			int status = handle(opcode, envId, duration, arm1, arm2, state);
+
+			long executed = System.nanoTime();
+			reply.clear();
+			reply.putInt(REPLY_SIZE);
+			reply.putInt(status);
+			for (int i = 0; i < VehicleHandler.STATE_VECTOR_SIZE; ++i)
+				reply.putDouble(state[i]);
+			reply.flip();
+			executedNanos = System.nanoTime();
+			metrics.getEncode().record(executedNanos - executed);
+			answered.add(this);
+			selector.wakeup();
+		}
+
+		private void close() {
+			if (!channel.isOpen())
+				return;
+			pool.detach(envId);
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Executes a request.
+	 *
+	 * @param state Receives the state-vector of the reply, zeros for resets and
+	 *              errors
+	 * @return The status of the reply
+	 */
+	private int handle(int opcode, int envId, int duration, int arm1, int arm2, double[] state) {
+		try {
+			switch (opcode) {
+			case OP_ACTION:
+				pool.getHandler(envId).execute(duration, arm1, arm2, state, 0);
+				return STATUS_OK;
+			case OP_RESET:
+				pool.getHandler(envId).reset();
+				Arrays.fill(state, 0.0);
+				return STATUS_OK;
+			default:
+				Arrays.fill(state, 0.0);
+				return STATUS_ERROR;
+			}
+		} catch (RuntimeException ex) {
+			System.err.println(ex.getMessage());
+			Arrays.fill(state, 0.0);
+			return STATUS_ERROR;
+		}
+	}
+}
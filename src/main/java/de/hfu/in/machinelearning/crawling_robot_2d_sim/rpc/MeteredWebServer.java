@@ -0,0 +1,107 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.common.ServerStreamConnection;
+import org.apache.xmlrpc.common.XmlRpcStreamRequestConfig;
+import org.apache.xmlrpc.server.XmlRpcHttpServer;
+import org.apache.xmlrpc.server.XmlRpcStreamServer;
+import org.apache.xmlrpc.webserver.Connection;
+import org.apache.xmlrpc.webserver.RequestData;
+import org.apache.xmlrpc.webserver.WebServer;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.TransportMetrics;
+
+/**
+ * {@link WebServer} that records the time spent parsing XML-RPC requests
+ * (decode) and serializing and sending the replies and faults (encode).
+ */
+public class MeteredWebServer extends WebServer {
+
+	public MeteredWebServer(int port, TransportMetrics metrics) {
+		super(port);
+		// the server is created by the super constructor, before any field is set
+		((MeteredStreamServer) getXmlRpcServer()).metrics = metrics;
+	}
+
+	@Override
+	protected XmlRpcStreamServer newXmlRpcStreamServer() {
+		return new MeteredStreamServer();
+	}
+
+	/**
+	 * Writes replies to the {@link Connection} of a request like the package
+	 * private server of the {@link WebServer} does, and measures parsing and
+	 * writing, including faults.
+	 */
+	private static final class MeteredStreamServer extends XmlRpcHttpServer {
+
+		private volatile TransportMetrics metrics;
+
+		@Override
+		protected XmlRpcRequest getRequest(XmlRpcStreamRequestConfig config, InputStream stream)
+				throws XmlRpcException {
+			TransportMetrics metrics = this.metrics;
+			if (metrics == null)
+				return super.getRequest(config, stream);
+			long start = System.nanoTime();
+			XmlRpcRequest request = super.getRequest(config, stream);
+			metrics.getDecode().record(System.nanoTime() - start);
+			return request;
+		}
+
+		@Override
+		protected void writeResponse(XmlRpcStreamRequestConfig config, OutputStream stream, Object result)
+				throws XmlRpcException {
+			TransportMetrics metrics = this.metrics;
+			long start = System.nanoTime();
+			RequestData data = (RequestData) config;
+			try {
+				if (data.isByteArrayRequired()) {
+					super.writeResponse(config, stream, result);
+					data.getConnection().writeResponse(data, stream);
+				} else {
+					data.getConnection().writeResponseHeader(data, -1);
+					super.writeResponse(config, stream, result);
+					stream.flush();
+				}
+			} catch (IOException e) {
+				throw new XmlRpcException(e.getMessage(), e);
+			}
+			if (metrics != null)
+				metrics.getEncode().record(System.nanoTime() - start);
+		}
+
+		@Override
+		protected void writeError(XmlRpcStreamRequestConfig config, OutputStream stream, Throwable error)
+				throws XmlRpcException {
+			TransportMetrics metrics = this.metrics;
+			long start = System.nanoTime();
+			RequestData data = (RequestData) config;
+			try {
+				if (data.isByteArrayRequired()) {
+					super.writeError(config, stream, error);
+					data.getConnection().writeError(data, error, (ByteArrayOutputStream) stream);
+				} else {
+					data.getConnection().writeErrorHeader(data, error, -1);
+					super.writeError(config, stream, error);
+					stream.flush();
+				}
+			} catch (IOException e) {
+				throw new XmlRpcException(e.getMessage(), e);
+			}
+			if (metrics != null)
+				metrics.getEncode().record(System.nanoTime() - start);
+		}
+
+		@Override
+		protected void setResponseHeader(ServerStreamConnection connection, String header, String value) {
+			((Connection) connection).setResponseHeader(header, value);
+		}
+	}
+}
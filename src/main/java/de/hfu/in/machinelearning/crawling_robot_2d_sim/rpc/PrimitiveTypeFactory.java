@@ -0,0 +1,49 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import org.apache.xmlrpc.common.TypeFactoryImpl;
+import org.apache.xmlrpc.common.XmlRpcController;
+import org.apache.xmlrpc.common.XmlRpcStreamConfig;
+import org.apache.xmlrpc.serializer.ObjectArraySerializer;
+import org.apache.xmlrpc.serializer.TypeSerializer;
+import org.apache.xmlrpc.serializer.TypeSerializerImpl;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Type factory that writes {@code double[]} results directly as XML-RPC arrays
+ * of doubles. The default factory only knows arrays of objects, so without it
+ * every state-vector would have to be boxed into an {@code Object[]} first.
+ */
+public class PrimitiveTypeFactory extends TypeFactoryImpl {
+
+	private static final TypeSerializer DOUBLE_ARRAY_SERIALIZER = new DoubleArraySerializer();
+
+	public PrimitiveTypeFactory(XmlRpcController controller) {
+		super(controller);
+	}
+
+	@Override
+	public TypeSerializer getSerializer(XmlRpcStreamConfig config, Object object) throws SAXException {
+		if (object instanceof double[])
+			return DOUBLE_ARRAY_SERIALIZER;
+		return super.getSerializer(config, object);
+	}
+
+	private static class DoubleArraySerializer extends TypeSerializerImpl {
+
+		@Override
+		public void write(ContentHandler handler, Object object) throws SAXException {
+			double[] values = (double[]) object;
+			handler.startElement("", VALUE_TAG, VALUE_TAG, ZERO_ATTRIBUTES);
+			handler.startElement("", ObjectArraySerializer.ARRAY_TAG, ObjectArraySerializer.ARRAY_TAG,
+					ZERO_ATTRIBUTES);
+			handler.startElement("", ObjectArraySerializer.DATA_TAG, ObjectArraySerializer.DATA_TAG,
+					ZERO_ATTRIBUTES);
+			for (double value : values)
+				write(handler, "double", Double.toString(value));
+			handler.endElement("", ObjectArraySerializer.DATA_TAG, ObjectArraySerializer.DATA_TAG);
+			handler.endElement("", ObjectArraySerializer.ARRAY_TAG, ObjectArraySerializer.ARRAY_TAG);
+			handler.endElement("", VALUE_TAG, VALUE_TAG);
+		}
+	}
+}
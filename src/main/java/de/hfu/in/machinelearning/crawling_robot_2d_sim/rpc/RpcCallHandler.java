@@ -1,21 +1,84 @@
 package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.App;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.OffscreenRenderer;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
 import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.Metrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
 
 /**
  * Handles RPC-Calls. Calls are passed to the {@link SimulationHandler} of the
- * {@link App}-Instance.
+ * addressed environment in the {@link EnvironmentPool} of the
+ * {@link App}-Instance. Methods without an environment id address the first
+ * environment. State-vectors are returned as {@code double[]} and written by
+ * the {@link PrimitiveTypeFactory}.
  */
 public class RpcCallHandler {
 
-	public Object[] action(int duration, int arm1Direction, int arm2Direction) {
+	/**
+	 * Buffer for the state-vector of {@link #action(int, int, int, int)}. The
+	 * reply is serialized by the thread that executed the call before it serves
+	 * the next one, so the buffer can be reused for every call of that thread.
+	 */
+	private static final ThreadLocal<double[]> STATE_BUFFER = ThreadLocal
+			.withInitial(() -> new double[VehicleHandler.STATE_VECTOR_SIZE]);
+
+	public double[] action(int duration, int arm1Direction, int arm2Direction) {
+		return action(0, duration, arm1Direction, arm2Direction);
+	}
+
+	public double[] action(int envId, int duration, int arm1Direction, int arm2Direction) {
 		try {
-			double[] state = App.getHandler().execute(duration, arm1Direction, arm2Direction);
-			Object[] result = new Object[state.length];
-			for (int i = 0; i < state.length; ++i)
-				result[i] = state[i];
-			return result;
+			double[] state = STATE_BUFFER.get();
+			App.getPool().getHandler(envId).execute(duration, arm1Direction, arm2Direction, state, 0);
+			return state;
+		} catch (Exception ex) {
+			System.err.println(ex.getMessage());
+			ex.printStackTrace();
+			throw ex;
+		}
+	}
+
+	public double[] actionSequence(Object[] durations, Object[] arm1Directions, Object[] arm2Directions) {
+		return actionSequence(0, durations, arm1Directions, arm2Directions);
+	}
+
+	/**
+	 * Executes a sequence of commands back to back in one environment. The
+	 * {@code i}-th command is given by the {@code i}-th element of each array.
+	 * 
+	 * @return The state-vectors after each command as one flat array.
+	 */
+	public double[] actionSequence(int envId, Object[] durations, Object[] arm1Directions,
+			Object[] arm2Directions) {
+		try {
+			double[] trajectory = App.getPool().getHandler(envId).executeSequence(toIntArray(durations),
+					toIntArray(arm1Directions), toIntArray(arm2Directions));
+			return trajectory;
+		} catch (Exception ex) {
+			System.err.println(ex.getMessage());
+			ex.printStackTrace();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Executes one command per environment in parallel. Environment {@code i}
+	 * receives the {@code i}-th element of each array.
+	 * 
+	 * @return The state-vectors of all addressed environments as one flat array.
+	 */
+	public double[] stepBatch(Object[] durations, Object[] arm1Directions, Object[] arm2Directions) {
+		try {
+			double[] states = App.getPool().executeBatch(toIntArray(durations), toIntArray(arm1Directions),
+					toIntArray(arm2Directions));
+			return states;
 		} catch (Exception ex) {
 			System.err.println(ex.getMessage());
 			ex.printStackTrace();
@@ -24,7 +87,154 @@ public class RpcCallHandler {
 	}
 
 	public Object[] reset() {
-		App.getHandler().reset();
+		return reset(0);
+	}
+
+	public Object[] reset(int envId) {
+		App.getPool().getHandler(envId).reset();
+		return null;
+	}
+
+	public int saveState() {
+		return saveState(0);
+	}
+
+	/**
+	 * Saves the current state of an environment and returns a handle for
+	 * {@link #restoreState(int, int)}. Only a limited number of states is kept
+	 * per environment, the least recently used ones are evicted first.
+	 */
+	public int saveState(int envId) {
+		return App.getPool().saveState(envId);
+	}
+
+	public double[] restoreState(int handle) {
+		return restoreState(0, handle);
+	}
+
+	/**
+	 * Rewinds an environment to a saved state.
+	 * 
+	 * @return The state-vector of the restored state
+	 */
+	public double[] restoreState(int envId, int handle) {
+		App.getPool().restoreState(envId, handle);
+		return App.getPool().getSimulation(envId).getVehicleStateVector();
+	}
+
+	public Object[] releaseState(int envId, int handle) {
+		App.getPool().releaseState(envId, handle);
 		return null;
 	}
+
+	/**
+	 * Returns the step statistics of an environment: the length of a step in
+	 * seconds ({@code stepSeconds}), the number of steps taken so far
+	 * ({@code steps}) and the average number of steps per second of wall-clock
+	 * time spent in the physics engine ({@code stepsPerSecond}).
+	 */
+	public Map<String, Object> getStepStatistics(int envId) {
+		RobotSimulation simulation = App.getPool().getSimulation(envId);
+		Map<String, Object> statistics = new HashMap<>();
+		statistics.put("stepSeconds", simulation.getStepNanos() / 1.0e9);
+		statistics.put("steps", (double) simulation.getStepCount());
+		statistics.put("stepsPerSecond", simulation.getStepsPerSecond());
+		return statistics;
+	}
+
+	/**
+	 * Returns the factors the robot of an environment is currently varied by:
+	 * friction, density, torque of arm 1 and 2 and arm speed, see
+	 * {@link DomainRandomization}.
+	 */
+	public double[] getVehicleFactors(int envId) {
+		return App.getPool().getSimulation(envId).getVehicleFactors();
+	}
+
+	/**
+	 * Returns the latency histograms and step rates of all environments and
+	 * transports, see {@link Metrics#toMap()}.
+	 */
+	public Map<String, Object> metrics() {
+		return App.getPool().getMetrics().toMap();
+	}
+
+	public Map<String, Object> observe() {
+		return observe(0);
+	}
+
+	/**
+	 * Returns the current state-vector ({@code state}) of an environment together
+	 * with a rendered frame ({@code pixels}), see {@link #getObservationShape()}.
+	 */
+	public Map<String, Object> observe(int envId) {
+		Map<String, Object> observation = new HashMap<>();
+		observation.put("state", App.getPool().getSimulation(envId).getVehicleStateVector());
+		observation.put("pixels", App.getPool().observe(envId));
+		return observation;
+	}
+
+	public Map<String, Object> actionPixels(int duration, int arm1Direction, int arm2Direction) {
+		return actionPixels(0, duration, arm1Direction, arm2Direction);
+	}
+
+	/**
+	 * Same as {@link #action(int, int, int, int)}, but also returns the frame
+	 * rendered after the command. The result is structured like the one of
+	 * {@link #observe(int)}.
+	 */
+	public Map<String, Object> actionPixels(int envId, int duration, int arm1Direction, int arm2Direction) {
+		try {
+			Map<String, Object> observation = new HashMap<>();
+			observation.put("state",
+					App.getPool().getHandler(envId).execute(duration, arm1Direction, arm2Direction));
+			observation.put("pixels", App.getPool().observe(envId));
+			return observation;
+		} catch (Exception ex) {
+			System.err.println(ex.getMessage());
+			ex.printStackTrace();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns the format of the frames: {@code width} and {@code height} in pixels
+	 * and {@code channels}, the bytes per pixel (1 for grayscale, 3 for RGB).
+	 * Frames are packed row by row starting at the top.
+	 */
+	public Map<String, Object> getObservationShape() {
+		OffscreenRenderer renderer = App.getPool().getRenderer(0);
+		Map<String, Object> shape = new HashMap<>();
+		shape.put("width", renderer.getWidth());
+		shape.put("height", renderer.getHeight());
+		shape.put("channels", renderer.getChannels());
+		return shape;
+	}
+
+	/**
+	 * Assigns the least used environment to the calling client. Clients that run
+	 * in parallel should each attach once and pass the returned id to all other
+	 * calls, so they do not compete for the same environment.
+	 * 
+	 * @return The id of the assigned environment
+	 */
+	public int attach() {
+		return App.getPool().attach();
+	}
+
+	public Object[] detach(int envId) {
+		App.getPool().detach(envId);
+		return null;
+	}
+
+	public int getEnvironmentCount() {
+		return App.getPool().size();
+	}
+
+	private static int[] toIntArray(Object[] values) {
+		int[] result = new int[values.length];
+		for (int i = 0; i < values.length; ++i)
+			result[i] = ((Number) values[i]).intValue();
+		return result;
+	}
 }
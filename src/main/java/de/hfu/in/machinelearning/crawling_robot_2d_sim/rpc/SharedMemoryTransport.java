@@ -0,0 +1,219 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.TransportMetrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * Transport for agents running on the same host. Commands and state-vectors
+ * are exchanged through a ring buffer in a memory-mapped file, there are no
+ * sockets and no serialization involved. All values are stored in
+ * little-endian byte order.
+ *
+ * <p>
+ * File layout:
+ * <ul>
+ * <li>Offset 0: int32 magic ({@link #MAGIC}), int32 version, int32 number of
+ * slots, int32 slot size. The magic is written last, clients have to wait for
+ * it before using the buffer.</li>
+ * <li>Offset {@value #REQUEST_SEQUENCE}: int64 number of requests published by
+ * the client.</li>
+ * <li>Offset {@value #RESPONSE_SEQUENCE}: int64 number of requests answered by
+ * the simulation.</li>
+ * <li>Offset {@value #SLOTS}: the slots, {@value #SLOT_SIZE} bytes each.</li>
+ * </ul>
+ *
+ * Request {@code n} uses the slot {@code n % slots}. A slot contains int32
+ * opcode ({@link BinaryRpcServer#OP_ACTION} or {@link BinaryRpcServer#OP_RESET}),
+ * int32 environment id, int32 duration, int32 arm1 direction, int32 arm2
+ * direction, int32 status and float64[5] state-vector. The client fills the
+ * request fields of the slot and increments the request sequence afterwards.
+ * Once the response sequence is greater than {@code n}, status and state-vector
+ * of the slot are valid. A client may publish up to {@code slots} requests
+ * before waiting for the first response.
+ *
+ * <p>
+ * Both sequences are 8-byte aligned, so they are read and written at once.
+ * There is a full barrier between reading the request sequence and reading the
+ * slot, and between writing the slot and writing the response sequence, so the
+ * slot a sequence refers to is complete whenever the new value is seen.
+ * Clients have to do the same, e.g. with {@code std::atomic} in C++.
+ *
+ * <p>
+ * The serving thread spins for a short while when there is no request, then
+ * yields and finally parks for {@value #PARK_NANOS} nanoseconds at a time.
+ * The transport metrics of the pool record the time spent reading requests
+ * from and writing replies to the slots.
+ */
+public final class SharedMemoryTransport {
+
+	public static final int MAGIC = 0x48535243; // "CRSH" in little-endian
+	public static final int VERSION = 1;
+
+	public static final int REQUEST_SEQUENCE = 64;
+	public static final int RESPONSE_SEQUENCE = 128;
+	public static final int SLOTS = 192;
+	public static final int SLOT_SIZE = 64;
+
+	private static final int SLOT_OPCODE = 0;
+	private static final int SLOT_ENVIRONMENT = 4;
+	private static final int SLOT_DURATION = 8;
+	private static final int SLOT_ARM1 = 12;
+	private static final int SLOT_ARM2 = 16;
+	private static final int SLOT_STATUS = 20;
+	private static final int SLOT_STATE = 24;
+
+	private static final int SPIN_ITERATIONS = 10000;
+	private static final int YIELD_ITERATIONS = 100;
+	private static final long PARK_NANOS = 50000;
+
+	private final String fileName;
+	private final int slots;
+	private final EnvironmentPool pool;
+	private final TransportMetrics metrics;
+	private MappedByteBuffer buffer;
+	/** Only accessed by {@link #fullFence()}. */
+	private volatile int fence;
+	private final double[] state = new double[VehicleHandler.STATE_VECTOR_SIZE];
+	private Thread servingThread;
+	private volatile boolean running;
+
+	public SharedMemoryTransport(String fileName, int slots, EnvironmentPool pool) {
+		this.fileName = fileName;
+		this.slots = slots;
+		this.pool = pool;
+		metrics = pool.getMetrics().getSharedMemory();
+	}
+
+	/**
+	 * Creates (or truncates) the file, initializes the header and starts the
+	 * serving thread.
+	 *
+	 * @throws IOException if the file could not be created or mapped
+	 */
+	public void start() throws IOException {
+		int size = SLOTS + slots * SLOT_SIZE;
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+			file.setLength(0);
+			file.setLength(size);
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, slots);
+		buffer.putInt(12, SLOT_SIZE);
+		buffer.putLong(REQUEST_SEQUENCE, 0L);
+		buffer.putLong(RESPONSE_SEQUENCE, 0L);
+		// publish the header together with the magic
+		fullFence();
+		buffer.putInt(0, MAGIC);
+
+		running = true;
+		servingThread = new Thread(this::serve, "SharedMemoryTransport");
+		servingThread.setDaemon(true);
+		servingThread.start();
+	}
+
+	/**
+	 * Stops the serving thread. Requests that have not been answered yet are
+	 * dropped.
+	 */
+	public void shutdown() {
+		running = false;
+		if (servingThread != null)
+			LockSupport.unpark(servingThread);
+	}
+
+	private void serve() {
+		long next = 0;
+		int idle = 0;
+		while (running) {
+			long published = getAcquire(REQUEST_SEQUENCE);
+			if (next < published) {
+				handle(SLOTS + (int) (next % slots) * SLOT_SIZE);
+				setRelease(RESPONSE_SEQUENCE, ++next);
+				idle = 0;
+			} else if (idle < SPIN_ITERATIONS) {
+				++idle;
+			} else if (idle < SPIN_ITERATIONS + YIELD_ITERATIONS) {
+				++idle;
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * Reads a sequence, no later access of the buffer is done before this one.
+	 */
+	private long getAcquire(int offset) {
+		long value = buffer.getLong(offset);
+		fullFence();
+		return value;
+	}
+
+	/**
+	 * Writes a sequence, all earlier writes to the buffer are visible before
+	 * this one.
+	 */
+	private void setRelease(int offset, long value) {
+		fullFence();
+		buffer.putLong(offset, value);
+	}
+
+	/**
+	 * Keeps the accesses before and after this call in order. A volatile write
+	 * cannot move before earlier accesses, a volatile read cannot move after
+	 * later ones and both cannot be swapped, so together they act as a full
+	 * barrier without relying on JDK internals.
+	 *
+	 * @return The value just written, returned so the read is not dropped
+	 */
+	private int fullFence() {
+		fence = 0;
+		return fence;
+	}
+
+	private void handle(int slot) {
+		long start = System.nanoTime();
+		int opcode = buffer.getInt(slot + SLOT_OPCODE);
+		int envId = buffer.getInt(slot + SLOT_ENVIRONMENT);
+		int duration = buffer.getInt(slot + SLOT_DURATION);
+		int arm1 = buffer.getInt(slot + SLOT_ARM1);
+		int arm2 = buffer.getInt(slot + SLOT_ARM2);
+		metrics.getDecode().record(System.nanoTime() - start);
+		int status = BinaryRpcServer.STATUS_OK;
+		boolean hasState = false;
+		try {
+			switch (opcode) {
+			case BinaryRpcServer.OP_ACTION:
+				pool.getHandler(envId).execute(duration, arm1, arm2, state, 0);
+				hasState = true;
+				break;
+			case BinaryRpcServer.OP_RESET:
+				pool.getHandler(envId).reset();
+				break;
+			default:
+				status = BinaryRpcServer.STATUS_ERROR;
+				break;
+			}
+		} catch (RuntimeException ex) {
+			System.err.println(ex.getMessage());
+			status = BinaryRpcServer.STATUS_ERROR;
+			hasState = false;
+		}
+		start = System.nanoTime();
+		buffer.putInt(slot + SLOT_STATUS, status);
+		for (int i = 0; i < VehicleHandler.STATE_VECTOR_SIZE; ++i)
+			buffer.putDouble(slot + SLOT_STATE + i * 8, hasState ? state[i] : 0.0);
+		metrics.getEncode().record(System.nanoTime() - start);
+	}
+}
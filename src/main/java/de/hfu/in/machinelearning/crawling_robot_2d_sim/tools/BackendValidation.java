@@ -0,0 +1,152 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationBackend;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
+
+/**
+ * Validates the {@link SimulationBackend.Type#REDUCED} backend against the
+ * trajectories of the {@link SimulationBackend.Type#DYN4J} backend. Every gait
+ * is executed as one episode with both backends and the state-vectors after
+ * every command are compared component by component. A gait passes if the
+ * maximum deviation of every component stays within its tolerance. The steps
+ * per second of wall-clock time of both backends are measured as well, after
+ * a round over all gaits to warm up.
+ *
+ * <p>
+ * The gaits are given by {@code validation.gaits}, separated by {@code ;},
+ * each in the format of {@link ScriptedGait#parse(String, int)} and repeated
+ * {@code validation.cycles} times. The tolerances are
+ * {@code validation.distanceTolerance} for the distance,
+ * {@code validation.angleTolerance} for the arm and body angles and
+ * {@code validation.speedTolerance} for the velocity.
+ *
+ * <p>
+ * The joints of dyn4j give way a little under load, so its arm angles drift by
+ * a few hundredths of a radian per command while the reduced coordinates follow
+ * the motors exactly. The drift adds up over an episode, so the default of two
+ * cycles keeps episodes short enough to compare.
+ */
+public final class BackendValidation {
+
+	/** Gaits moving forward, backward and waving the arms in the air. */
+	public static final String DEFAULT_GAITS = ScriptedGait.DEFAULT + ";500:-1:0,800:0:1,500:1:0,800:0:-1;"
+			+ "600:-1:1,600:1:-1;400:-1:0,800:0:1,400:1:0,800:0:-1";
+
+	private final SimulationConfiguration base;
+	private final ScriptedGait[] gaits;
+	private final double[] tolerances;
+
+	/**
+	 * @param base       World, floor and robot of all runs, the backend is
+	 *                   replaced
+	 * @param gaits      Gaits to compare
+	 * @param tolerances Maximum deviation of every component of the
+	 *                   state-vector
+	 */
+	public BackendValidation(SimulationConfiguration base, ScriptedGait[] gaits, double[] tolerances) {
+		this.base = base;
+		this.gaits = gaits;
+		this.tolerances = tolerances;
+	}
+
+	/**
+	 * Creates a validation configured by the settings described above.
+	 *
+	 * @return
+	 */
+	public static BackendValidation fromSettings() {
+		String[] gaits = Settings.getString("validation.gaits", DEFAULT_GAITS).split(";");
+		int cycles = Settings.getInteger("validation.cycles", 2);
+		ScriptedGait[] parsed = new ScriptedGait[gaits.length];
+		for (int i = 0; i < gaits.length; ++i)
+			parsed[i] = ScriptedGait.parse(gaits[i], cycles);
+		double angle = Settings.getDouble("validation.angleTolerance", 0.05);
+		return new BackendValidation(SimulationConfiguration.fromSettings(), parsed,
+				new double[] { Settings.getDouble("validation.distanceTolerance", 0.05), angle, angle, angle,
+						Settings.getDouble("validation.speedTolerance", 0.1) });
+	}
+
+	/**
+	 * Runs all gaits with both backends, prints one line per gait and writes the
+	 * results as CSV: the gait, the steps per second and the distance of both
+	 * backends, the maximum deviation of every component of the state-vector and
+	 * whether all of them are within the tolerances.
+	 *
+	 * @param csv File for the results
+	 * @return Whether all gaits passed
+	 * @throws IOException if the file could not be written
+	 */
+	public boolean run(File csv) throws IOException {
+		int commands = 0;
+		for (ScriptedGait gait : gaits)
+			commands += gait.getCommandCount();
+		System.out.println(String.format(Texts.get("Validation.start"), gaits.length, commands));
+		SimulationBackend.Type[] types = SimulationBackend.Type.values();
+		// warm up the JIT with all backends, so the order does not matter
+		for (ScriptedGait gait : gaits)
+			for (SimulationBackend.Type type : types)
+				measure(type, gait);
+
+		int passed = 0;
+		double[] totalStepsPerSecond = new double[types.length];
+		try (PrintWriter out = new PrintWriter(csv, "UTF-8")) {
+			out.println("gait,dyn4jStepsPerSecond,reducedStepsPerSecond,dyn4jDistance,reducedDistance,"
+					+ "maxDistanceDeviation,maxArm1Deviation,maxArm2Deviation,maxBodyAngleDeviation,"
+					+ "maxSpeedDeviation,passed");
+			for (ScriptedGait gait : gaits) {
+				ScriptedGait.Result reference = measure(SimulationBackend.Type.DYN4J, gait);
+				ScriptedGait.Result reduced = measure(SimulationBackend.Type.REDUCED, gait);
+				totalStepsPerSecond[SimulationBackend.Type.DYN4J.ordinal()] += reference.getStepsPerSecond();
+				totalStepsPerSecond[SimulationBackend.Type.REDUCED.ordinal()] += reduced.getStepsPerSecond();
+				double[] deviation = deviation(reduced.getTrajectory(), reference.getTrajectory());
+				boolean pass = true;
+				StringBuilder deviations = new StringBuilder();
+				for (int i = 0; i < deviation.length; ++i) {
+					pass &= deviation[i] <= tolerances[i];
+					deviations.append(',').append(deviation[i]);
+				}
+				if (pass)
+					++passed;
+				String name = gait.toString();
+				out.println(name + "," + reference.getStepsPerSecond() + "," + reduced.getStepsPerSecond() + ","
+						+ reference.getDistance() + "," + reduced.getDistance() + deviations + "," + pass);
+				System.out.println(String.format(Texts.get("Validation.run"), name, reference.getDistance(),
+						reduced.getDistance(), deviation[0], Math.max(deviation[1], deviation[2]), deviation[3],
+						deviation[4], Texts.get(pass ? "Validation.passed" : "Validation.failed")));
+			}
+		}
+		System.out.println(String.format(Texts.get("Validation.summary"), passed, gaits.length,
+				totalStepsPerSecond[SimulationBackend.Type.DYN4J.ordinal()] / gaits.length,
+				totalStepsPerSecond[SimulationBackend.Type.REDUCED.ordinal()] / gaits.length, csv));
+		return passed == gaits.length;
+	}
+
+	private ScriptedGait.Result measure(SimulationBackend.Type type, ScriptedGait gait) {
+		return gait.run(new RobotSimulation(base.withBackend(type)));
+	}
+
+	/**
+	 * Returns the maximum absolute deviation of every component of the
+	 * state-vectors of two trajectories.
+	 */
+	static double[] deviation(double[] trajectory, double[] reference) {
+		double[] max = new double[VehicleHandler.STATE_VECTOR_SIZE];
+		for (int i = 0; i < trajectory.length; ++i) {
+			int component = i % VehicleHandler.STATE_VECTOR_SIZE;
+			double difference = trajectory[i] - reference[i];
+			// the body angle is wrapped to (-pi, pi]
+			if (component == 3)
+				difference = Math.IEEEremainder(difference, 2.0 * Math.PI);
+			max[component] = Math.max(max[component], Math.abs(difference));
+		}
+		return max;
+	}
+}
@@ -0,0 +1,183 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
+
+/**
+ * Runs a scripted gait on many robots with different physical parameters in
+ * parallel. Every combination of the swept values gets a simulation of its
+ * own, see {@link VehicleConfiguration}, so no restart is needed between
+ * runs. For every run the distance per simulated second and the steps per
+ * second of wall-clock time are reported.
+ *
+ * <p>
+ * The values of a parameter are given by the setting {@code sweep.<key>} as a
+ * comma separated list, e.g. {@code sweep.robot.armSpeed=0.5,0.785,1.0}.
+ * Parameters that are not swept keep their value from the settings. The gait
+ * is given by {@code sweep.gait} in the format of
+ * {@link ScriptedGait#parse(String, int)} and is repeated {@code sweep.cycles}
+ * times.
+ */
+public final class ParameterSweep {
+
+	private final SimulationConfiguration base;
+	private final List<VehicleConfiguration> configurations;
+	private final ScriptedGait gait;
+	private final int threads;
+
+	/**
+	 * @param base           World and floor of all runs
+	 * @param configurations Robots to simulate, one run each
+	 * @param gait           Gait executed by every robot
+	 * @param threads        Number of runs executed at the same time
+	 */
+	public ParameterSweep(SimulationConfiguration base, List<VehicleConfiguration> configurations, ScriptedGait gait,
+			int threads) {
+		this.base = base;
+		this.configurations = configurations;
+		this.gait = gait;
+		this.threads = Math.max(1, Math.min(threads, configurations.size()));
+	}
+
+	/**
+	 * Creates a sweep configured by the settings described above, using one
+	 * thread per core.
+	 *
+	 * @return
+	 */
+	public static ParameterSweep fromSettings() {
+		Map<String, double[]> values = new LinkedHashMap<>();
+		for (String key : VehicleConfiguration.KEYS) {
+			String list = Settings.getString("sweep." + key);
+			if (list != null)
+				values.put(key, parseList(list));
+		}
+		SimulationConfiguration base = SimulationConfiguration.fromSettings();
+		return new ParameterSweep(base, grid(base.vehicle, values),
+				ScriptedGait.parse(Settings.getString("sweep.gait", ScriptedGait.DEFAULT),
+						Settings.getInteger("sweep.cycles", 20)),
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns all combinations of the given values.
+	 *
+	 * @param base   Configuration providing the parameters that are not swept
+	 * @param values Values of the swept parameters by key
+	 * @return
+	 */
+	public static List<VehicleConfiguration> grid(VehicleConfiguration base, Map<String, double[]> values) {
+		List<VehicleConfiguration> configurations = new ArrayList<>();
+		configurations.add(base);
+		for (Map.Entry<String, double[]> entry : values.entrySet()) {
+			List<VehicleConfiguration> expanded = new ArrayList<>();
+			for (VehicleConfiguration configuration : configurations) {
+				for (double value : entry.getValue()) {
+					Map<String, Double> change = new LinkedHashMap<>();
+					change.put(entry.getKey(), value);
+					expanded.add(configuration.with(change));
+				}
+			}
+			configurations = expanded;
+		}
+		return configurations;
+	}
+
+	private static double[] parseList(String list) {
+		String[] parts = list.split(",");
+		double[] values = new double[parts.length];
+		for (int i = 0; i < parts.length; ++i)
+			values[i] = Double.parseDouble(parts[i].trim());
+		return values;
+	}
+
+	/**
+	 * Executes all runs, prints one line per run and writes the results as CSV:
+	 * all robot parameters followed by {@code distance},
+	 * {@code distancePerSecond}, {@code steps} and {@code stepsPerSecond}.
+	 *
+	 * @param csv File for the results
+	 * @throws IOException          if the file could not be written
+	 * @throws InterruptedException if interrupted while waiting for the runs,
+	 *                              the runs are stopped and no file is written
+	 *                              then
+	 */
+	public void run(File csv) throws IOException, InterruptedException {
+		System.out.println(String.format(Texts.get("Sweep.start"), configurations.size(), threads,
+				gait.getCommandCount()));
+		long start = System.nanoTime();
+		List<Future<ScriptedGait.Result>> futures = new ArrayList<>();
+		List<ScriptedGait.Result> results = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (VehicleConfiguration configuration : configurations)
+				futures.add(executor.submit(() -> gait.run(new RobotSimulation(base.withVehicle(configuration)))));
+			for (Future<ScriptedGait.Result> future : futures)
+				results.add(future.get());
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - start) / 1.0e9;
+
+		boolean[] swept = findSweptParameters();
+		try (PrintWriter out = new PrintWriter(csv, "UTF-8")) {
+			out.println(String.join(",", VehicleConfiguration.KEYS) + ",distance,distancePerSecond,steps,stepsPerSecond");
+			for (int i = 0; i < results.size(); ++i) {
+				VehicleConfiguration configuration = configurations.get(i);
+				ScriptedGait.Result result = results.get(i);
+				StringBuilder line = new StringBuilder();
+				for (double value : configuration.toArray())
+					line.append(value).append(',');
+				line.append(result.getDistance()).append(',').append(result.getDistancePerSecond()).append(',')
+						.append(result.getSteps()).append(',').append(result.getStepsPerSecond());
+				out.println(line);
+				System.out.println(String.format(Texts.get("Sweep.run"), describe(configuration, swept),
+						result.getDistancePerSecond(), result.getStepsPerSecond()));
+			}
+		}
+		System.out.println(String.format(Texts.get("Sweep.summary"), results.size(), seconds, csv));
+	}
+
+	/**
+	 * Returns which parameters differ between the configurations.
+	 */
+	private boolean[] findSweptParameters() {
+		double[] base = configurations.get(0).toArray();
+		boolean[] swept = new boolean[base.length];
+		for (VehicleConfiguration configuration : configurations) {
+			double[] values = configuration.toArray();
+			for (int i = 0; i < values.length; ++i)
+				swept[i] |= values[i] != base[i];
+		}
+		return swept;
+	}
+
+	/**
+	 * Returns the swept parameters of a configuration, for the console output.
+	 */
+	private static String describe(VehicleConfiguration configuration, boolean[] swept) {
+		double[] values = configuration.toArray();
+		StringBuilder description = new StringBuilder();
+		for (int i = 0; i < values.length; ++i)
+			if (swept[i])
+				description.append(VehicleConfiguration.KEYS[i]).append('=').append(values[i]).append(' ');
+		return description.toString().trim();
+	}
+}
@@ -0,0 +1,121 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.PhysicsProfile;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Texts;
+
+/**
+ * Measures the cost and the accuracy of every {@link PhysicsProfile}. A
+ * scripted gait is executed as one episode per repetition, one profile after
+ * the other on a single thread, after a round over all profiles to warm up.
+ * For every profile the steps per second of wall-clock time, the simulated
+ * seconds per second and the deviation of its trajectory from the one of
+ * {@link PhysicsProfile#ACCURATE} are reported.
+ *
+ * <p>
+ * The gait is given by {@code profile.gait} in the format of
+ * {@link ScriptedGait#parse(String, int)} and repeated
+ * {@code profile.cycles} times, each profile runs {@code profile.repetitions}
+ * measured episodes after one for warm-up.
+ */
+public final class ProfileReport {
+
+	private final SimulationConfiguration base;
+	private final ScriptedGait gait;
+	private final int repetitions;
+
+	/**
+	 * @param base        World, floor and robot of all runs
+	 * @param gait        Gait executed with every profile
+	 * @param repetitions Number of measured episodes per profile
+	 */
+	public ProfileReport(SimulationConfiguration base, ScriptedGait gait, int repetitions) {
+		this.base = base;
+		this.gait = gait;
+		this.repetitions = Math.max(1, repetitions);
+	}
+
+	/**
+	 * Creates a report configured by the settings described above.
+	 *
+	 * @return
+	 */
+	public static ProfileReport fromSettings() {
+		return new ProfileReport(SimulationConfiguration.fromSettings(),
+				ScriptedGait.parse(Settings.getString("profile.gait", ScriptedGait.DEFAULT),
+						Settings.getInteger("profile.cycles", 20)),
+				Settings.getInteger("profile.repetitions", 5));
+	}
+
+	/**
+	 * Measures all profiles, prints one line per profile and writes the results
+	 * as CSV: the settings of the profile followed by {@code stepsPerSecond},
+	 * {@code simulatedSecondsPerSecond}, {@code distance},
+	 * {@code maxDistanceDeviation} and {@code rmsStateDeviation}.
+	 *
+	 * @param csv File for the results
+	 * @throws IOException if the file could not be written
+	 */
+	public void run(File csv) throws IOException {
+		PhysicsProfile[] profiles = PhysicsProfile.values();
+		System.out.println(String.format(Texts.get("Profile.start"), profiles.length, repetitions,
+				gait.getCommandCount()));
+		// warm up the JIT with all profiles, so the order does not matter
+		for (PhysicsProfile profile : profiles)
+			measure(profile);
+		ScriptedGait.Result[] results = new ScriptedGait.Result[profiles.length];
+		for (PhysicsProfile profile : profiles)
+			results[profile.ordinal()] = measure(profile);
+		double[] reference = results[PhysicsProfile.ACCURATE.ordinal()].getTrajectory();
+
+		try (PrintWriter out = new PrintWriter(csv, "UTF-8")) {
+			out.println("profile,stepFrequency,velocityIterations,positionIterations,continuousDetection,sleeping,"
+					+ "sweepAndPrune,stepsPerSecond,simulatedSecondsPerSecond,distance,maxDistanceDeviation,"
+					+ "rmsStateDeviation");
+			for (PhysicsProfile profile : profiles) {
+				ScriptedGait.Result result = results[profile.ordinal()];
+				double[] deviation = deviation(result.getTrajectory(), reference);
+				out.println(profile + "," + profile.stepFrequency + "," + profile.velocityIterations + ","
+						+ profile.positionIterations + "," + profile.continuousDetection + "," + profile.sleeping + ","
+						+ profile.sweepAndPrune + "," + result.getStepsPerSecond() + ","
+						+ result.getSimulatedSecondsPerSecond() + "," + result.getDistance() + "," + deviation[0]
+						+ "," + deviation[1]);
+				System.out.println(String.format(Texts.get("Profile.run"), profile, result.getStepsPerSecond(),
+						result.getSimulatedSecondsPerSecond(), result.getDistance(), deviation[0], deviation[1]));
+			}
+		}
+		System.out.println(String.format(Texts.get("Profile.summary"), csv));
+	}
+
+	private ScriptedGait.Result measure(PhysicsProfile profile) {
+		RobotSimulation simulation = new RobotSimulation(base.withPhysics(profile));
+		// one episode for warm-up, every episode has the same trajectory
+		gait.run(simulation);
+		return gait.run(simulation, repetitions);
+	}
+
+	/**
+	 * Compares two trajectories command by command.
+	 *
+	 * @return The maximum deviation of the distance and the root mean square
+	 *         deviation of all values of the state-vectors
+	 */
+	private static double[] deviation(double[] trajectory, double[] reference) {
+		double maxDistance = 0.0;
+		double squares = 0.0;
+		for (int i = 0; i < trajectory.length; ++i) {
+			double difference = trajectory[i] - reference[i];
+			if (i % VehicleHandler.STATE_VECTOR_SIZE == 0)
+				maxDistance = Math.max(maxDistance, Math.abs(difference));
+			squares += difference * difference;
+		}
+		return new double[] { maxDistance, Math.sqrt(squares / trajectory.length) };
+	}
+}
@@ -0,0 +1,193 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.tools;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+/**
+ * A fixed sequence of commands, one cycle of a gait repeated a number of
+ * times. Gaits are written as comma separated commands of the form
+ * {@code duration:arm1:arm2}, see {@link #parse(String, int)}.
+ */
+public final class ScriptedGait {
+
+	/** Crawls forward by lifting, pulling and lowering the arm. */
+	public static final String DEFAULT = "500:1:0,800:0:1,500:-1:0,800:0:-1";
+
+	private final int[][] cycle;
+	private final int[] durations;
+	private final int[] arm1Directions;
+	private final int[] arm2Directions;
+	private final double simulatedSeconds;
+
+	/**
+	 * @param cycle  One {@code {duration, arm1, arm2}} array per command of one
+	 *               cycle
+	 * @param cycles Number of times the cycle is repeated
+	 */
+	public ScriptedGait(int[][] cycle, int cycles) {
+		this.cycle = cycle;
+		int count = cycle.length * cycles;
+		durations = new int[count];
+		arm1Directions = new int[count];
+		arm2Directions = new int[count];
+		double seconds = 0.0;
+		for (int i = 0; i < count; ++i) {
+			int[] command = cycle[i % cycle.length];
+			durations[i] = command[0];
+			arm1Directions[i] = command[1];
+			arm2Directions[i] = command[2];
+			seconds += command[0] / 1000.0;
+		}
+		simulatedSeconds = seconds;
+	}
+
+	/**
+	 * Parses one cycle of comma separated commands of the form
+	 * {@code duration:arm1:arm2}.
+	 *
+	 * @param gait
+	 * @param cycles Number of times the cycle is repeated
+	 * @return
+	 * @throws IllegalArgumentException if a command is malformed
+	 */
+	public static ScriptedGait parse(String gait, int cycles) {
+		String[] commands = gait.split(",");
+		int[][] cycle = new int[commands.length][];
+		for (int i = 0; i < commands.length; ++i) {
+			String[] parts = commands[i].trim().split(":");
+			if (parts.length != 3)
+				throw new IllegalArgumentException("Invalid gait command: " + commands[i]);
+			cycle[i] = new int[] { Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+					Integer.parseInt(parts[2].trim()) };
+		}
+		return new ScriptedGait(cycle, cycles);
+	}
+
+	/**
+	 * Returns the number of commands of all cycles.
+	 *
+	 * @return
+	 */
+	public int getCommandCount() {
+		return durations.length;
+	}
+
+	/**
+	 * Executes the gait as one episode, see
+	 * {@link HeadlessSimulationHandler#executeEpisode(int[], int[], int[])}.
+	 *
+	 * @param simulation
+	 * @return
+	 */
+	public Result run(RobotSimulation simulation) {
+		return run(simulation, 1);
+	}
+
+	/**
+	 * Executes the gait as {@code episodes} episodes one after the other.
+	 *
+	 * @param simulation
+	 * @param episodes
+	 * @return The trajectory of the last episode and the totals of all episodes
+	 */
+	public Result run(RobotSimulation simulation, int episodes) {
+		HeadlessSimulationHandler handler = new HeadlessSimulationHandler(simulation);
+		long steps = simulation.getStepCount();
+		double[] trajectory = null;
+		long start = System.nanoTime();
+		for (int i = 0; i < episodes; ++i)
+			trajectory = handler.executeEpisode(durations, arm1Directions, arm2Directions);
+		long elapsedNanos = System.nanoTime() - start;
+		return new Result(trajectory, episodes, simulation.getStepCount() - steps, simulatedSeconds * episodes,
+				elapsedNanos);
+	}
+
+	/**
+	 * Returns one cycle in the format of {@link #parse(String, int)}, separated
+	 * by spaces instead of commas so it fits into a CSV column.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int[] command : cycle) {
+			if (builder.length() > 0)
+				builder.append(' ');
+			builder.append(command[0]).append(':').append(command[1]).append(':').append(command[2]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Trajectory and cost of executing a gait.
+	 */
+	public static final class Result {
+		private final double[] trajectory;
+		private final int episodes;
+		private final long steps;
+		private final double simulatedSeconds;
+		private final long elapsedNanos;
+
+		Result(double[] trajectory, int episodes, long steps, double simulatedSeconds, long elapsedNanos) {
+			this.trajectory = trajectory;
+			this.episodes = episodes;
+			this.steps = steps;
+			this.simulatedSeconds = simulatedSeconds;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * Returns the state-vectors after every command of the last episode.
+		 *
+		 * @return
+		 */
+		public double[] getTrajectory() {
+			return trajectory;
+		}
+
+		/**
+		 * Returns the distance at the end of the last episode.
+		 *
+		 * @return
+		 */
+		public double getDistance() {
+			return trajectory[trajectory.length - VehicleHandler.STATE_VECTOR_SIZE];
+		}
+
+		/**
+		 * Returns the distance of the last episode per simulated second.
+		 *
+		 * @return
+		 */
+		public double getDistancePerSecond() {
+			return getDistance() * episodes / simulatedSeconds;
+		}
+
+		/**
+		 * Returns the number of steps of all episodes.
+		 *
+		 * @return
+		 */
+		public long getSteps() {
+			return steps;
+		}
+
+		/**
+		 * Returns the steps per second of wall-clock time.
+		 *
+		 * @return
+		 */
+		public double getStepsPerSecond() {
+			return steps * 1.0e9 / elapsedNanos;
+		}
+
+		/**
+		 * Returns the simulated seconds per second of wall-clock time.
+		 *
+		 * @return
+		 */
+		public double getSimulatedSecondsPerSecond() {
+			return simulatedSeconds * 1.0e9 / elapsedNanos;
+		}
+	}
+}
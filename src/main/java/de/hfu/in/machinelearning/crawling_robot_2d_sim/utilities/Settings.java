@@ -57,6 +57,17 @@ public final class Settings {
 			return defaultValue;
 	}
 
+	public static long getLong(String key) {
+		return Long.parseLong(getString(key));
+	}
+
+	public static long getLong(String key, long defaultValue) {
+		if (properties.containsKey(key))
+			return getLong(key);
+		else
+			return defaultValue;
+	}
+
 	public static double getDouble(String key) {
 		return Double.parseDouble(getString(key));
 	}
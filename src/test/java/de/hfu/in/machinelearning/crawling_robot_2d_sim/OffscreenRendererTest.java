@@ -0,0 +1,68 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class OffscreenRendererTest extends TestCase {
+
+	private static RobotSimulation createSimulation() {
+		return new RobotSimulation(SimulationConfiguration.read((key, defaultValue) -> defaultValue));
+	}
+
+	private static byte[] render(OffscreenRenderer renderer, RobotSimulation simulation) {
+		byte[] pixels = new byte[renderer.getFrameSize()];
+		renderer.render(simulation, pixels, 0);
+		return pixels;
+	}
+
+	private static boolean isBlank(byte[] pixels) {
+		for (byte pixel : pixels)
+			if (pixel != (byte) 0xff)
+				return false;
+		return true;
+	}
+
+	public void testFrameSizes() {
+		OffscreenRenderer gray = new OffscreenRenderer(84, 64, 8.0, true);
+		assertEquals(1, gray.getChannels());
+		assertEquals(84 * 64, gray.getFrameSize());
+		OffscreenRenderer color = new OffscreenRenderer(84, 64, 8.0, false);
+		assertEquals(3, color.getChannels());
+		assertEquals(84 * 64 * 3, color.getFrameSize());
+	}
+
+	public void testRobotIsDrawn() {
+		RobotSimulation simulation = createSimulation();
+		assertFalse(isBlank(render(new OffscreenRenderer(84, 84, 8.0, true), simulation)));
+		assertFalse(isBlank(render(new OffscreenRenderer(84, 84, 8.0, false), simulation)));
+	}
+
+	public void testSameStateGivesSameFrame() {
+		OffscreenRenderer renderer = new OffscreenRenderer(84, 84, 8.0, false);
+		RobotSimulation first = createSimulation();
+		RobotSimulation second = createSimulation();
+		first.applyCommand(1, 1);
+		first.update(300000000L);
+		second.applyCommand(1, 1);
+		second.update(300000000L);
+		byte[] frame = render(renderer, first);
+		assertTrue(Arrays.equals(frame, render(renderer, second)));
+		// the reused image must not leak the previous frame
+		assertTrue(Arrays.equals(frame, render(renderer, first)));
+		assertFalse(Arrays.equals(frame, render(renderer, createSimulation())));
+	}
+
+	public void testFrameIsWrittenAtOffset() {
+		OffscreenRenderer renderer = new OffscreenRenderer(32, 24, 8.0, false);
+		RobotSimulation simulation = createSimulation();
+		byte[] target = new byte[renderer.getFrameSize() + 10];
+		Arrays.fill(target, (byte) 7);
+		renderer.render(simulation, target, 5);
+		for (int i = 0; i < 5; ++i) {
+			assertEquals(7, target[i]);
+			assertEquals(7, target[target.length - 1 - i]);
+		}
+		assertTrue(Arrays.equals(render(renderer, simulation), Arrays.copyOfRange(target, 5, target.length - 5)));
+	}
+}
@@ -0,0 +1,38 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.tools.ScriptedGait;
+
+import junit.framework.TestCase;
+
+public class PhysicsProfileTest extends TestCase {
+
+	/** The gait of the profile report. */
+	private static final ScriptedGait GAIT = ScriptedGait.parse(ScriptedGait.DEFAULT, 20);
+
+	private static ScriptedGait.Result run(PhysicsProfile profile) {
+		return GAIT.run(new RobotSimulation(RobotSimulationTest.defaults().withPhysics(profile)));
+	}
+
+	public void testProfilesStayWithinDeviationBudget() {
+		ScriptedGait.Result reference = run(PhysicsProfile.ACCURATE);
+		double budget = PhysicsProfile.MAX_DISTANCE_DEVIATION * Math.abs(reference.getDistance());
+		for (PhysicsProfile profile : PhysicsProfile.values()) {
+			double[] trajectory = run(profile).getTrajectory();
+			for (int i = 0; i < trajectory.length; i += VehicleHandler.STATE_VECTOR_SIZE)
+				assertTrue(profile + " after command " + i / VehicleHandler.STATE_VECTOR_SIZE,
+						Math.abs(trajectory[i] - reference.getTrajectory()[i]) <= budget);
+		}
+	}
+
+	public void testNamesIgnoreCase() {
+		assertEquals(PhysicsProfile.BALANCED, PhysicsProfile.forName(" balanced "));
+		assertEquals(PhysicsProfile.ACCURATE, PhysicsProfile.forName("Accurate"));
+		try {
+			PhysicsProfile.forName("fast");
+			fail("Selected a dropped profile");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dyn4j.dynamics.Body;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+
+import junit.framework.TestCase;
+
+public class RobotSimulationTest extends TestCase {
+
+	private static final int[] DURATIONS = { 500, 800, 500, 800 };
+	private static final int[] ARM1_DIRECTIONS = { 1, 0, -1, 0 };
+	private static final int[] ARM2_DIRECTIONS = { 0, 1, 0, -1 };
+
+	/**
+	 * Returns the defaults of the simulation, independent of the settings file.
+	 */
+	static SimulationConfiguration defaults() {
+		return SimulationConfiguration.read((key, defaultValue) -> defaultValue);
+	}
+
+	private static SimulationConfiguration randomized(long seed) {
+		Map<String, Double> values = new HashMap<>();
+		values.put("randomization.friction", 0.2);
+		values.put("randomization.density", 0.2);
+		values.put("randomization.torque", 0.2);
+		values.put("randomization.armSpeed", 0.2);
+		values.put("randomization.seed", (double) seed);
+		return SimulationConfiguration.read((key, defaultValue) -> values.getOrDefault(key, defaultValue));
+	}
+
+	/**
+	 * Asserts that the state-vectors and all bodies of both simulations are
+	 * bit-identical.
+	 */
+	static void assertSameState(RobotSimulation expected, RobotSimulation actual) {
+		assertTrue(Arrays.equals(expected.getVehicleStateVector(), actual.getVehicleStateVector()));
+		List<Body> expectedBodies = expected.getWorldBodies();
+		List<Body> actualBodies = actual.getWorldBodies();
+		assertEquals(expectedBodies.size(), actualBodies.size());
+		for (int i = 0; i < expectedBodies.size(); ++i) {
+			Body a = expectedBodies.get(i);
+			Body b = actualBodies.get(i);
+			assertEquals(a.getTransform().getTranslationX(), b.getTransform().getTranslationX(), 0.0);
+			assertEquals(a.getTransform().getTranslationY(), b.getTransform().getTranslationY(), 0.0);
+			assertEquals(a.getTransform().getRotation(), b.getTransform().getRotation(), 0.0);
+			assertEquals(a.getLinearVelocity().x, b.getLinearVelocity().x, 0.0);
+			assertEquals(a.getLinearVelocity().y, b.getLinearVelocity().y, 0.0);
+			assertEquals(a.getAngularVelocity(), b.getAngularVelocity(), 0.0);
+		}
+	}
+
+	public void testUpdatesAreSplitIntoWholeSteps() {
+		RobotSimulation whole = new RobotSimulation(defaults());
+		RobotSimulation pieces = new RobotSimulation(defaults());
+		whole.applyCommand(1, -1);
+		pieces.applyCommand(1, -1);
+
+		long total = 1000000000L;
+		whole.update(total);
+		long chunk = pieces.getStepNanos() * 3 / 2 + 1;
+		long remaining = total;
+		while (remaining > 0) {
+			long nanos = Math.min(chunk, remaining);
+			pieces.update(nanos);
+			remaining -= nanos;
+		}
+
+		assertEquals(total / whole.getStepNanos(), whole.getStepCount());
+		assertEquals(whole.getStepCount(), pieces.getStepCount());
+		assertSameState(whole, pieces);
+	}
+
+	public void testResetEqualsFreshSimulation() {
+		RobotSimulation used = new RobotSimulation(defaults());
+		RobotSimulation fresh = new RobotSimulation(defaults());
+		new HeadlessSimulationHandler(used).executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		used.reset();
+		assertSameState(fresh, used);
+
+		double[] expected = new HeadlessSimulationHandler(fresh).executeSequence(DURATIONS, ARM1_DIRECTIONS,
+				ARM2_DIRECTIONS);
+		double[] actual = new HeadlessSimulationHandler(used).executeSequence(DURATIONS, ARM1_DIRECTIONS,
+				ARM2_DIRECTIONS);
+		assertTrue(Arrays.equals(expected, actual));
+	}
+
+	public void testEveryRestoreContinuesIdentically() {
+		RobotSimulation simulation = new RobotSimulation(defaults());
+		HeadlessSimulationHandler handler = new HeadlessSimulationHandler(simulation);
+		handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		SimulationSnapshot snapshot = simulation.capture();
+		handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+
+		simulation.restore(snapshot);
+		double[] expected = handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		simulation.restore(snapshot);
+		double[] actual = handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		assertTrue(Arrays.equals(expected, actual));
+	}
+
+	public void testNegativeUpdatesAreRejected() {
+		RobotSimulation simulation = new RobotSimulation(defaults());
+		simulation.update(simulation.getStepNanos() - 1);
+		try {
+			simulation.update(-simulation.getStepNanos());
+			fail("A negative duration has to be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		// the time carried over is left as it was
+		simulation.update(1L);
+		assertEquals(1, simulation.getStepCount());
+	}
+
+	public void testSameSeedDrawsSameRobots() {
+		RobotSimulation a = new RobotSimulation(randomized(42L));
+		RobotSimulation b = new RobotSimulation(randomized(42L));
+		HeadlessSimulationHandler handlerA = new HeadlessSimulationHandler(a);
+		HeadlessSimulationHandler handlerB = new HeadlessSimulationHandler(b);
+		for (int episode = 0; episode < 3; ++episode) {
+			double[] expected = handlerA.executeEpisode(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+			double[] actual = handlerB.executeEpisode(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+			assertTrue(Arrays.equals(a.getVehicleFactors(), b.getVehicleFactors()));
+			assertTrue(Arrays.equals(expected, actual));
+		}
+	}
+
+	public void testOtherSeedDrawsOtherRobots() {
+		RobotSimulation a = new RobotSimulation(randomized(42L));
+		RobotSimulation b = new RobotSimulation(randomized(43L));
+		a.reset();
+		b.reset();
+		assertEquals(DomainRandomization.FACTOR_COUNT, a.getVehicleFactors().length);
+		assertFalse(Arrays.equals(a.getVehicleFactors(), b.getVehicleFactors()));
+	}
+}
@@ -0,0 +1,62 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim;
+
+import java.util.Arrays;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.RealtimeSimulationHandler;
+
+import junit.framework.TestCase;
+
+public class SimulationCanvasTest extends TestCase {
+
+	private static final int[] DURATIONS = { 500, 800, 500, 800 };
+	private static final int[] ARM1_DIRECTIONS = { 1, 0, -1, 0 };
+	private static final int[] ARM2_DIRECTIONS = { 0, 1, 0, -1 };
+
+	private SimulationCanvas canvas;
+
+	private static RobotSimulation createSimulation() {
+		return new RobotSimulation(SimulationConfiguration.read((key, defaultValue) -> defaultValue));
+	}
+
+	private RealtimeSimulationHandler start(RobotSimulation simulation, double timeScale) {
+		canvas = new SimulationCanvas(simulation);
+		canvas.setTimeScale(timeScale);
+		canvas.start();
+		return new RealtimeSimulationHandler(simulation, canvas);
+	}
+
+	@Override
+	protected void tearDown() {
+		if (canvas != null)
+			canvas.dispose();
+	}
+
+	public void testAsFastAsPossibleMatchesHeadless() {
+		double[] expected = new HeadlessSimulationHandler(createSimulation()).executeSequence(DURATIONS,
+				ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		RealtimeSimulationHandler handler = start(createSimulation(), SimulationCanvas.AS_FAST_AS_POSSIBLE);
+		double[] actual = null;
+		for (int i = 0; i < 10; ++i)
+			actual = handler.executeEpisode(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		assertTrue(Arrays.equals(expected, actual));
+	}
+
+	public void testAsFastAsPossibleDoesNotWaitForTheClock() {
+		RealtimeSimulationHandler handler = start(createSimulation(), SimulationCanvas.AS_FAST_AS_POSSIBLE);
+		long start = System.nanoTime();
+		// 26 seconds of simulation time
+		for (int i = 0; i < 10; ++i)
+			handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		assertTrue(System.nanoTime() - start < 20000000000L);
+	}
+
+	public void testScaledTimeIsNeverFasterThanTheScale() {
+		RealtimeSimulationHandler handler = start(createSimulation(), 4.0);
+		long start = System.nanoTime();
+		// 2.6 seconds of simulation time, at least 0.65 seconds at four times real time
+		double[] actual = handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		assertTrue(System.nanoTime() - start >= 600000000L);
+		assertNotNull(actual);
+	}
+}
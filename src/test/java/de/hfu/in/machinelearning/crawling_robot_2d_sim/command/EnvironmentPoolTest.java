@@ -0,0 +1,179 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.command;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+
+import junit.framework.TestCase;
+
+public class EnvironmentPoolTest extends TestCase {
+
+	private static final int[] DURATIONS = { 500, 800, 500, 800 };
+	private static final int[] ARM1_DIRECTIONS = { 1, 0, -1, 0 };
+	private static final int[] ARM2_DIRECTIONS = { 0, 1, 0, -1 };
+
+	private static EnvironmentPool createPool() {
+		return createPool(1);
+	}
+
+	private static EnvironmentPool createPool(int size) {
+		RobotSimulation[] simulations = new RobotSimulation[size];
+		SimulationHandler[] handlers = new SimulationHandler[size];
+		for (int i = 0; i < size; ++i) {
+			simulations[i] = new RobotSimulation(SimulationConfiguration.read((key, defaultValue) -> defaultValue));
+			handlers[i] = new HeadlessSimulationHandler(simulations[i]);
+		}
+		return new EnvironmentPool(simulations, handlers);
+	}
+
+	public void testHandlersDriveTheirOwnSimulation() {
+		EnvironmentPool pool = createPool(3);
+		double[] state = pool.getHandler(1).execute(500, 1, 0);
+		assertEquals(0, pool.getSimulation(0).getStepCount());
+		assertTrue(pool.getSimulation(1).getStepCount() > 0);
+		assertEquals(0, pool.getSimulation(2).getStepCount());
+		assertTrue(Arrays.equals(state, pool.getSimulation(1).getVehicleStateVector()));
+	}
+
+	public void testUnknownIdsAreRejected() {
+		EnvironmentPool pool = createPool(2);
+		for (int envId : new int[] { -1, 2, Integer.MAX_VALUE }) {
+			try {
+				pool.getHandler(envId);
+				fail("Handler of environment " + envId);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				pool.saveState(envId);
+				fail("Saved state of environment " + envId);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				pool.detach(envId);
+				fail("Detached environment " + envId);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testAttachBalancesClients() {
+		EnvironmentPool pool = createPool(3);
+		int[] counts = new int[3];
+		for (int i = 0; i < 7; ++i)
+			++counts[pool.attach()];
+		// 7 clients on 3 environments: no environment has more than one client
+		// more than any other
+		assertEquals(3, counts[0]);
+		assertEquals(2, counts[1]);
+		assertEquals(2, counts[2]);
+
+		pool.detach(2);
+		pool.detach(2);
+		assertEquals(2, pool.attach());
+		// detaching more often than attached does not go below zero
+		EnvironmentPool empty = createPool(2);
+		empty.detach(0);
+		assertEquals(0, empty.attach());
+		assertEquals(1, empty.attach());
+	}
+
+	public void testSequencesOfSharedEnvironmentDoNotInterleave() throws InterruptedException {
+		EnvironmentPool pool = createPool();
+		RobotSimulation simulation = pool.getSimulation(0);
+		int[] durations = new int[50];
+		Arrays.fill(durations, 100);
+		int[] directions = new int[durations.length];
+		Arrays.fill(directions, 1);
+		// step counts between the sequences, taken from a reference
+		EnvironmentPool reference = createPool();
+		Set<Long> between = new HashSet<>();
+		between.add(0L);
+		for (int i = 0; i < 4; ++i) {
+			reference.getHandler(0).executeSequence(durations, directions, directions);
+			between.add(reference.getSimulation(0).getStepCount());
+		}
+
+		AtomicBoolean done = new AtomicBoolean();
+		Thread client = new Thread(() -> {
+			for (int i = 0; i < 4; ++i)
+				pool.getHandler(0).executeSequence(durations, directions, directions);
+			done.set(true);
+		});
+		client.start();
+		// another client only ever sees the environment between two sequences
+		while (!done.get()) {
+			synchronized (simulation) {
+				assertTrue(between.contains(simulation.getStepCount()));
+			}
+			Thread.yield();
+		}
+		client.join();
+		assertEquals(reference.getSimulation(0).getStepCount(), simulation.getStepCount());
+	}
+
+	public void testSavingLeavesEnvironmentUntouched() {
+		EnvironmentPool saving = createPool();
+		EnvironmentPool plain = createPool();
+		saving.getHandler(0).executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		plain.getHandler(0).executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+
+		saving.saveState(0);
+		double[] expected = plain.getHandler(0).executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		double[] actual = saving.getHandler(0).executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		assertTrue(Arrays.equals(expected, actual));
+	}
+
+	public void testRestoreByHandle() {
+		EnvironmentPool pool = createPool();
+		SimulationHandler handler = pool.getHandler(0);
+		handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		int first = pool.saveState(0);
+		handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		int second = pool.saveState(0);
+		assertTrue(first != second);
+
+		pool.restoreState(0, first);
+		double[] afterFirst = handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		pool.restoreState(0, second);
+		double[] afterSecond = handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		assertFalse(Arrays.equals(afterFirst, afterSecond));
+
+		// every handle can be restored any number of times, in any order
+		pool.restoreState(0, first);
+		assertTrue(Arrays.equals(afterFirst, handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS)));
+		pool.restoreState(0, second);
+		assertTrue(Arrays.equals(afterSecond, handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS)));
+		pool.restoreState(0, first);
+		assertTrue(Arrays.equals(afterFirst, handler.executeSequence(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS)));
+	}
+
+	public void testReleasedHandleIsRejected() {
+		EnvironmentPool pool = createPool();
+		int handle = pool.saveState(0);
+		pool.releaseState(0, handle);
+		try {
+			pool.restoreState(0, handle);
+			fail("Restoring a released state has to fail");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testObservationsShowTheirOwnEnvironment() {
+		EnvironmentPool pool = createPool(2);
+		assertNotSame(pool.getRenderer(0), pool.getRenderer(1));
+		byte[] before = pool.observe(1);
+		assertEquals(pool.getRenderer(1).getFrameSize(), before.length);
+		assertTrue(Arrays.equals(before, pool.observe(0)));
+		pool.getHandler(1).execute(500, 1, 1);
+		assertFalse(Arrays.equals(before, pool.observe(1)));
+		assertTrue(Arrays.equals(before, pool.observe(0)));
+	}
+}
@@ -0,0 +1,99 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationCanvas;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+
+import junit.framework.TestCase;
+
+public class RealtimeSimulationHandlerTest extends TestCase {
+
+	private static final int QUEUE_SIZE = 16;
+
+	private SimulationCanvas canvas;
+
+	private static RobotSimulation createSimulation() {
+		return new RobotSimulation(SimulationConfiguration.read((key, defaultValue) -> defaultValue));
+	}
+
+	private RealtimeSimulationHandler createHandler(RobotSimulation simulation) {
+		canvas = new SimulationCanvas(simulation);
+		canvas.setTimeScale(SimulationCanvas.AS_FAST_AS_POSSIBLE);
+		return new RealtimeSimulationHandler(simulation, canvas);
+	}
+
+	@Override
+	protected void tearDown() {
+		if (canvas != null)
+			canvas.dispose();
+	}
+
+	public void testCommandsFinishInQueueOrder() throws Exception {
+		RealtimeSimulationHandler handler = createHandler(createSimulation());
+		canvas.start();
+		List<Integer> finished = Collections.synchronizedList(new ArrayList<Integer>());
+		List<CompletableFuture<double[]>> futures = new ArrayList<>();
+		for (int i = 0; i < 3 * QUEUE_SIZE; ++i) {
+			final int index = i;
+			CompletableFuture<double[]> future = handler.submit(50 + i % 3 * 20, i % 2 == 0 ? 1 : -1, 0);
+			futures.add(future.thenApply(state -> {
+				finished.add(index);
+				return state;
+			}));
+		}
+		double[] last = futures.get(futures.size() - 1).get(10, TimeUnit.SECONDS);
+		for (int i = 0; i < finished.size(); ++i)
+			assertEquals(i, (int) finished.get(i));
+
+		// back to back, exactly like the headless handler
+		HeadlessSimulationHandler headless = new HeadlessSimulationHandler(createSimulation());
+		double[] expected = null;
+		for (int i = 0; i < 3 * QUEUE_SIZE; ++i)
+			expected = headless.execute(50 + i % 3 * 20, i % 2 == 0 ? 1 : -1, 0);
+		assertTrue(Arrays.equals(expected, last));
+	}
+
+	public void testFullQueueBlocksTheCaller() throws Exception {
+		RealtimeSimulationHandler handler = createHandler(createSimulation());
+		for (int i = 0; i < QUEUE_SIZE; ++i)
+			handler.submit(50, 1, 0);
+
+		CountDownLatch queued = new CountDownLatch(1);
+		Thread caller = new Thread(() -> {
+			try {
+				handler.submit(50, -1, 0);
+				queued.countDown();
+			} catch (InterruptedException e) {
+				// the test failed anyway
+			}
+		});
+		caller.start();
+		assertFalse(queued.await(200, TimeUnit.MILLISECONDS));
+
+		// the physics thread makes room in the queue
+		canvas.start();
+		assertTrue(queued.await(10, TimeUnit.SECONDS));
+		caller.join();
+	}
+
+	public void testBlockedCallerCanBeInterrupted() throws Exception {
+		RealtimeSimulationHandler handler = createHandler(createSimulation());
+		for (int i = 0; i < QUEUE_SIZE; ++i)
+			handler.submit(50, 1, 0);
+		Thread.currentThread().interrupt();
+		try {
+			handler.submit(50, -1, 0);
+			fail("Queued into a full queue");
+		} catch (InterruptedException e) {
+			// expected
+		}
+	}
+}
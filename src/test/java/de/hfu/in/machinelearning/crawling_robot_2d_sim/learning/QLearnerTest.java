@@ -0,0 +1,66 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.learning;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class QLearnerTest extends TestCase {
+
+	private static final QLearningParameters PARAMETERS = new QLearningParameters(4, 20, 100, 6, 10, 0.2, 0.9, 0.5,
+			0.9, 0.02);
+
+	private static QLearner train(long seed) {
+		QLearner learner = new QLearner(PARAMETERS, seed);
+		learner.run();
+		return learner;
+	}
+
+	public void testSameSeedLearnsTheSame() {
+		QLearner first = train(11);
+		QLearner second = train(11);
+		assertEquals(PARAMETERS.episodes, first.getReturns().length);
+		assertTrue(Arrays.equals(first.getReturns(), second.getReturns()));
+		assertTrue(Arrays.equals(first.getEpsilons(), second.getEpsilons()));
+	}
+
+	public void testOtherSeedExploresDifferently() {
+		assertFalse(Arrays.equals(train(11).getReturns(), train(12).getReturns()));
+	}
+
+	public void testRunnerWritesTheSameCurvesForTheSameSeed() throws IOException, InterruptedException {
+		File first = Files.createTempDirectory("crawling-robot").toFile();
+		File second = Files.createTempDirectory("crawling-robot").toFile();
+		try {
+			// the learners run in parallel in the first run and one by one in the second
+			new QLearningRunner(PARAMETERS, 2, 2, 5L).run(first);
+			new QLearningRunner(PARAMETERS, 2, 1, 5L).run(second);
+			for (String name : new String[] { "learner-000.csv", "learner-001.csv", "curve.csv" })
+				assertTrue(name, Arrays.equals(Files.readAllBytes(new File(first, name).toPath()),
+						Files.readAllBytes(new File(second, name).toPath())));
+		} finally {
+			for (File directory : new File[] { first, second }) {
+				for (File file : directory.listFiles())
+					file.delete();
+				directory.delete();
+			}
+		}
+	}
+
+	public void testInterruptionIsPropagated() throws IOException {
+		File directory = Files.createTempDirectory("crawling-robot").toFile();
+		try {
+			Thread.currentThread().interrupt();
+			new QLearningRunner(PARAMETERS, 2, 1, 5L).run(directory);
+			fail("Not interrupted");
+		} catch (InterruptedException e) {
+			// expected
+			assertEquals(0, directory.listFiles().length);
+		} finally {
+			Thread.interrupted();
+			directory.delete();
+		}
+	}
+}
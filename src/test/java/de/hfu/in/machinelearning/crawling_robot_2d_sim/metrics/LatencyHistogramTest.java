@@ -0,0 +1,63 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long nanos = 0; nanos < 4; ++nanos)
+			histogram.record(nanos);
+		assertEquals(4, histogram.getCount());
+		assertEquals(0, histogram.getPercentileNanos(25));
+		assertEquals(1, histogram.getPercentileNanos(50));
+		assertEquals(2, histogram.getPercentileNanos(75));
+		assertEquals(3, histogram.getPercentileNanos(100));
+	}
+
+	public void testNegativeValuesCountAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getTotalNanos());
+		assertEquals(0, histogram.getPercentileNanos(50));
+	}
+
+	public void testPercentilesAreUpperBoundsWithinAQuarter() {
+		for (long nanos = 4; nanos > 0 && nanos < Long.MAX_VALUE / 2; nanos = nanos * 3 + 1) {
+			LatencyHistogram histogram = new LatencyHistogram();
+			histogram.record(nanos);
+			// a larger maximum, so the bound of the bucket is returned
+			histogram.record(Long.MAX_VALUE);
+			long bound = histogram.getPercentileNanos(50);
+			assertTrue(nanos + " -> " + bound, bound >= nanos);
+			assertTrue(nanos + " -> " + bound, bound <= nanos + nanos / 4);
+		}
+	}
+
+	public void testPercentileIsLimitedByMaximum() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		assertEquals(1000, histogram.getPercentileNanos(99));
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+	}
+
+	public void testSinceReturnsNewValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		histogram.record(20);
+		LatencyHistogram earlier = histogram.copy();
+		histogram.record(1000);
+		LatencyHistogram recent = histogram.since(earlier);
+		assertEquals(1, recent.getCount());
+		assertEquals(1000, recent.getTotalNanos());
+		assertTrue(recent.getPercentileNanos(50) >= 1000);
+
+		LatencyHistogram sum = new LatencyHistogram();
+		sum.add(earlier);
+		sum.add(recent);
+		assertEquals(histogram.getCount(), sum.getCount());
+		assertEquals(histogram.getTotalNanos(), sum.getTotalNanos());
+	}
+}
@@ -0,0 +1,129 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.models;
+
+import java.util.Arrays;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+
+import junit.framework.TestCase;
+
+public class TerrainHandlerTest extends TestCase {
+
+	private static final double CHUNK_WIDTH = 10.0;
+	private static final int CHUNKS = 4;
+
+	private World world;
+	private TerrainHandler terrain;
+
+	@Override
+	protected void setUp() {
+		world = new World();
+		terrain = new TerrainHandler(world, -5.0, 0.4,
+				new TerrainConfiguration(CHUNK_WIDTH, 20, CHUNKS, 1.0, 8.0, 0.1, 7L));
+	}
+
+	/**
+	 * Returns the chunks currently represented by the bodies, sorted.
+	 */
+	private int[] window() {
+		double[] state = terrain.capture();
+		int[] chunks = new int[state.length];
+		for (int i = 0; i < state.length; ++i)
+			chunks[i] = (int) state[i];
+		Arrays.sort(chunks);
+		return chunks;
+	}
+
+	private static void assertWindow(int first, int[] chunks) {
+		assertEquals(CHUNKS, chunks.length);
+		for (int i = 0; i < chunks.length; ++i)
+			assertEquals(first + i, chunks[i]);
+	}
+
+	private BasicBody bodyOf(int chunk) {
+		return (BasicBody) world.getBody(Math.floorMod(chunk, CHUNKS));
+	}
+
+	public void testInitialWindowKeepsOneChunkBehind() {
+		assertWindow(-1, window());
+		assertEquals(CHUNKS, world.getBodyCount());
+	}
+
+	public void testWindowIsRecycledInPlace() {
+		Body[] bodies = new Body[CHUNKS];
+		for (int i = 0; i < CHUNKS; ++i)
+			bodies[i] = world.getBody(i);
+
+		for (double x = 0.0; x < 50 * CHUNK_WIDTH; x += CHUNK_WIDTH / 3.0) {
+			terrain.updateFor(x);
+			int chunk = (int) Math.floor(x / CHUNK_WIDTH);
+			int[] chunks = window();
+			assertTrue(chunks[0] <= chunk - 1);
+			assertTrue(chunks[CHUNKS - 1] >= chunk + 1);
+			assertWindow(chunks[0], chunks);
+		}
+		assertEquals(CHUNKS, world.getBodyCount());
+		for (int i = 0; i < CHUNKS; ++i)
+			assertSame(bodies[i], world.getBody(i));
+		for (int i = 0; i < CHUNKS; ++i)
+			assertEquals(20, world.getBody(i).getFixtureCount());
+	}
+
+	public void testChunkBordersDoNotRebuild() {
+		terrain.updateFor(2.5 * CHUNK_WIDTH);
+		int[] before = window();
+		BasicBody[] copies = new BasicBody[CHUNKS];
+		for (int i = 0; i < CHUNKS; ++i)
+			copies[i] = bodyOf(before[i]).getRenderCopy();
+
+		for (int i = 0; i < 10; ++i) {
+			terrain.updateFor(3.0 * CHUNK_WIDTH - 0.1);
+			terrain.updateFor(3.0 * CHUNK_WIDTH + 0.1);
+		}
+		terrain.updateFor(2.5 * CHUNK_WIDTH);
+		assertTrue(Arrays.equals(before, window()));
+		for (int i = 0; i < CHUNKS; ++i)
+			assertSame(copies[i], bodyOf(before[i]).getRenderCopy());
+	}
+
+	public void testRenderCopiesFollowRebuilds() {
+		BasicBody recycled = bodyOf(-1);
+		BasicBody kept = bodyOf(1);
+		BasicBody recycledCopy = recycled.getRenderCopy();
+		BasicBody keptCopy = kept.getRenderCopy();
+		assertNotSame(recycled, recycledCopy);
+
+		// chunk -1 falls behind and its body becomes chunk 3
+		terrain.updateFor(2.5 * CHUNK_WIDTH);
+		assertSame(recycled, bodyOf(3));
+		assertNotSame(recycledCopy, recycled.getRenderCopy());
+		assertSame(keptCopy, kept.getRenderCopy());
+	}
+
+	public void testRestoreRebuildsWindow() {
+		double[] start = terrain.capture();
+		terrain.updateFor(20.5 * CHUNK_WIDTH);
+		terrain.restore(start);
+		assertWindow(-1, window());
+	}
+
+	public void testInvalidConfigurationsAreRejected() {
+		assertInvalid(10.0, 20, 2, 1.0, 8.0, 0.1);
+		assertInvalid(0.0, 20, 4, 1.0, 8.0, 0.1);
+		assertInvalid(Double.POSITIVE_INFINITY, 20, 4, 1.0, 8.0, 0.1);
+		assertInvalid(0.1, 20, 4, 1.0, 8.0, 0.1);
+		assertInvalid(10.0, 20, 4, 1.0, 0.0, 0.1);
+		assertInvalid(10.0, 20, 4, Double.NaN, 8.0, 0.1);
+		assertInvalid(10.0, 20, 4, 1.0, 8.0, Double.POSITIVE_INFINITY);
+	}
+
+	private static void assertInvalid(double chunkWidth, int segments, int chunks, double hillHeight,
+			double hillWidth, double bumpHeight) {
+		try {
+			new TerrainConfiguration(chunkWidth, segments, chunks, hillHeight, hillWidth, bumpHeight, 0L);
+			fail("Invalid terrain configuration accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.utilities.Settings;
+
+import junit.framework.TestCase;
+
+public class ReplayRunnerTest extends TestCase {
+
+	private static final int[] DURATIONS = { 500, 800, 500, 800 };
+	private static final int[] ARM1_DIRECTIONS = { 1, 0, -1, 0 };
+	private static final int[] ARM2_DIRECTIONS = { 0, 1, 0, -1 };
+	/** Environment that is not used by any other test. */
+	private static final int ENV_ID = 7;
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("crawling-robot").toFile();
+		Settings.set("env." + ENV_ID + ".world.gravity", -4.0);
+	}
+
+	@Override
+	protected void tearDown() {
+		for (File file : TrajectoryReader.listFiles(directory))
+			file.delete();
+		directory.delete();
+	}
+
+	private void record(RobotSimulation simulation, int envId) throws IOException {
+		TrajectoryRecorder recorder = new TrajectoryRecorder(directory, envId, simulation.getStepNanos());
+		RecordingSimulationHandler handler = new RecordingSimulationHandler(new HeadlessSimulationHandler(simulation),
+				recorder);
+		handler.executeEpisode(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		handler.executeEpisode(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+		recorder.close();
+	}
+
+	public void testReplaysInTheRecordedEnvironment() throws IOException {
+		record(new RobotSimulation(SimulationConfiguration.forEnvironment(ENV_ID)), ENV_ID);
+		ReplayRunner runner = new ReplayRunner(HeadlessSimulationHandler::new, 0.0);
+		assertTrue(runner.replay(directory));
+		assertEquals(0, runner.getMismatches());
+	}
+
+	public void testOverridesOfTheEnvironmentMatter() throws IOException {
+		// recorded without the override of the environment
+		record(new RobotSimulation(SimulationConfiguration.forEnvironment(0)), ENV_ID);
+		ReplayRunner runner = new ReplayRunner(HeadlessSimulationHandler::new, 0.0);
+		assertFalse(runner.replay(directory));
+		assertTrue(runner.getMismatches() > 0);
+	}
+}
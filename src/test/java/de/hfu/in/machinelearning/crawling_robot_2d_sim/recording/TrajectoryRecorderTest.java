@@ -0,0 +1,108 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.DomainRandomization;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+import junit.framework.TestCase;
+
+public class TrajectoryRecorderTest extends TestCase {
+
+	private static final int[] DURATIONS = { 500, 800, 500, 800 };
+	private static final int[] ARM1_DIRECTIONS = { 1, 0, -1, 0 };
+	private static final int[] ARM2_DIRECTIONS = { 0, 1, 0, -1 };
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("crawling-robot").toFile();
+	}
+
+	@Override
+	protected void tearDown() {
+		for (File file : TrajectoryReader.listFiles(directory))
+			file.delete();
+		directory.delete();
+	}
+
+	private static RobotSimulation createRandomizedSimulation() {
+		Map<String, Double> values = new HashMap<>();
+		values.put("randomization.friction", 0.3);
+		values.put("randomization.torque", 0.3);
+		values.put("randomization.seed", 7.0);
+		return new RobotSimulation(
+				SimulationConfiguration.read((key, defaultValue) -> values.getOrDefault(key, defaultValue)));
+	}
+
+	public void testRecordsRoundTrip() throws IOException {
+		int commands = 5000; // more than fit into the buffer of the recorder
+		double[] factors = { 0.5, 0.75, 1.0, 1.25, 1.5 };
+		TrajectoryRecorder recorder = new TrajectoryRecorder(directory, 3, 1234567L);
+		recorder.setFactors(factors);
+		double[] state = new double[VehicleHandler.STATE_VECTOR_SIZE + 1];
+		for (int i = 0; i < commands; ++i) {
+			for (int j = 0; j < VehicleHandler.STATE_VECTOR_SIZE; ++j)
+				state[j + 1] = i + j / 10.0;
+			recorder.record(i, i % 3 - 1, -(i % 3 - 1), state, 1);
+		}
+		recorder.rotate();
+		// an empty episode creates no file
+		recorder.rotate();
+		recorder.record(42, 1, 1, state, 0);
+		recorder.close();
+
+		File[] files = TrajectoryReader.listFiles(directory);
+		assertEquals(2, files.length);
+		TrajectoryReader reader = new TrajectoryReader(files[0]);
+		assertEquals(3, reader.getEnvId());
+		assertEquals(1234567L, reader.getStepNanos());
+		assertTrue(Arrays.equals(factors, reader.getFactors()));
+		assertEquals(commands, reader.getCommandCount());
+		for (int i = 0; i < commands; ++i) {
+			assertEquals(i, reader.getDurations()[i]);
+			assertEquals(i % 3 - 1, reader.getArm1Directions()[i]);
+			assertEquals(-(i % 3 - 1), reader.getArm2Directions()[i]);
+			for (int j = 0; j < VehicleHandler.STATE_VECTOR_SIZE; ++j)
+				assertEquals(i + j / 10.0, reader.getStates()[i * VehicleHandler.STATE_VECTOR_SIZE + j], 0.0);
+		}
+		assertEquals(1, new TrajectoryReader(files[1]).getCommandCount());
+	}
+
+	public void testRandomizedEpisodesReplay() throws IOException {
+		RobotSimulation recorded = createRandomizedSimulation();
+		TrajectoryRecorder recorder = new TrajectoryRecorder(directory, 0, recorded.getStepNanos());
+		RecordingSimulationHandler handler = new RecordingSimulationHandler(new HeadlessSimulationHandler(recorded),
+				recorder);
+		double[][] factors = new double[3][];
+		for (int episode = 0; episode < factors.length; ++episode) {
+			handler.executeEpisode(DURATIONS, ARM1_DIRECTIONS, ARM2_DIRECTIONS);
+			factors[episode] = recorded.getVehicleFactors();
+		}
+		recorder.close();
+
+		File[] files = TrajectoryReader.listFiles(directory);
+		assertEquals(factors.length, files.length);
+		for (int episode = 0; episode < factors.length; ++episode) {
+			double[] read = new TrajectoryReader(files[episode]).getFactors();
+			assertEquals(DomainRandomization.FACTOR_COUNT, read.length);
+			assertTrue(Arrays.equals(factors[episode], read));
+		}
+
+		// a simulation that has been reset a different number of times
+		RobotSimulation replayed = createRandomizedSimulation();
+		replayed.reset();
+		ReplayRunner runner = new ReplayRunner(envId -> replayed, HeadlessSimulationHandler::new, 0.0);
+		assertTrue(runner.replay(directory));
+		assertEquals(0, runner.getMismatches());
+	}
+}
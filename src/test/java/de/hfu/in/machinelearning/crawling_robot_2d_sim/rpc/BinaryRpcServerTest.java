@@ -0,0 +1,107 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.TransportMetrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+import junit.framework.TestCase;
+
+public class BinaryRpcServerTest extends TestCase {
+
+	private EnvironmentPool pool;
+	private BinaryRpcServer server;
+	private SocketChannel client;
+
+	private static RobotSimulation createSimulation() {
+		return new RobotSimulation(SimulationConfiguration.read((key, defaultValue) -> defaultValue));
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		RobotSimulation simulation = createSimulation();
+		pool = new EnvironmentPool(new RobotSimulation[] { simulation },
+				new SimulationHandler[] { new HeadlessSimulationHandler(simulation) });
+		server = new BinaryRpcServer(port, pool, 1);
+		server.start();
+		client = SocketChannel.open(new InetSocketAddress("localhost", port));
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		client.close();
+		server.shutdown();
+	}
+
+	private ByteBuffer call(int opcode, int envId, int duration, int arm1, int arm2) throws IOException {
+		ByteBuffer request = ByteBuffer.allocate(4 + BinaryRpcServer.REQUEST_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		request.putInt(BinaryRpcServer.REQUEST_SIZE).putInt(opcode).putInt(envId).putInt(duration).putInt(arm1)
+				.putInt(arm2);
+		request.flip();
+		while (request.hasRemaining())
+			client.write(request);
+
+		ByteBuffer reply = ByteBuffer.allocate(4 + BinaryRpcServer.REPLY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (reply.hasRemaining())
+			if (client.read(reply) < 0)
+				throw new IOException("Connection closed by the server");
+		reply.flip();
+		assertEquals(BinaryRpcServer.REPLY_SIZE, reply.getInt());
+		return reply;
+	}
+
+	public void testFrameSizes() {
+		assertEquals(20, BinaryRpcServer.REQUEST_SIZE);
+		assertEquals(4 + VehicleHandler.STATE_VECTOR_SIZE * 8, BinaryRpcServer.REPLY_SIZE);
+	}
+
+	public void testActionReturnsStateVector() throws IOException {
+		double[] expected = new HeadlessSimulationHandler(createSimulation()).execute(500, 1, 0);
+		ByteBuffer reply = call(BinaryRpcServer.OP_ACTION, BinaryRpcServer.CONNECTION_ENVIRONMENT, 500, 1, 0);
+		assertEquals(BinaryRpcServer.STATUS_OK, reply.getInt());
+		for (int i = 0; i < VehicleHandler.STATE_VECTOR_SIZE; ++i)
+			assertEquals(expected[i], reply.getDouble(), 0.0);
+	}
+
+	public void testResetReturnsZeros() throws IOException {
+		call(BinaryRpcServer.OP_ACTION, 0, 500, 1, 0);
+		ByteBuffer reply = call(BinaryRpcServer.OP_RESET, 0, 0, 0, 0);
+		assertEquals(BinaryRpcServer.STATUS_OK, reply.getInt());
+		for (int i = 0; i < VehicleHandler.STATE_VECTOR_SIZE; ++i)
+			assertEquals(0.0, reply.getDouble(), 0.0);
+	}
+
+	public void testErrorsKeepConnectionOpen() throws IOException {
+		assertEquals(BinaryRpcServer.STATUS_ERROR, call(99, 0, 0, 0, 0).getInt());
+		assertEquals(BinaryRpcServer.STATUS_ERROR, call(BinaryRpcServer.OP_ACTION, 7, 500, 1, 0).getInt());
+		assertEquals(BinaryRpcServer.STATUS_OK, call(BinaryRpcServer.OP_RESET, 0, 0, 0, 0).getInt());
+	}
+
+	public void testEveryRequestIsMetered() throws IOException, InterruptedException {
+		TransportMetrics metrics = pool.getMetrics().getBinaryRpc();
+		call(BinaryRpcServer.OP_ACTION, 0, 500, 1, 0);
+		call(BinaryRpcServer.OP_RESET, 0, 0, 0, 0);
+		call(99, 0, 0, 0, 0);
+		assertEquals(3, metrics.getQueue().getCount());
+		assertEquals(3, metrics.getDecode().getCount());
+		assertEquals(3, metrics.getEncode().getCount());
+		// the write is recorded after the reply has been sent
+		for (int i = 0; i < 100 && metrics.getWrite().getCount() < 3; ++i)
+			Thread.sleep(10);
+		assertEquals(3, metrics.getWrite().getCount());
+	}
+}
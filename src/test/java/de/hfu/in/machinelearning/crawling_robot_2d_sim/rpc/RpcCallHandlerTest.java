@@ -0,0 +1,160 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.webserver.WebServer;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.App;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.metrics.TransportMetrics;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+import junit.framework.TestCase;
+
+public class RpcCallHandlerTest extends TestCase {
+
+	private static final int ENVIRONMENTS = 3;
+
+	private EnvironmentPool pool;
+	private WebServer server;
+	private XmlRpcTestClient client;
+
+	private static RobotSimulation createSimulation() {
+		return new RobotSimulation(SimulationConfiguration.read((key, defaultValue) -> defaultValue));
+	}
+
+	@Override
+	protected void setUp() throws IOException, XmlRpcException {
+		RobotSimulation[] simulations = new RobotSimulation[ENVIRONMENTS];
+		SimulationHandler[] handlers = new SimulationHandler[ENVIRONMENTS];
+		for (int i = 0; i < ENVIRONMENTS; ++i) {
+			simulations[i] = createSimulation();
+			handlers[i] = new HeadlessSimulationHandler(simulations[i]);
+		}
+		pool = new EnvironmentPool(simulations, handlers);
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		server = App.startRpcServer(pool, port);
+		client = new XmlRpcTestClient(port);
+	}
+
+	@Override
+	protected void tearDown() {
+		server.shutdown();
+	}
+
+	public void testCallsAreRoutedByEnvironmentId() throws IOException {
+		double[] expected = new HeadlessSimulationHandler(createSimulation()).execute(500, 1, 0);
+		String response = client.call("action", 2, 500, 1, 0);
+		assertTrue(Arrays.equals(expected, XmlRpcTestClient.doubles(response)));
+		assertEquals(0, pool.getSimulation(0).getStepCount());
+		assertEquals(0, pool.getSimulation(1).getStepCount());
+		assertTrue(pool.getSimulation(2).getStepCount() > 0);
+	}
+
+	public void testCallsWithoutIdAddressFirstEnvironment() throws IOException {
+		client.call("action", 500, 1, 0);
+		assertTrue(pool.getSimulation(0).getStepCount() > 0);
+		assertEquals(0, pool.getSimulation(1).getStepCount());
+		assertEquals(0, pool.getSimulation(2).getStepCount());
+	}
+
+	public void testUnknownEnvironmentIdsAreFaults() throws IOException {
+		assertEquals(ENVIRONMENTS, XmlRpcTestClient.integer(client.call("getEnvironmentCount")));
+		assertTrue(XmlRpcTestClient.isFault(client.call("action", ENVIRONMENTS, 500, 1, 0)));
+		assertTrue(XmlRpcTestClient.isFault(client.call("action", -1, 500, 1, 0)));
+		assertTrue(XmlRpcTestClient.isFault(client.call("reset", 17)));
+		assertTrue(XmlRpcTestClient.isFault(client.call("saveState", ENVIRONMENTS)));
+		// the server keeps serving valid calls
+		assertFalse(XmlRpcTestClient.isFault(client.call("action", 0, 500, 1, 0)));
+	}
+
+	public void testAttachAssignsLeastUsedEnvironment() throws IOException {
+		int[] attached = new int[ENVIRONMENTS];
+		for (int i = 0; i < ENVIRONMENTS; ++i)
+			attached[i] = XmlRpcTestClient.integer(client.call("attach"));
+		Arrays.sort(attached);
+		for (int i = 0; i < ENVIRONMENTS; ++i)
+			assertEquals(i, attached[i]);
+		client.call("detach", 1);
+		assertEquals(1, XmlRpcTestClient.integer(client.call("attach")));
+	}
+
+	public void testStepBatchStepsEnvironmentsInOrder() throws IOException {
+		int[] durations = { 300, 500, 700 };
+		int[] arm1Directions = { 1, -1, 0 };
+		int[] arm2Directions = { 0, 1, -1 };
+		double[] states = XmlRpcTestClient
+				.doubles(client.call("stepBatch", durations, arm1Directions, arm2Directions));
+		assertEquals(ENVIRONMENTS * VehicleHandler.STATE_VECTOR_SIZE, states.length);
+		for (int i = 0; i < ENVIRONMENTS; ++i) {
+			double[] expected = new HeadlessSimulationHandler(createSimulation()).execute(durations[i],
+					arm1Directions[i], arm2Directions[i]);
+			double[] actual = Arrays.copyOfRange(states, i * VehicleHandler.STATE_VECTOR_SIZE,
+					(i + 1) * VehicleHandler.STATE_VECTOR_SIZE);
+			assertTrue(Arrays.equals(expected, actual));
+		}
+	}
+
+	public void testStepBatchOnlyStepsAddressedEnvironments() throws IOException {
+		double[] states = XmlRpcTestClient
+				.doubles(client.call("stepBatch", new int[] { 500 }, new int[] { 1 }, new int[] { 0 }));
+		assertEquals(VehicleHandler.STATE_VECTOR_SIZE, states.length);
+		assertTrue(pool.getSimulation(0).getStepCount() > 0);
+		assertEquals(0, pool.getSimulation(1).getStepCount());
+		assertEquals(0, pool.getSimulation(2).getStepCount());
+	}
+
+	public void testStepBatchRejectsInvalidCommands() throws IOException {
+		assertTrue(XmlRpcTestClient.isFault(
+				client.call("stepBatch", new int[] { 500, 500 }, new int[] { 1 }, new int[] { 0, 0 })));
+		int[] tooMany = new int[ENVIRONMENTS + 1];
+		assertTrue(XmlRpcTestClient.isFault(client.call("stepBatch", tooMany, tooMany, tooMany)));
+		for (int i = 0; i < ENVIRONMENTS; ++i)
+			assertEquals(0, pool.getSimulation(i).getStepCount());
+	}
+
+	public void testActionSequenceEqualsSingleActions() throws IOException {
+		int[] durations = { 500, 800, 500, 800 };
+		int[] arm1Directions = { 1, 0, -1, 0 };
+		int[] arm2Directions = { 0, 1, 0, -1 };
+		HeadlessSimulationHandler reference = new HeadlessSimulationHandler(createSimulation());
+		double[] expected = new double[durations.length * VehicleHandler.STATE_VECTOR_SIZE];
+		for (int i = 0; i < durations.length; ++i)
+			System.arraycopy(reference.execute(durations[i], arm1Directions[i], arm2Directions[i]), 0, expected,
+					i * VehicleHandler.STATE_VECTOR_SIZE, VehicleHandler.STATE_VECTOR_SIZE);
+
+		double[] actual = XmlRpcTestClient
+				.doubles(client.call("actionSequence", 1, durations, arm1Directions, arm2Directions));
+		assertTrue(Arrays.equals(expected, actual));
+		assertEquals(0, pool.getSimulation(0).getStepCount());
+	}
+
+	public void testActionSequenceRejectsArraysOfDifferentLength() throws IOException {
+		assertTrue(XmlRpcTestClient.isFault(
+				client.call("actionSequence", new int[] { 500, 500 }, new int[] { 1, 0 }, new int[] { 0 })));
+		assertEquals(0, pool.getSimulation(0).getStepCount());
+		assertEquals(0, XmlRpcTestClient
+				.doubles(client.call("actionSequence", new int[0], new int[0], new int[0])).length);
+	}
+
+	public void testFaultsAreMetered() throws IOException, InterruptedException {
+		TransportMetrics metrics = pool.getMetrics().getXmlRpc();
+		client.call("action", 0, 500, 1, 0);
+		client.call("action", ENVIRONMENTS, 500, 1, 0);
+		// the reply is recorded after it has been sent
+		for (int i = 0; i < 100 && metrics.getEncode().getCount() < 2; ++i)
+			Thread.sleep(10);
+		assertEquals(2, metrics.getDecode().getCount());
+		assertEquals(2, metrics.getEncode().getCount());
+	}
+}
@@ -0,0 +1,112 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.EnvironmentPool;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.HeadlessSimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.command.SimulationHandler;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleHandler;
+
+import junit.framework.TestCase;
+
+public class SharedMemoryTransportTest extends TestCase {
+
+	private static final int SLOT_COUNT = 4;
+	private static final long TIMEOUT_NANOS = 10000000000L;
+
+	private File file;
+	private SharedMemoryTransport transport;
+	private MappedByteBuffer buffer;
+
+	private static RobotSimulation createSimulation() {
+		return new RobotSimulation(SimulationConfiguration.read((key, defaultValue) -> defaultValue));
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+		file = File.createTempFile("crawling-robot", ".ring");
+		RobotSimulation simulation = createSimulation();
+		EnvironmentPool pool = new EnvironmentPool(new RobotSimulation[] { simulation },
+				new SimulationHandler[] { new HeadlessSimulationHandler(simulation) });
+		transport = new SharedMemoryTransport(file.getPath(), SLOT_COUNT, pool);
+		transport.start();
+		try (RandomAccessFile mapped = new RandomAccessFile(file, "rw")) {
+			buffer = mapped.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mapped.length());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	protected void tearDown() {
+		transport.shutdown();
+		buffer = null;
+		file.delete();
+	}
+
+	/**
+	 * Publishes the given requests at once and waits until all have been
+	 * answered.
+	 */
+	private void publish(long first, int[][] requests) {
+		for (int i = 0; i < requests.length; ++i) {
+			int slot = slotOf(first + i);
+			for (int j = 0; j < requests[i].length; ++j)
+				buffer.putInt(slot + j * 4, requests[i][j]);
+		}
+		long published = first + requests.length;
+		buffer.putLong(SharedMemoryTransport.REQUEST_SEQUENCE, published);
+		long deadline = System.nanoTime() + TIMEOUT_NANOS;
+		while (buffer.getLong(SharedMemoryTransport.RESPONSE_SEQUENCE) < published) {
+			if (System.nanoTime() > deadline)
+				fail("No response from the transport");
+			Thread.yield();
+		}
+	}
+
+	private static int slotOf(long request) {
+		return SharedMemoryTransport.SLOTS + (int) (request % SLOT_COUNT) * SharedMemoryTransport.SLOT_SIZE;
+	}
+
+	public void testHeader() {
+		assertEquals(SharedMemoryTransport.MAGIC, buffer.getInt(0));
+		assertEquals(SharedMemoryTransport.VERSION, buffer.getInt(4));
+		assertEquals(SLOT_COUNT, buffer.getInt(8));
+		assertEquals(SharedMemoryTransport.SLOT_SIZE, buffer.getInt(12));
+		assertEquals(0L, buffer.getLong(SharedMemoryTransport.REQUEST_SEQUENCE));
+		assertEquals(0L, buffer.getLong(SharedMemoryTransport.RESPONSE_SEQUENCE));
+	}
+
+	public void testRequestsWrapAroundTheRing() {
+		HeadlessSimulationHandler reference = new HeadlessSimulationHandler(createSimulation());
+		long next = 0;
+		for (int round = 0; round < 3; ++round) {
+			int[][] requests = new int[SLOT_COUNT][];
+			for (int i = 0; i < SLOT_COUNT; ++i)
+				requests[i] = new int[] { BinaryRpcServer.OP_ACTION, 0, 200, i % 2 == 0 ? 1 : -1, 0 };
+			publish(next, requests);
+			for (int i = 0; i < SLOT_COUNT; ++i) {
+				double[] expected = reference.execute(200, i % 2 == 0 ? 1 : -1, 0);
+				int slot = slotOf(next + i);
+				assertEquals(BinaryRpcServer.STATUS_OK, buffer.getInt(slot + 20));
+				for (int j = 0; j < VehicleHandler.STATE_VECTOR_SIZE; ++j)
+					assertEquals(expected[j], buffer.getDouble(slot + 24 + j * 8), 0.0);
+			}
+			next += SLOT_COUNT;
+		}
+	}
+
+	public void testInvalidRequestsReportErrors() {
+		publish(0, new int[][] { { 99, 0, 0, 0, 0 }, { BinaryRpcServer.OP_ACTION, 5, 200, 1, 0 },
+				{ BinaryRpcServer.OP_RESET, 0, 0, 0, 0 } });
+		assertEquals(BinaryRpcServer.STATUS_ERROR, buffer.getInt(slotOf(0) + 20));
+		assertEquals(BinaryRpcServer.STATUS_ERROR, buffer.getInt(slotOf(1) + 20));
+		assertEquals(BinaryRpcServer.STATUS_OK, buffer.getInt(slotOf(2) + 20));
+	}
+}
@@ -0,0 +1,90 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal XML-RPC client for the tests, so calls go over the wire exactly like
+ * the ones of an agent. Parameters are {@link Integer}s or {@code int[]}s.
+ */
+final class XmlRpcTestClient {
+
+	private static final Pattern DOUBLE = Pattern.compile("<double>([^<]*)</double>");
+	private static final Pattern INT = Pattern.compile("<(?:int|i4)>([^<]*)</(?:int|i4)>");
+
+	private final URL url;
+
+	XmlRpcTestClient(int port) throws IOException {
+		url = new URL("http://localhost:" + port + "/RPC2");
+	}
+
+	/**
+	 * Calls a method of the {@code Robot} handler and returns the response.
+	 */
+	String call(String method, Object... params) throws IOException {
+		StringBuilder request = new StringBuilder("<?xml version=\"1.0\"?><methodCall><methodName>Robot.")
+				.append(method).append("</methodName><params>");
+		for (Object param : params) {
+			request.append("<param><value>");
+			if (param instanceof int[]) {
+				request.append("<array><data>");
+				for (int value : (int[]) param)
+					request.append("<value><int>").append(value).append("</int></value>");
+				request.append("</data></array>");
+			} else {
+				request.append("<int>").append(param).append("</int>");
+			}
+			request.append("</value></param>");
+		}
+		request.append("</params></methodCall>");
+		byte[] body = request.toString().getBytes(StandardCharsets.UTF_8);
+
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setDoOutput(true);
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type", "text/xml");
+		connection.setFixedLengthStreamingMode(body.length);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (InputStream in = connection.getInputStream()) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) >= 0)
+				response.write(buffer, 0, read);
+		}
+		return new String(response.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	static boolean isFault(String response) {
+		return response.contains("<fault>");
+	}
+
+	static double[] doubles(String response) {
+		List<Double> values = new ArrayList<>();
+		Matcher matcher = DOUBLE.matcher(response);
+		while (matcher.find())
+			values.add(Double.parseDouble(matcher.group(1)));
+		double[] result = new double[values.size()];
+		for (int i = 0; i < result.length; ++i)
+			result[i] = values.get(i);
+		return result;
+	}
+
+	static int integer(String response) {
+		Matcher matcher = INT.matcher(response);
+		if (!matcher.find())
+			throw new IllegalStateException("No integer in " + response);
+		return Integer.parseInt(matcher.group(1));
+	}
+}
@@ -0,0 +1,91 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.tools;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.RobotSimulation;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationBackend;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+
+import junit.framework.TestCase;
+
+public class BackendValidationTest extends TestCase {
+
+	/** The defaults of the validation. */
+	private static final double DISTANCE_TOLERANCE = 0.05;
+	private static final double ANGLE_TOLERANCE = 0.05;
+	private static final int CYCLES = 2;
+
+	private static SimulationConfiguration defaults() {
+		return SimulationConfiguration.read((key, defaultValue) -> defaultValue);
+	}
+
+	/**
+	 * Returns the maximum deviation of the distance, the arm angles and the body
+	 * angle of a gait from the one of dyn4j.
+	 */
+	private static double[] deviation(SimulationBackend.Type type, String gait) {
+		ScriptedGait parsed = ScriptedGait.parse(gait, CYCLES);
+		double[] reference = parsed.run(new RobotSimulation(defaults().withBackend(SimulationBackend.Type.DYN4J)))
+				.getTrajectory();
+		double[] trajectory = parsed.run(new RobotSimulation(defaults().withBackend(type))).getTrajectory();
+		return BackendValidation.deviation(trajectory, reference);
+	}
+
+	private static boolean withinTolerance(double[] deviation) {
+		return deviation[0] <= DISTANCE_TOLERANCE && deviation[1] <= ANGLE_TOLERANCE
+				&& deviation[2] <= ANGLE_TOLERANCE && deviation[3] <= ANGLE_TOLERANCE;
+	}
+
+	public void testSelectableBackendsReproduceTheCrawlingGait() {
+		for (SimulationBackend.Type type : SimulationBackend.Type.values())
+			if (type.isSelectable())
+				assertTrue(type.toString(), withinTolerance(deviation(type, ScriptedGait.DEFAULT)));
+	}
+
+	public void testReducedBackendIsNotSelectable() {
+		// once the crawling gait is within tolerance, the backend can be made
+		// selectable again
+		assertFalse(withinTolerance(deviation(SimulationBackend.Type.REDUCED, ScriptedGait.DEFAULT)));
+		assertFalse(SimulationBackend.Type.REDUCED.isSelectable());
+		try {
+			SimulationBackend.Type.forName("reduced");
+			fail("Selected the reduced backend");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(SimulationBackend.Type.DYN4J, SimulationBackend.Type.forName(" Dyn4j "));
+	}
+
+	public void testReducedBackendReproducesTheOtherGaits() {
+		String[] gaits = BackendValidation.DEFAULT_GAITS.split(";");
+		for (int i = 1; i < gaits.length; ++i)
+			assertTrue(gaits[i], withinTolerance(deviation(SimulationBackend.Type.REDUCED, gaits[i])));
+	}
+
+	public void testReducedBackendIsDeterministic() {
+		ScriptedGait gait = ScriptedGait.parse(ScriptedGait.DEFAULT, CYCLES);
+		SimulationConfiguration configuration = defaults().withBackend(SimulationBackend.Type.REDUCED);
+		RobotSimulation simulation = new RobotSimulation(configuration);
+		double[] first = gait.run(simulation).getTrajectory();
+		double[] again = gait.run(simulation).getTrajectory();
+		double[] fresh = gait.run(new RobotSimulation(configuration)).getTrajectory();
+		assertTrue(Arrays.equals(first, again));
+		assertTrue(Arrays.equals(first, fresh));
+	}
+
+	public void testReducedBackendRejectsTerrain() {
+		Map<String, Double> values = new HashMap<>();
+		values.put("terrain.hillHeight", 1.0);
+		SimulationConfiguration configuration = SimulationConfiguration
+				.read((key, defaultValue) -> values.getOrDefault(key, defaultValue))
+				.withBackend(SimulationBackend.Type.REDUCED);
+		try {
+			new RobotSimulation(configuration);
+			fail("Created the reduced backend with terrain");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
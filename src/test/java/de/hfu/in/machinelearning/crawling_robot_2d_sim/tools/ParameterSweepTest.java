@@ -0,0 +1,87 @@
+package de.hfu.in.machinelearning.crawling_robot_2d_sim.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.SimulationConfiguration;
+import de.hfu.in.machinelearning.crawling_robot_2d_sim.models.VehicleConfiguration;
+
+import junit.framework.TestCase;
+
+public class ParameterSweepTest extends TestCase {
+
+	private static final int ARM_SPEED = Arrays.asList(VehicleConfiguration.KEYS).indexOf("robot.armSpeed");
+	private static final int WHEEL_FRICTION = Arrays.asList(VehicleConfiguration.KEYS)
+			.indexOf("robot.wheelFriction");
+
+	private static SimulationConfiguration defaults() {
+		return SimulationConfiguration.read((key, defaultValue) -> defaultValue);
+	}
+
+	public void testGridContainsEveryCombination() {
+		VehicleConfiguration base = defaults().vehicle;
+		Map<String, double[]> values = new LinkedHashMap<>();
+		values.put("robot.armSpeed", new double[] { 0.5, 1.0 });
+		values.put("robot.wheelFriction", new double[] { 0.1, 0.2, 0.3 });
+		List<VehicleConfiguration> grid = ParameterSweep.grid(base, values);
+		assertEquals(6, grid.size());
+
+		Set<List<Double>> combinations = new HashSet<>();
+		double[] expected = base.toArray();
+		for (VehicleConfiguration configuration : grid) {
+			double[] actual = configuration.toArray();
+			combinations.add(Arrays.asList(actual[ARM_SPEED], actual[WHEEL_FRICTION]));
+			// everything else keeps its value
+			expected[ARM_SPEED] = actual[ARM_SPEED];
+			expected[WHEEL_FRICTION] = actual[WHEEL_FRICTION];
+			assertTrue(Arrays.equals(expected, actual));
+		}
+		assertEquals(6, combinations.size());
+		for (double speed : values.get("robot.armSpeed"))
+			for (double friction : values.get("robot.wheelFriction"))
+				assertTrue(combinations.contains(Arrays.asList(speed, friction)));
+	}
+
+	public void testEmptyGridIsTheBase() {
+		VehicleConfiguration base = defaults().vehicle;
+		List<VehicleConfiguration> grid = ParameterSweep.grid(base, Collections.<String, double[]>emptyMap());
+		assertEquals(1, grid.size());
+		assertTrue(Arrays.equals(base.toArray(), grid.get(0).toArray()));
+	}
+
+	public void testUnknownParametersAreRejected() {
+		Map<String, double[]> values = new LinkedHashMap<>();
+		values.put("robot.wings", new double[] { 1.0 });
+		try {
+			ParameterSweep.grid(defaults().vehicle, values);
+			fail("Swept an unknown parameter");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testRunWritesOneLinePerConfiguration() throws IOException, InterruptedException {
+		SimulationConfiguration base = defaults();
+		Map<String, double[]> values = new LinkedHashMap<>();
+		values.put("robot.armSpeed", new double[] { 0.5, 1.0 });
+		File csv = File.createTempFile("sweep", ".csv");
+		try {
+			ScriptedGait gait = ScriptedGait.parse(ScriptedGait.DEFAULT, 1);
+			new ParameterSweep(base, ParameterSweep.grid(base.vehicle, values), gait, 2).run(csv);
+			List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+			assertEquals(3, lines.size());
+			assertTrue(lines.get(0).startsWith(String.join(",", VehicleConfiguration.KEYS) + ",distance"));
+		} finally {
+			csv.delete();
+		}
+	}
+}